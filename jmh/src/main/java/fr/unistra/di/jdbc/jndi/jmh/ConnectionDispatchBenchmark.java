@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy;
+
+/**
+ * Per call overhead of the {@link java.sql.Connection} decorator
+ * (once its delegate is resolved):
+ * reflective {@link java.lang.reflect.Proxy} vs {@link JNDIDecoratorProxy}
+ * vs raw HSQLDB connection
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConnectionDispatchBenchmark {
+
+    @Param({ "raw", "proxy", "decorator" })
+    public String kind;
+
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        HsqldbFetcher fetcher = new HsqldbFetcher("java:comp/env/jdbc/dispatch");
+        if ("raw".equals(kind))
+            connection = HsqldbFetcher.dataSource(fetcher.getName()).getConnection();
+        else if ("proxy".equals(kind))
+            connection = ReflectiveConnectionHandler.newProxy(fetcher);
+        else
+            connection = new JNDIDecoratorProxy(fetcher);
+        // resolve delegate
+        connection.getAutoCommit();
+        statement = connection.prepareStatement("VALUES ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean getAutoCommit() throws SQLException {
+        return connection.getAutoCommit();
+    }
+
+    @Benchmark
+    public void setAutoCommit() throws SQLException {
+        connection.setAutoCommit(true);
+    }
+
+    @Benchmark
+    public int getTransactionIsolation() throws SQLException {
+        return connection.getTransactionIsolation();
+    }
+
+    @Benchmark
+    public boolean isClosed() throws SQLException {
+        return connection.isClosed();
+    }
+
+    @Benchmark
+    public void setInt() throws SQLException {
+        statement.setInt(1, 42);
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the shared-state benchmarks with 1, 2, 4... 64 threads
+ * to report contention.
+ * <pre>
+ * java -cp target/benchmarks.jar fr.unistra.di.jdbc.jndi.jmh.ContentionRunner [jmh options]
+ * </pre>
+ * Any regular JMH option (include pattern, {@code -wi}, {@code -f}...) is honoured,
+ * default includes are {@link DriverConnectBenchmark},
+ * {@link FetcherResolutionBenchmark} and {@link DriverDatasourceBenchmark}.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class ContentionRunner {
+
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdLine = new CommandLineOptions(args);
+        for (int threads : THREADS) {
+            ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdLine).threads(threads);
+            if (cmdLine.getIncludes().isEmpty())
+                options.include(DriverConnectBenchmark.class.getSimpleName())
+                        .include(FetcherResolutionBenchmark.class.getSimpleName())
+                        .include(DriverDatasourceBenchmark.class.getSimpleName());
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.unistra.di.jdbc.jndi.Driver;
+
+/**
+ * {@link Driver#connect(String, Properties)} throughput:
+ * registry lookup and decorator creation only ({@code connect}),
+ * or full lazy resolution, first call and close ({@code connectAndUse})
+ * <p>Run with {@code -t} (or {@link ContentionRunner}) to measure contention.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DriverConnectBenchmark {
+
+    /** number of distinct jdbc:jndi: URLs */
+    @Param({ "1", "16" })
+    public int urls;
+
+    private Driver driver;
+    private String[] names;
+    private Properties info;
+
+    @Setup
+    public void setUp() {
+        driver = new Driver();
+        names = new String[urls];
+        for (int i = 0; i < urls; i++)
+            names[i] = "jdbc:jndi:java:comp/env/jdbc/connect" + i;
+        info = new Properties();
+        info.setProperty("user", "sa");
+    }
+
+    private String url() {
+        return names[urls == 1 ? 0 : (int) (Thread.currentThread().getId() % urls)];
+    }
+
+    @Benchmark
+    public Connection connect() throws SQLException {
+        return driver.connect(url(), info);
+    }
+
+    @Benchmark
+    public boolean connectAndUse() throws SQLException {
+        Connection connection = driver.connect(url(), info);
+        try {
+            return connection.getAutoCommit();
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.hsqldb.jdbc.JDBCDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.unistra.di.jdbc.jndi.tomcat.ConnectionPool;
+import fr.unistra.di.jdbc.jndi.tomcat.DriverDatasource;
+import fr.unistra.di.jdbc.jndi.tomcat.PooledDriverDatasource;
+
+/**
+ * {@link DriverDatasource#getConnection()} then close,
+ * with and without pooling
+ * <p>Run with {@code -t} (or {@link ContentionRunner}) to measure contention.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DriverDatasourceBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean pooled;
+
+    private DriverDatasource dataSource;
+
+    @Setup
+    public void setUp() {
+        Properties props = new Properties();
+        props.setProperty("user", "sa");
+        String url = "jdbc:hsqldb:mem:datasource";
+        if (pooled) {
+            ConnectionPool.Config config = new ConnectionPool.Config();
+            config.maxActive = 64;
+            config.maxWait = -1;
+            dataSource = new PooledDriverDatasource(new JDBCDriver(), url, props, config);
+        } else
+            dataSource = new DriverDatasource(new JDBCDriver(), url, props);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (dataSource instanceof PooledDriverDatasource)
+            ((PooledDriverDatasource) dataSource).close();
+    }
+
+    @Benchmark
+    public boolean getConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            return connection.getAutoCommit();
+        } finally {
+            connection.close();
+        }
+    }
+}
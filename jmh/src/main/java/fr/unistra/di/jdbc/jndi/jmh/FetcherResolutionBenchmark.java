@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher;
+
+/**
+ * {@link LazyDataSourceFetcher#getDataSource()} cost:
+ * cold (new fetcher, with negative lookup and fallback caches cleared, so
+ * {@code InitialContext} then
+ * {@link fr.unistra.di.jdbc.jndi.fallback.FallbackStrategy} lookup)
+ * and warm (cached {@link DataSource})
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FetcherResolutionBenchmark {
+
+    private static final String NAME = "java:comp/env/jdbc/fetcher";
+
+    private LazyDataSourceFetcher warm;
+    private LazyDataSourceFetcher cold;
+
+    @Setup
+    public void setUp() throws NamingException, SQLException {
+        warm = new LazyDataSourceFetcher(NAME, new Properties());
+        warm.getDataSource();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        cold = new LazyDataSourceFetcher(NAME, new Properties());
+        cold.invalidate();
+    }
+
+    @Benchmark
+    public DataSource cold() throws NamingException, SQLException {
+        return cold.getDataSource();
+    }
+
+    @Benchmark
+    public DataSource warm() throws NamingException, SQLException {
+        return warm.getDataSource();
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.fallback.FallbackStrategy;
+
+/**
+ * {@link FallbackStrategy} resolving any name to an in-memory
+ * HSQLDB {@link DataSource}, registered through
+ * {@code META-INF/services} so that benchmarks go through
+ * the real {@link fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher#lookup()} path
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class HsqldbFallbackStrategy implements FallbackStrategy {
+
+    public DataSource getDataSource(String name, Properties info) {
+        return HsqldbFetcher.dataSource(name);
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+
+import fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher;
+
+/**
+ * {@link LazyDataSourceFetcher} resolving to an in-memory HSQLDB
+ * {@link DataSource}, without any JNDI Context
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class HsqldbFetcher extends LazyDataSourceFetcher {
+
+    public HsqldbFetcher(String name) {
+        super(name, new Properties());
+    }
+
+    @Override
+    protected DataSource lookup() {
+        return dataSource(getName());
+    }
+
+    /**
+     * @param name database name
+     * @return in-memory HSQLDB {@link DataSource}
+     */
+    public static DataSource dataSource(String name) {
+        JDBCDataSource ds = new JDBCDataSource();
+        ds.setUrl("jdbc:hsqldb:mem:" + name.replace('/', '_').replace(':', '_'));
+        ds.setUser("sa");
+        ds.setPassword("");
+        return ds;
+    }
+}
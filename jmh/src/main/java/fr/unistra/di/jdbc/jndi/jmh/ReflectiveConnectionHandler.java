@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher;
+
+/**
+ * Baseline: the former {@link java.lang.reflect.Proxy} based
+ * connection decorator, dispatching every call through
+ * {@link Method#invoke(Object, Object...)}
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class ReflectiveConnectionHandler implements InvocationHandler {
+
+    private final LazyDataSourceFetcher dataSourceFetcher;
+    private Connection delegate;
+
+    public ReflectiveConnectionHandler(LazyDataSourceFetcher dataSourceFetcher) {
+        this.dataSourceFetcher = dataSourceFetcher;
+    }
+
+    /**
+     * @return {@link Connection} proxy as built by former Driver#connect
+     */
+    public static Connection newProxy(LazyDataSourceFetcher fetcher) {
+        return (Connection) Proxy.newProxyInstance(
+                ReflectiveConnectionHandler.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ReflectiveConnectionHandler(fetcher));
+    }
+
+    private Connection getDelegate() throws SQLException {
+        if (delegate == null)
+            try {
+                delegate = dataSourceFetcher.getDataSource().getConnection();
+            } catch (javax.naming.NamingException ex) {
+                throw new SQLException(ex);
+            }
+        return delegate;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args)
+            throws Throwable {
+        try {
+            return method.invoke(getDelegate(), args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.jmh;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Reference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.unistra.di.jdbc.jndi.tomcat.ServerXMLReader;
+import fr.unistra.di.jdbc.jndi.tomcat.TomcatServerXMLStrategy;
+
+/**
+ * {@link TomcatServerXMLStrategy} cost for generated server.xml files
+ * of growing size (number of {@code GlobalNamingResources/Resource},
+ * plus as many {@code Host} elements): full parse of the file,
+ * and lookup of the last resource
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerXMLParseBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int resources;
+
+    private File serverXML;
+    private String name;
+    private Strategy strategy;
+
+    /** expose protected parsing method */
+    static class Strategy extends TomcatServerXMLStrategy {
+        public Reference parse(File file, String name) throws Exception {
+            return parseServerXML(file, name);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        serverXML = File.createTempFile("server", ".xml");
+        Writer out = new OutputStreamWriter(new FileOutputStream(serverXML), "UTF-8");
+        try {
+            out.write("<?xml version='1.0' encoding='utf-8'?>\n<Server port=\"8005\" shutdown=\"SHUTDOWN\">\n");
+            out.write("  <GlobalNamingResources>\n");
+            for (int i = 0; i < resources; i++)
+                out.write("    <Resource name=\"jdbc/db" + i + "\" auth=\"Container\" type=\"javax.sql.DataSource\""
+                        + " driverClassName=\"org.hsqldb.jdbc.JDBCDriver\" url=\"jdbc:hsqldb:mem:db" + i + "\""
+                        + " username=\"sa\" password=\"\" maxActive=\"10\"/>\n");
+            out.write("  </GlobalNamingResources>\n  <Service name=\"Catalina\">\n");
+            out.write("    <Engine name=\"Catalina\" defaultHost=\"localhost\">\n");
+            for (int i = 0; i < resources; i++)
+                out.write("      <Host name=\"host" + i + "\" appBase=\"webapps\" unpackWARs=\"true\"/>\n");
+            out.write("    </Engine>\n  </Service>\n</Server>\n");
+        } finally {
+            out.close();
+        }
+        name = "jdbc/db" + (resources - 1);
+        strategy = new Strategy();
+    }
+
+    @TearDown
+    public void tearDown() {
+        serverXML.delete();
+    }
+
+    @Benchmark
+    public Map<String, Reference> parse() throws Exception {
+        return ServerXMLReader.readAll(serverXML);
+    }
+
+    @Benchmark
+    public Reference lookup() throws Exception {
+        return strategy.parse(serverXML, name);
+    }
+}
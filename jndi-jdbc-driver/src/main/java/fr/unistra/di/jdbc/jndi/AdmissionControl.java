@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Admission control of {@link DataSource#getConnection()} calls for one
+ * JNDI name, so that a saturated DataSource sheds callers instead of
+ * piling up blocked threads.
+ * <p>At most {@link #MAX_IN_FLIGHT_PROPERTY} acquisitions run at once
+ * (0, the default, disables admission control), at most
+ * {@link #QUEUE_SIZE_PROPERTY} callers (default 64) wait, in FIFO order,
+ * for a slot. A caller waits until the DataSource login timeout
+ * (or {@link #TIMEOUT_PROPERTY} ms, default 30000, if none), then
+ * gets a {@link ConnectionShedException}, as does a caller finding
+ * the queue full.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class AdmissionControl {
+
+    /** System property: maximum concurrent acquisitions per JNDI name, 0 for no limit */
+    public static final String MAX_IN_FLIGHT_PROPERTY = "fr.unistra.di.jdbc.jndi.admission.maxInFlight";
+    /** System property: maximum number of waiting callers */
+    public static final String QUEUE_SIZE_PROPERTY = "fr.unistra.di.jdbc.jndi.admission.queueSize";
+    /** System property: wait deadline (ms) if the DataSource has no login timeout */
+    public static final String TIMEOUT_PROPERTY = "fr.unistra.di.jdbc.jndi.admission.timeout";
+
+    private final String name;
+    /** fair, hence FIFO; {@code null} if disabled */
+    private final Semaphore permits;
+    private final int queueSize;
+    private final long timeout;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public AdmissionControl(String name) {
+        this(name, Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, 0),
+                Integer.getInteger(QUEUE_SIZE_PROPERTY, 64),
+                Long.getLong(TIMEOUT_PROPERTY, 30000L));
+    }
+
+    /**
+     * @param name JNDI name
+     * @param maxInFlight maximum concurrent acquisitions, 0 for no limit
+     * @param queueSize maximum number of waiting callers
+     * @param timeout wait deadline (ms) if the DataSource has no login timeout
+     */
+    public AdmissionControl(String name, int maxInFlight, int queueSize, long timeout) {
+        this.name = name;
+        this.permits = maxInFlight > 0 ? new Semaphore(maxInFlight, true) : null;
+        this.queueSize = queueSize;
+        this.timeout = timeout;
+    }
+
+    /**
+     * {@link DataSource#getConnection()}, once admitted
+     * @param ds DataSource to get a {@link Connection} from
+     * @return new {@link Connection}
+     * @throws ConnectionShedException if the wait queue is full,
+     * or no slot was freed in time
+     * @throws SQLException from the {@link DataSource}
+     */
+    public Connection getConnection(DataSource ds) throws SQLException {
+        if (permits == null)
+            return ds.getConnection();
+        admit(ds);
+        try {
+            return ds.getConnection();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void admit(DataSource ds) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            // timed tryAcquire honors fairness, untimed one would barge
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                Metrics.get().admission(name, 0, queued.get(), true);
+                return;
+            }
+            int depth = queued.incrementAndGet();
+            try {
+                if (depth > queueSize) {
+                    Metrics.get().admission(name, 0, depth, false);
+                    throw new ConnectionShedException("Too many callers waiting for a connection to "
+                            + name + " (" + queueSize + ")");
+                }
+                long wait = getTimeout(ds);
+                if (!permits.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+                    Metrics.get().admission(name, System.nanoTime() - start, depth, false);
+                    throw new ConnectionShedException("Timeout: no connection to " + name
+                            + " available in " + wait + " ms");
+                }
+                Metrics.get().admission(name, System.nanoTime() - start, depth, true);
+            } finally {
+                queued.decrementAndGet();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", ex);
+        }
+    }
+
+    /** DataSource login timeout (ms), or default {@code timeout} */
+    private long getTimeout(DataSource ds) {
+        try {
+            int seconds = ds.getLoginTimeout();
+            if (seconds > 0)
+                return TimeUnit.SECONDS.toMillis(seconds);
+        } catch (SQLException ex) {
+            // unsupported
+        }
+        return timeout;
+    }
+
+    /**
+     * @return {@code false} if every acquisition is admitted right away
+     */
+    public boolean isEnabled() {
+        return permits != null;
+    }
+
+    /**
+     * @return number of callers waiting for a slot
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking {@link Connection} acquisition: the JNDI lookup and the
+ * physical connect run on an {@link Executor}, the caller gets a
+ * {@link CompletableFuture}.
+ * <p>At most {@link #CONCURRENCY_PROPERTY} acquisitions (default 16) run
+ * at once per {@link LazyDataSourceFetcher}; others wait in a queue,
+ * without holding any thread.
+ * <p>The default executor uses virtual threads when the runtime has them,
+ * a cached pool of daemon threads otherwise.
+ * <p>Connections are built as {@link Driver#connect(String, Properties)}
+ * does, with the same options, except {@link DriverOptions#AFFINITY}
+ * (acquisitions run on other threads). Kept apart from {@link Driver}
+ * since {@link CompletableFuture} needs Java 8.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see #connect(String, Properties)
+ */
+public class AsyncConnections {
+
+    /** System property: maximum concurrent acquisitions per DataSource */
+    public static final String CONCURRENCY_PROPERTY = "fr.unistra.di.jdbc.jndi.async.concurrency";
+
+    private final Driver driver;
+    private final Executor executor;
+    private final int concurrency;
+    private final ConcurrentMap<LazyDataSourceFetcher, Limiter> limiters =
+            new ConcurrentHashMap<LazyDataSourceFetcher, Limiter>();
+
+    /**
+     * @param driver driver resolving jdbc:jndi: URLs
+     */
+    public AsyncConnections(Driver driver) {
+        this(driver, defaultExecutor(), Integer.getInteger(CONCURRENCY_PROPERTY, 16));
+    }
+
+    /**
+     * @param driver driver resolving jdbc:jndi: URLs
+     * @param executor executor running acquisitions
+     * @param concurrency maximum concurrent acquisitions per DataSource
+     */
+    public AsyncConnections(Driver driver, Executor executor, int concurrency) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("concurrency < 1");
+        this.driver = driver;
+        this.executor = executor;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * acquire a {@link Connection} without blocking the caller,
+     * with the default executor and concurrency limit
+     * @param url jdbc:jndi: URL
+     * @param info JDBC properties
+     * @return future, already connected, {@link Connection}
+     * @see #getConnection(String, Properties)
+     */
+    public static CompletableFuture<Connection> connect(String url, Properties info) {
+        return DefaultHolder.async.getConnection(url, info);
+    }
+
+    /** lazily created default instance */
+    private static final class DefaultHolder {
+        static final AsyncConnections async = new AsyncConnections(new Driver());
+    }
+
+    /**
+     * @return virtual thread per task executor if available (Java 21+),
+     * cached pool of daemon threads otherwise
+     */
+    public static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception ex) {
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "jndi-jdbc-async");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * acquire a connection in the background
+     * @param url jdbc:jndi: URL
+     * @param info JDBC properties
+     * @return future connection, already connected to the database,
+     * completed exceptionally with the lookup or connect {@link SQLException}
+     */
+    public CompletableFuture<Connection> getConnection(String url, Properties info) {
+        CompletableFuture<Connection> future = new CompletableFuture<Connection>();
+        LazyDataSourceFetcher fetcher;
+        Properties props;
+        try {
+            props = driver.getPropertiesFromURL(url, info);
+            fetcher = driver.getFetcher(driver.getNameFromURL(url, info), props);
+        } catch (SQLException ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        getLimiter(fetcher).submit(new Acquisition(fetcher, props, future));
+        return future;
+    }
+
+    /**
+     * @param fetcher DataSource fetcher
+     * @return number of acquisitions waiting for a slot
+     */
+    public int getQueued(LazyDataSourceFetcher fetcher) {
+        Limiter limiter = limiters.get(fetcher);
+        return limiter == null ? 0 : limiter.queue.size();
+    }
+
+    private Limiter getLimiter(LazyDataSourceFetcher fetcher) {
+        Limiter limiter = limiters.get(fetcher);
+        if (limiter == null) {
+            Limiter created = new Limiter();
+            limiter = limiters.putIfAbsent(fetcher, created);
+            if (limiter == null)
+                limiter = created;
+        }
+        return limiter;
+    }
+
+    /** one connection acquisition */
+    private final class Acquisition implements Runnable {
+        final LazyDataSourceFetcher fetcher;
+        final Properties props;
+        final CompletableFuture<Connection> future;
+
+        Acquisition(LazyDataSourceFetcher fetcher, Properties props, CompletableFuture<Connection> future) {
+            this.fetcher = fetcher;
+            this.props = props;
+            this.future = future;
+        }
+
+        public void run() {
+            if (future.isDone())
+                return;
+            Connection conn = null;
+            try {
+                conn = driver.newConnection(fetcher, props);
+                // opens the physical connection, even in lazy mode
+                conn.getMetaData();
+            } catch (Throwable ex) {
+                if (conn != null)
+                    try {
+                        conn.close();
+                    } catch (SQLException closeEx) { }
+                future.completeExceptionally(ex);
+                return;
+            }
+            if (!future.complete(conn))
+                try {
+                    // cancelled meanwhile
+                    conn.close();
+                } catch (SQLException ex) { }
+        }
+    }
+
+    /**
+     * Lock-free concurrency limit: acquisitions beyond {@code concurrency}
+     * are queued, and started as running ones complete
+     */
+    private final class Limiter {
+        final AtomicInteger running = new AtomicInteger();
+        final ConcurrentLinkedQueue<Acquisition> queue = new ConcurrentLinkedQueue<Acquisition>();
+
+        void submit(Acquisition acquisition) {
+            queue.offer(acquisition);
+            drain();
+        }
+
+        /** start queued acquisitions while below the limit */
+        void drain() {
+            while (!queue.isEmpty()) {
+                int current = running.get();
+                if (current >= concurrency)
+                    return;
+                if (!running.compareAndSet(current, current + 1))
+                    continue;
+                final Acquisition acquisition = queue.poll();
+                if (acquisition == null) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                acquisition.run();
+                            } finally {
+                                running.decrementAndGet();
+                                drain();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    running.decrementAndGet();
+                    acquisition.future.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import javax.sql.DataSource;
+
+/**
+ * State of a fresh {@link Connection} from a {@link DataSource}, captured
+ * once per {@link LazyDataSourceFetcher} from the first physical connection,
+ * so that a lazy {@link JNDIDecoratorProxy} answers getters of unrecorded
+ * state without opening one.
+ * <p>Assumes every connection of the {@link DataSource} starts in the same
+ * state: a pool handing out connections left in another state by a previous
+ * borrower is not accounted for.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class ConnectionDefaults {
+
+    private final boolean autoCommit;
+    private final boolean readOnly;
+    private final int transactionIsolation;
+    private final int holdability;
+    private final String catalog;
+    private final String schema;
+    /** {@code false} if the driver does not support {@link Connection#getSchema()} */
+    private final boolean schemaKnown;
+
+    private ConnectionDefaults(Connection connection) throws SQLException {
+        this.autoCommit = connection.getAutoCommit();
+        this.readOnly = connection.isReadOnly();
+        this.transactionIsolation = connection.getTransactionIsolation();
+        this.holdability = connection.getHoldability();
+        this.catalog = connection.getCatalog();
+        String current = null;
+        boolean known = true;
+        try {
+            current = connection.getSchema();
+        } catch (SQLFeatureNotSupportedException ex) {
+            known = false;
+        } catch (AbstractMethodError err) {
+            // pre JDBC 4.1 driver
+            known = false;
+        }
+        this.schema = current;
+        this.schemaKnown = known;
+    }
+
+    /**
+     * @param connection fresh physical connection
+     * @return its state, or {@code null} if it could not be read
+     */
+    static ConnectionDefaults capture(Connection connection) {
+        try {
+            return new ConnectionDefaults(connection);
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+
+    public boolean getAutoCommit() {
+        return autoCommit;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int getTransactionIsolation() {
+        return transactionIsolation;
+    }
+
+    public int getHoldability() {
+        return holdability;
+    }
+
+    public String getCatalog() {
+        return catalog;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return {@code false} if {@link #getSchema()} is meaningless,
+     * the driver not supporting schemas
+     */
+    public boolean isSchemaKnown() {
+        return schemaKnown;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Cache key of a connection target: JNDI name plus an immutable snapshot
+ * of the JDBC properties, {@link DriverOptions driver options} excluded
+ * (they change how connections are used, not where they come from).
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class ConnectionKey {
+    private final String name;
+    private final Map<String, String> fingerprint;
+    private final int hash;
+
+    /**
+     * @param name JNDI name
+     * @param info JDBC Properties (copied, later changes are ignored)
+     */
+    public ConnectionKey(String name, Properties info) {
+        this.name = name;
+        this.fingerprint = fingerprint(info);
+        this.hash = 31 * name.hashCode() + fingerprint.hashCode();
+    }
+
+    private static Map<String, String> fingerprint(Properties info) {
+        Map<String, String> snapshot = new HashMap<String, String>();
+        if (info != null)
+            for (String key : info.stringPropertyNames())
+                if (!DriverOptions.isOption(key))
+                    snapshot.put(key, info.getProperty(key));
+        return snapshot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** @return copy of the snapshot properties */
+    public Properties toProperties() {
+        Properties props = new Properties();
+        props.putAll(fingerprint);
+        return props;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ConnectionKey))
+            return false;
+        ConnectionKey other = (ConnectionKey) obj;
+        return hash == other.hash
+                && name.equals(other.name)
+                && fingerprint.equals(other.fingerprint);
+    }
+}
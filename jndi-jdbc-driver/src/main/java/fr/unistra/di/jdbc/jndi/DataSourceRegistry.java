@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent registry of {@link LazyDataSourceFetcher} objects,
+ * one per JNDI name and JDBC properties fingerprint
+ * ({@link DriverOptions driver options} excluded).
+ * <p>Lookups are lock-free once a key has been registered,
+ * and concurrent first callers share the same fetcher
+ * (hence the same in-flight {@link javax.sql.DataSource} resolution).
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class DataSourceRegistry {
+
+    private final ConcurrentMap<ConnectionKey, LazyDataSourceFetcher> fetchers =
+            new ConcurrentHashMap<ConnectionKey, LazyDataSourceFetcher>();
+    /** keyed by comma separated replica names */
+    private final ConcurrentMap<ConnectionKey, ReplicaSet> replicaSets =
+            new ConcurrentHashMap<ConnectionKey, ReplicaSet>();
+
+    /**
+     * get the {@link LazyDataSourceFetcher} registered for this name
+     * and these properties, registering a new one if none yet
+     * @param name JNDI Name to look for
+     * @param info JDBC Properties (copied, later changes are ignored)
+     * @return shared {@link LazyDataSourceFetcher} instance
+     */
+    public LazyDataSourceFetcher getFetcher(String name, Properties info) {
+        ConnectionKey key = new ConnectionKey(name, info);
+        LazyDataSourceFetcher fetcher = fetchers.get(key);
+        if (fetcher == null) {
+            LazyDataSourceFetcher created = new LazyDataSourceFetcher(name, key.toProperties());
+            fetcher = fetchers.putIfAbsent(key, created);
+            if (fetcher == null)
+                fetcher = created;
+        }
+        return fetcher;
+    }
+
+    /**
+     * get the {@link ReplicaSet} registered for these replicas
+     * and these properties, registering a new one if none yet
+     * (so that connections in use are counted across connections)
+     * @param names comma separated JNDI names, relative ones
+     * being looked up in {@code java:comp/env/}
+     * @param info JDBC Properties
+     * @return shared {@link ReplicaSet} instance
+     */
+    public ReplicaSet getReplicaSet(String names, Properties info) {
+        ConnectionKey key = new ConnectionKey(names, info);
+        ReplicaSet replicas = replicaSets.get(key);
+        if (replicas == null) {
+            String[] split = names.trim().split("\\s*,\\s*");
+            LazyDataSourceFetcher[] fetchers = new LazyDataSourceFetcher[split.length];
+            for (int i = 0; i < split.length; i++)
+                fetchers[i] = getFetcher(split[i].indexOf(':') < 0 ? "java:comp/env/" + split[i] : split[i], info);
+            ReplicaSet created = new ReplicaSet(fetchers);
+            replicas = replicaSets.putIfAbsent(key, created);
+            if (replicas == null)
+                replicas = created;
+        }
+        return replicas;
+    }
+
+    /**
+     * {@link LazyDataSourceFetcher#invalidate() invalidate} every fetcher
+     * registered for this JNDI name, whatever its JDBC properties
+     * @param name JNDI Name
+     * @return number of invalidated fetchers
+     */
+    public int invalidate(String name) {
+        int count = 0;
+        for (LazyDataSourceFetcher fetcher : fetchers.values())
+            if (fetcher.getName().equals(name)) {
+                fetcher.invalidate();
+                count++;
+            }
+        return count;
+    }
+
+    /**
+     * @return number of registered fetchers
+     */
+    public int size() {
+        return fetchers.size();
+    }
+}
@@ -16,6 +16,8 @@
 package fr.unistra.di.jdbc.jndi;
 
 import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
@@ -28,7 +30,9 @@ import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.logging.Logger;
 
+import fr.unistra.di.jdbc.jndi.decorator.Batches;
 import fr.unistra.di.jdbc.jndi.fallback.FallbackStrategy;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
 
 /* (non-Javadoc)
  * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
@@ -37,60 +41,149 @@ public class Driver implements java.sql.Driver {
 
     private static final String JDBC_JNDI_PREFIX = "jdbc:jndi:";
 
-    private LazyDataSourceFetcher fetcher = null;
+    /** one {@link LazyDataSourceFetcher} per JNDI name and JDBC properties */
+    private static final DataSourceRegistry registry = new DataSourceRegistry();
 
-    /** JDBC Driver Registration */
+    /** JDBC Driver Registration, then optional background {@link WarmUp} */
     static {
+        Driver driver = new Driver();
         try {
-            DriverManager.registerDriver(new Driver());
+            DriverManager.registerDriver(driver);
         } catch (SQLException ex) {
             logError("DriverManager.registerDriver FAILED : " + ex.getMessage());
             throw new ExceptionInInitializerError(ex);
         }
+        WarmUp.start(driver, System.getProperty(WarmUp.PROPERTY));
     }
 
     /** get cached {@link LazyDataSourceFetcher} instance
-     * <p><b>FIXME:</b> Not Thread Safe™ !
-     * @return
+     * for this JNDI name and these JDBC properties
+     * @return shared {@link LazyDataSourceFetcher} instance
+     * @see DataSourceRegistry#getFetcher(String, Properties)
      */
     public LazyDataSourceFetcher getFetcher(String name, Properties info) {
-        if (fetcher == null) {
-            fetcher = new LazyDataSourceFetcher(name, info);
-        }
-        return fetcher;
+        return registry.getFetcher(name, info);
+    }
+
+    /** get cached {@link LazyDataSourceFetcher} instance
+     * for this URL (and its parameters)
+     * @param url jdbc:jndi: URL
+     * @return shared {@link LazyDataSourceFetcher} instance
+     * @throws SQLException if URL is not a jdbc:jndi: one
+     */
+    public LazyDataSourceFetcher getFetcher(String url) throws SQLException {
+        return getFetcher(getNameFromURL(url, null), getPropertiesFromURL(url, null));
     }
 
     /**
-     * returns {@link Connection} Proxy object delegating calls
-     * to a lazily fetched JNDI {@link javax.sql.DataSource}.
+     * returns {@link Connection} Proxy object ({@link JNDIDecoratorProxy}) delegating calls
+     * to a lazily fetched JNDI {@link javax.sql.DataSource}
+     * (or a {@link ReadWriteSplitProxy} if {@link DriverOptions#REPLICAS replicas} are given,
+     * or a handle on the connection this thread already opened with
+     * {@link DriverOptions#AFFINITY affinity}).
      * <p>{@inheritDoc}
      * @see java.sql.Driver#connect(String, Properties)
      */
     public Connection connect(String url, Properties info) throws SQLException {
         String name;
+        Properties props;
         try {
             name = getNameFromURL(url, info);
+            props = getPropertiesFromURL(url, info);
         } catch (SQLException ex) {
             logInfo("WARNING" +  ex.getMessage());
             return null;
         }
-        Connection proxyed = (Connection) java.lang.reflect.Proxy.newProxyInstance(
-                getClass().getClassLoader(),
-                new Class<?>[] { Connection.class },
-                new JNDIDecoratorProxy(getFetcher(name, info)));
-        return proxyed;
+        LazyDataSourceFetcher fetcher = getFetcher(name, props);
+        boolean affinity = DriverOptions.isEnabled(props, DriverOptions.AFFINITY);
+        if (affinity) {
+            Connection joined = ThreadAffinity.join(fetcher);
+            if (joined != null)
+                return joined;
+        }
+        if (DriverOptions.isEnabled(props, DriverOptions.WARMUP))
+            WarmUp.warmUp(fetcher);
+        Connection conn = newConnection(fetcher, props);
+        return affinity ? ThreadAffinity.open(fetcher, conn) : conn;
+    }
+
+    /**
+     * @return new, not yet connected, {@link Connection} Proxy object
+     * with these properties options, ignoring {@link DriverOptions#AFFINITY}
+     * and {@link DriverOptions#WARMUP}
+     */
+    Connection newConnection(LazyDataSourceFetcher fetcher, Properties props) throws SQLException {
+        FetchPolicy fetchPolicy = FetchPolicy.get(props);
+        int batchSize = DriverOptions.getInt(props, DriverOptions.BATCH_SIZE, 0);
+        int chunkSize = DriverOptions.getInt(props, DriverOptions.BATCH_CHUNK_SIZE, 0);
+        JNDIDecoratorProxy conn = new JNDIDecoratorProxy(fetcher, DriverOptions.isEnabled(props, DriverOptions.LAZY),
+                batchSize > 0 || chunkSize > 0 ? new Batches(batchSize, chunkSize) : null, fetchPolicy);
+        String replicas = props.getProperty(DriverOptions.REPLICAS);
+        if (replicas != null && replicas.trim().length() > 0)
+            return new ReadWriteSplitProxy(conn, registry.getReplicaSet(replicas, props), fetchPolicy);
+        return conn;
+    }
+
+    /**
+     * Forget the {@link javax.sql.DataSource} resolved for this URL,
+     * so that it gets looked up again on next connection
+     * @param url jdbc:jndi: URL
+     * @return number of invalidated cache entries
+     * @throws SQLException if URL is not a jdbc:jndi: one
+     * @see LazyDataSourceFetcher#invalidate()
+     */
+    public int invalidate(String url) throws SQLException {
+        return registry.invalidate(getNameFromURL(url, null));
     }
 
     protected String getNameFromURL(String url, Properties info) throws SQLException {
         if (!acceptsURL(url))
             throw new SQLException("Invalid JDBC JNDI URL (expecting jdbc:jndi:java:comp/env/jdbc/...)");
         String jndiName = url.substring(JDBC_JNDI_PREFIX.length());
+        int query = jndiName.indexOf('?');
+        if (query >= 0)
+            jndiName = jndiName.substring(0, query);
         if (! jndiName.startsWith("java:comp/env/jdbc/"))
             logInfo(MessageFormat.format("WARNING: JNDI name {0} don't follow JEE convention java:comp/env/jdbc/...", jndiName));
 
         return jndiName;
     }
 
+    /**
+     * @param url jdbc:jndi: URL, with optional {@code ?key=value&...} parameters
+     * @param info JDBC properties, may be {@code null}
+     * @return a copy of {@code info}, with URL parameters added
+     * (URL parameters win)
+     * @throws SQLException if a parameter could not be decoded
+     * @see DriverOptions
+     */
+    protected Properties getPropertiesFromURL(String url, Properties info) throws SQLException {
+        Properties props = new Properties();
+        if (info != null)
+            for (String key : info.stringPropertyNames())
+                props.setProperty(key, info.getProperty(key));
+        int query = url.indexOf('?');
+        if (query < 0)
+            return props;
+        try {
+            for (String param : url.substring(query + 1).split("&")) {
+                if (param.length() == 0)
+                    continue;
+                int eq = param.indexOf('=');
+                if (eq < 0)
+                    props.setProperty(URLDecoder.decode(param, "UTF-8"), "true");
+                else
+                    props.setProperty(URLDecoder.decode(param.substring(0, eq), "UTF-8"),
+                            URLDecoder.decode(param.substring(eq + 1), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException ex) {
+            throw new SQLException(ex.getMessage(), ex);
+        } catch (IllegalArgumentException ex) {
+            throw new SQLException("Invalid JDBC JNDI URL parameters: " + url, ex);
+        }
+        return props;
+    }
+
     /* (non-Javadoc)
      * @param message
      */
@@ -148,7 +241,7 @@ public class Driver implements java.sql.Driver {
      * @see java.sql.Driver#getParentLogger()
      */
     public Logger getParentLogger() throws SQLFeatureNotSupportedException {
-        throw new SQLFeatureNotSupportedException();
+        return Metrics.LOGGER;
     }
 
 }
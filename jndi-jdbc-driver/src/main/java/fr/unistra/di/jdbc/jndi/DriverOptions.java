@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Driver options: {@code jdbc:jndi:} URL parameters (or JDBC properties)
+ * understood by this driver itself, hence neither given to
+ * {@link fr.unistra.di.jdbc.jndi.fallback.FallbackStrategy fallback strategies}
+ * nor part of the {@link DataSourceRegistry} key.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class DriverOptions {
+
+    /** {@code true} to resolve the DataSource in the background on first connect
+     * @see WarmUp */
+    public static final String WARMUP = "warmup";
+
+    /** {@code true} to defer the physical connect until really needed
+     * @see JNDIDecoratorProxy */
+    public static final String LAZY = "lazy";
+
+    /** comma separated replica JNDI names, relative ones
+     * being looked up in {@code java:comp/env/}
+     * @see ReadWriteSplitProxy */
+    public static final String REPLICAS = "replicas";
+
+    /** number of consecutive single-row updates of a statement coalesced into one batch
+     * out of auto-commit mode (0, the default, not to coalesce)
+     * <p>A coalesced {@code PreparedStatement.executeUpdate()} answers 1
+     * whatever the actual count, and its failure is only reported by a later
+     * execution or commit: only enable it when update counts are not checked
+     * (no optimistic locking on {@code UPDATE ... WHERE version = ?} for example).
+     * @see fr.unistra.di.jdbc.jndi.decorator.Batches */
+    public static final String BATCH_SIZE = "batchSize";
+
+    /** number of explicitly batched commands executed at once
+     * (0, the default, not to chunk batches)
+     * @see fr.unistra.di.jdbc.jndi.decorator.Batches */
+    public static final String BATCH_CHUNK_SIZE = "batchChunkSize";
+
+    /** default fetch size of statements
+     * @see FetchPolicy */
+    public static final String FETCH_SIZE = "fetchSize";
+
+    /** {@code prefix=size} fetch size overrides, separated by {@code ;}
+     * @see FetchPolicy */
+    public static final String FETCH_SIZES = "fetchSizes";
+
+    /** {@code true} to hint forward only fetching
+     * @see FetchPolicy */
+    public static final String FORWARD_ONLY = "forwardOnly";
+
+    /** {@code true} for nested connects of a thread to share
+     * its open connection, see {@link ThreadAffinity}
+     * <p>On pooled threads, a leaked connection would be joined by later
+     * tasks: enable {@link LeakDetector leak detection}, after which it is
+     * no longer joined, or call {@link ThreadAffinity#clear()} after each task. */
+    public static final String AFFINITY = "affinity";
+
+    private static final Set<String> OPTIONS = Collections.unmodifiableSet(new HashSet<String>(
+            Arrays.asList(WARMUP, LAZY, REPLICAS, BATCH_SIZE, BATCH_CHUNK_SIZE,
+            FETCH_SIZE, FETCH_SIZES, FORWARD_ONLY, AFFINITY)));
+
+    private DriverOptions() { }
+
+    /**
+     * @param key JDBC property name
+     * @return {@code true} if this is a driver option
+     */
+    public static boolean isOption(String key) {
+        return OPTIONS.contains(key);
+    }
+
+    /**
+     * @param info JDBC properties, may be {@code null}
+     * @param option boolean option name
+     * @return {@code true} if the option is set to {@code true}
+     */
+    public static boolean isEnabled(Properties info, String option) {
+        return info != null && Boolean.parseBoolean(info.getProperty(option, "").trim());
+    }
+
+    /**
+     * @param info JDBC properties, may be {@code null}
+     * @param option integer option name
+     * @param defaultValue value if not set, or not a number
+     * @return option value
+     */
+    public static int getInt(Properties info, String option, int defaultValue) {
+        String value = info == null ? null : info.getProperty(option);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Fetch size policy applied to every statement created by a connection,
+ * so that drivers loading whole result sets by default
+ * stream them by {@link DriverOptions#FETCH_SIZE} rows instead.
+ * <p>{@link DriverOptions#FETCH_SIZES} overrides the fetch size of
+ * prepared (and callable) statements whose SQL starts with a given prefix
+ * (case insensitive, longest prefix wins), as
+ * {@code SELECT * FROM report=1000;SELECT id=50}.
+ * Plain statements only get the default fetch size,
+ * their SQL being unknown when created.
+ * <p>With {@link DriverOptions#FORWARD_ONLY}, forward only statements
+ * are also given the {@link ResultSet#FETCH_FORWARD} direction hint.
+ * <p>A fetch size set by the application on a statement still wins,
+ * the policy being applied as soon as the statement is created.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class FetchPolicy {
+
+    /** parsed policies, by options */
+    private static final ConcurrentMap<String, FetchPolicy> policies = new ConcurrentHashMap<String, FetchPolicy>();
+
+    /** default fetch size, 0 for the driver's one */
+    private final int fetchSize;
+    private final boolean forwardOnly;
+    /** overriding SQL prefixes, longest first */
+    private final String[] prefixes;
+    private final int[] sizes;
+
+    /**
+     * @param fetchSize default fetch size, 0 for the driver's one
+     * @param overrides {@code prefix=size} pairs separated by {@code ;},
+     * may be {@code null}
+     * @param forwardOnly {@code true} to hint forward only fetching
+     * @throws IllegalArgumentException if an override is malformed
+     */
+    public FetchPolicy(int fetchSize, String overrides, boolean forwardOnly) {
+        this.fetchSize = fetchSize;
+        this.forwardOnly = forwardOnly;
+        List<String[]> parsed = new ArrayList<String[]>();
+        if (overrides != null)
+            for (String override : overrides.split(";")) {
+                if (override.trim().length() == 0)
+                    continue;
+                int eq = override.lastIndexOf('=');
+                String prefix = eq < 0 ? "" : override.substring(0, eq).trim();
+                if (prefix.length() == 0)
+                    throw new IllegalArgumentException("Invalid fetch size override: " + override);
+                parsed.add(new String[] { prefix, override.substring(eq + 1).trim() });
+            }
+        Collections.sort(parsed, new Comparator<String[]>() {
+            public int compare(String[] o1, String[] o2) {
+                return o2[0].length() - o1[0].length();
+            }
+        });
+        this.prefixes = new String[parsed.size()];
+        this.sizes = new int[parsed.size()];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = parsed.get(i)[0];
+            sizes[i] = Integer.parseInt(parsed.get(i)[1]);
+        }
+    }
+
+    /**
+     * @param info JDBC properties (with URL parameters)
+     * @return shared policy matching {@link DriverOptions#FETCH_SIZE},
+     * {@link DriverOptions#FETCH_SIZES} and {@link DriverOptions#FORWARD_ONLY},
+     * or {@code null} if none is set
+     * @throws SQLException if an option is malformed
+     */
+    public static FetchPolicy get(Properties info) throws SQLException {
+        String fetchSize = info.getProperty(DriverOptions.FETCH_SIZE);
+        String overrides = info.getProperty(DriverOptions.FETCH_SIZES);
+        boolean forwardOnly = DriverOptions.isEnabled(info, DriverOptions.FORWARD_ONLY);
+        if (fetchSize == null && overrides == null && !forwardOnly)
+            return null;
+        String key = fetchSize + '\0' + overrides + '\0' + forwardOnly;
+        FetchPolicy policy = policies.get(key);
+        if (policy == null) {
+            try {
+                policy = new FetchPolicy(fetchSize == null ? 0 : Integer.parseInt(fetchSize.trim()),
+                        overrides, forwardOnly);
+            } catch (IllegalArgumentException ex) {
+                throw new SQLException("Invalid fetch size policy: " + ex.getMessage(), ex);
+            }
+            FetchPolicy previous = policies.putIfAbsent(key, policy);
+            if (previous != null)
+                policy = previous;
+        }
+        return policy;
+    }
+
+    /**
+     * @param sql statement SQL, may be {@code null}
+     * @return fetch size for this SQL, 0 for the driver's one
+     */
+    public int getFetchSize(String sql) {
+        if (sql != null && prefixes.length > 0) {
+            int start = 0;
+            while (start < sql.length() && Character.isWhitespace(sql.charAt(start)))
+                start++;
+            for (int i = 0; i < prefixes.length; i++)
+                if (sql.regionMatches(true, start, prefixes[i], 0, prefixes[i].length()))
+                    return sizes[i];
+        }
+        return fetchSize;
+    }
+
+    /**
+     * @param statement new statement
+     * @param sql statement SQL, {@code null} if not known yet
+     * @throws SQLException from the statement, then closed
+     */
+    public void apply(Statement statement, String sql) throws SQLException {
+        try {
+            int size = getFetchSize(sql);
+            if (size != 0)
+                statement.setFetchSize(size);
+            if (forwardOnly && statement.getResultSetType() == ResultSet.TYPE_FORWARD_ONLY)
+                statement.setFetchDirection(ResultSet.FETCH_FORWARD);
+        } catch (SQLException ex) {
+            try {
+                statement.close();
+            } catch (SQLException closeEx) { }
+            throw ex;
+        }
+    }
+}
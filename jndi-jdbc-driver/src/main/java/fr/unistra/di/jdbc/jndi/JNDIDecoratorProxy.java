@@ -15,74 +15,525 @@
  */
 package fr.unistra.di.jdbc.jndi;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLWarning;
+import java.sql.Savepoint;
+import java.sql.Statement;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 import javax.naming.NamingException;
-import javax.naming.NoInitialContextException;
 import javax.sql.DataSource;
 
+import fr.unistra.di.jdbc.jndi.decorator.Batches;
+import fr.unistra.di.jdbc.jndi.decorator.BatchingCallableStatement;
+import fr.unistra.di.jdbc.jndi.decorator.BatchingPreparedStatement;
+import fr.unistra.di.jdbc.jndi.decorator.BatchingStatement;
+import fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
 /**
  * Proxy around {@link java.sql.Connection}
  * lazily fetched from a JNDI {@link javax.sql.DataSource} object
+ * <p>In lazy mode ({@link DriverOptions#LAZY}), the physical connection
+ * is not even opened by state-only calls: {@code setAutoCommit},
+ * {@code setReadOnly}, {@code setTransactionIsolation}, {@code setCatalog},
+ * {@code setSchema} and {@code setHoldability} are recorded (and answered
+ * by matching getters), then replayed once the physical connection is
+ * needed, usually by the first statement creation.
+ * {@code commit}/{@code rollback} have nothing to do before that.
+ * Getters of unrecorded state are answered from {@link ConnectionDefaults},
+ * once captured from any connection of the same {@link LazyDataSourceFetcher}:
+ * until then, they do open the physical connection.
+ * <p>In any mode, closing or aborting a never used proxy does not open a connection.
+ * <p>With {@link Batches} ({@link DriverOptions#BATCH_SIZE},
+ * {@link DriverOptions#BATCH_CHUNK_SIZE}), statements are
+ * {@link BatchingPreparedStatement batching} ones, coalesced updates being
+ * executed before commit, savepoints and close, and dropped by rollback.
+ * <p>With a {@link FetchPolicy}, it is applied to every created statement.
  *
  * <p> FIXME : not Thread safe !
  *
  * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
- * @see java.lang.reflect.Proxy#newProxyInstance(ClassLoader, Class[], InvocationHandler)
+ * @see ConnectionDecorator
  * @see javax.sql.DataSource
  * @see java.sql.Connection
  */
-public class JNDIDecoratorProxy implements InvocationHandler {
+public class JNDIDecoratorProxy extends ConnectionDecorator {
 
     private LazyDataSourceFetcher dataSourceFetcher;
 
-    private Object delegate;
+    private Connection delegate;
+    private boolean closed;
+    /** leak detection lease of {@link #delegate}, {@code null} if not tracked */
+    private LeakDetector.Lease lease;
     /** use to provide original exception from a lazy call */
     private final SQLException potentialCause;
 
+    /** defer state-only calls until the physical connection is needed */
+    private final boolean lazy;
+    /** recorded state, {@code null} if not set, see {@link #replay()} */
+    private Boolean autoCommit;
+    private Boolean readOnly;
+    private Integer transactionIsolation;
+    private Integer holdability;
+    private String catalog;
+    private String schema;
+    private boolean catalogSet;
+    private boolean schemaSet;
+
+    /** batching state, {@code null} not to batch */
+    private final Batches batches;
+    /** fetch size policy, {@code null} for drivers' defaults */
+    private final FetchPolicy fetchPolicy;
+
     public JNDIDecoratorProxy(LazyDataSourceFetcher dsFetcher) {
+        this(dsFetcher, false);
+    }
+
+    public JNDIDecoratorProxy(LazyDataSourceFetcher dsFetcher, boolean lazy) {
+        this(dsFetcher, lazy, null, null);
+    }
+
+    /**
+     * @param dsFetcher {@link DataSource} provider
+     * @param lazy {@code true} to record state-only calls
+     * until the physical connection is needed
+     * @param batches batching state, {@code null} not to batch statements
+     * @param fetchPolicy fetch size policy, {@code null} for drivers' defaults
+     */
+    public JNDIDecoratorProxy(LazyDataSourceFetcher dsFetcher, boolean lazy,
+            Batches batches, FetchPolicy fetchPolicy) {
         this.dataSourceFetcher = dsFetcher;
+        this.lazy = lazy;
+        this.batches = batches;
+        this.fetchPolicy = fetchPolicy;
         this.potentialCause = new SQLNonTransientConnectionException("could not get DataSource");
-        // strip this stackframe element (ie this constructor)
+        // strip these stackframe elements (ie these constructors)
         StackTraceElement[] stackTrace = potentialCause.getStackTrace();
-        potentialCause.setStackTrace(Arrays.copyOfRange(stackTrace, 1, stackTrace.length));
+        int skip = 1;
+        while (skip < stackTrace.length && "<init>".equals(stackTrace[skip].getMethodName())
+                && getClass().getName().equals(stackTrace[skip].getClassName()))
+            skip++;
+        potentialCause.setStackTrace(Arrays.copyOfRange(stackTrace, skip, stackTrace.length));
     }
 
     /** lazy fetch a {@link DataSource}
+     * (shared and memoised by the {@link LazyDataSourceFetcher})
      * to lazy get a {@link java.sql.Connection}
      * to delegate on
      * @throws SQLException rethrowed from creation
      * if some {@link NamingException} or {@link SQLException}
      * occurred (attached as cause)
+     * @see LazyDataSourceFetcher#getDataSource()
      */
-    private Object getDelegate() throws SQLException  {
+    @Override
+    protected Connection getDelegate() throws SQLException  {
         if (delegate == null) {
+            if (closed)
+                throw new SQLNonTransientConnectionException("Connection is closed", "08003");
             DataSource jndiDS;
             try {
-                jndiDS = dataSourceFetcher.lookup();
+                jndiDS = dataSourceFetcher.getDataSource();
             } catch (NamingException jndiEx) {
-                throw (SQLException) potentialCause.initCause(jndiEx);
+                throw failure(jndiEx);
             } catch (SQLException sqlEx) {
-                throw (SQLException) potentialCause.initCause(sqlEx);
+                throw failure(sqlEx);
             }
+            long start = Metrics.start();
             try {
-                delegate = jndiDS.getConnection();
+                delegate = dataSourceFetcher.getAdmissionControl().getConnection(jndiDS);
             } catch (SQLException sqlEx) {
-                throw (SQLException) potentialCause.initCause(sqlEx);
+                Metrics.get().acquire(dataSourceFetcher.getName(), Metrics.since(start), false);
+                throw failure(sqlEx);
+            }
+            Metrics.get().acquire(dataSourceFetcher.getName(), Metrics.since(start), true);
+            if (lazy) {
+                dataSourceFetcher.captureDefaults(delegate);
+                replay();
             }
+            lease = dataSourceFetcher.getLeakDetector().track(delegate);
         }
         return delegate;
     }
 
-    /** invoke method on delegate object (lazily fetched)
-     * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+    /** apply recorded state to the new physical connection,
+     * closing it on failure */
+    private void replay() throws SQLException {
+        try {
+            if (catalogSet)
+                delegate.setCatalog(catalog);
+            if (schemaSet)
+                delegate.setSchema(schema);
+            if (readOnly != null)
+                delegate.setReadOnly(readOnly.booleanValue());
+            if (transactionIsolation != null)
+                delegate.setTransactionIsolation(transactionIsolation.intValue());
+            if (holdability != null)
+                delegate.setHoldability(holdability.intValue());
+            if (autoCommit != null)
+                delegate.setAutoCommit(autoCommit.booleanValue());
+        } catch (SQLException ex) {
+            Connection failed = delegate;
+            delegate = null;
+            try {
+                failed.close();
+            } catch (SQLException closeEx) { }
+            throw ex;
+        }
+    }
+
+    /** @return {@code true} if calls are still recorded */
+    private boolean deferred() {
+        return lazy && delegate == null && !closed;
+    }
+
+    /** @return fresh connections state, {@code null} if unknown or not {@link #deferred()} */
+    private ConnectionDefaults defaults() {
+        return deferred() ? dataSourceFetcher.getDefaults() : null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#close()
+     */
+    @Override
+    public void close() throws SQLException {
+        called("close");
+        if (closed)
+            return;
+        closed = true;
+        if (delegate != null)
+            try {
+                if (batches != null)
+                    batches.flush();
+            } finally {
+                if (lease != null)
+                    lease.release();
+                delegate.close();
+            }
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#abort(java.util.concurrent.Executor)
+     */
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        called("abort");
+        if (executor == null)
+            throw new SQLException("executor is null");
+        if (closed)
+            return;
+        closed = true;
+        if (delegate != null) {
+            if (batches != null)
+                batches.discard();
+            if (lease != null)
+                lease.release();
+            delegate.abort(executor);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#isClosed()
+     */
+    @Override
+    public boolean isClosed() throws SQLException {
+        called("isClosed");
+        return delegate == null ? closed : delegate.isClosed();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setAutoCommit(boolean)
+     */
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        if (!deferred()) {
+            if (batches != null)
+                batches.flush();
+            super.setAutoCommit(autoCommit);
+            return;
+        }
+        called("setAutoCommit");
+        this.autoCommit = Boolean.valueOf(autoCommit);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#getAutoCommit()
+     */
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        ConnectionDefaults defaults = defaults();
+        if (!deferred() || autoCommit == null && defaults == null)
+            return super.getAutoCommit();
+        called("getAutoCommit");
+        return autoCommit != null ? autoCommit.booleanValue() : defaults.getAutoCommit();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#commit()
+     */
+    @Override
+    public void commit() throws SQLException {
+        if (!deferred()) {
+            if (batches != null)
+                batches.flush();
+            super.commit();
+            return;
+        }
+        called("commit");
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#rollback()
+     */
+    @Override
+    public void rollback() throws SQLException {
+        if (!deferred()) {
+            if (batches != null)
+                batches.discard();
+            super.rollback();
+            return;
+        }
+        called("rollback");
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setReadOnly(boolean)
+     */
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        if (!deferred()) {
+            super.setReadOnly(readOnly);
+            return;
+        }
+        called("setReadOnly");
+        this.readOnly = Boolean.valueOf(readOnly);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#isReadOnly()
+     */
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        ConnectionDefaults defaults = defaults();
+        if (!deferred() || readOnly == null && defaults == null)
+            return super.isReadOnly();
+        called("isReadOnly");
+        return readOnly != null ? readOnly.booleanValue() : defaults.isReadOnly();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setTransactionIsolation(int)
+     */
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        if (!deferred()) {
+            super.setTransactionIsolation(level);
+            return;
+        }
+        called("setTransactionIsolation");
+        this.transactionIsolation = Integer.valueOf(level);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#getTransactionIsolation()
+     */
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        ConnectionDefaults defaults = defaults();
+        if (!deferred() || transactionIsolation == null && defaults == null)
+            return super.getTransactionIsolation();
+        called("getTransactionIsolation");
+        return transactionIsolation != null ? transactionIsolation.intValue() : defaults.getTransactionIsolation();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setHoldability(int)
+     */
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        if (!deferred()) {
+            super.setHoldability(holdability);
+            return;
+        }
+        called("setHoldability");
+        this.holdability = Integer.valueOf(holdability);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#getHoldability()
+     */
+    @Override
+    public int getHoldability() throws SQLException {
+        ConnectionDefaults defaults = defaults();
+        if (!deferred() || holdability == null && defaults == null)
+            return super.getHoldability();
+        called("getHoldability");
+        return holdability != null ? holdability.intValue() : defaults.getHoldability();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setCatalog(java.lang.String)
+     */
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        if (!deferred()) {
+            super.setCatalog(catalog);
+            return;
+        }
+        called("setCatalog");
+        this.catalog = catalog;
+        this.catalogSet = true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#getCatalog()
+     */
+    @Override
+    public String getCatalog() throws SQLException {
+        ConnectionDefaults defaults = defaults();
+        if (!deferred() || !catalogSet && defaults == null)
+            return super.getCatalog();
+        called("getCatalog");
+        return catalogSet ? catalog : defaults.getCatalog();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setSchema(java.lang.String)
+     */
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        if (!deferred()) {
+            super.setSchema(schema);
+            return;
+        }
+        called("setSchema");
+        this.schema = schema;
+        this.schemaSet = true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#getSchema()
+     */
+    @Override
+    public String getSchema() throws SQLException {
+        ConnectionDefaults defaults = defaults();
+        if (!deferred() || !schemaSet && (defaults == null || !defaults.isSchemaKnown()))
+            return super.getSchema();
+        called("getSchema");
+        return schemaSet ? schema : defaults.getSchema();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#getWarnings()
+     */
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        if (!deferred())
+            return super.getWarnings();
+        called("getWarnings");
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#clearWarnings()
+     */
+    @Override
+    public void clearWarnings() throws SQLException {
+        if (!deferred()) {
+            super.clearWarnings();
+            return;
+        }
+        called("clearWarnings");
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setSavepoint()
+     */
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        if (batches != null)
+            batches.flush();
+        return super.setSavepoint();
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setSavepoint(java.lang.String)
+     */
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        if (batches != null)
+            batches.flush();
+        return super.setSavepoint(name);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#rollback(java.sql.Savepoint)
+     */
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        if (batches != null)
+            batches.flush();
+        super.rollback(savepoint);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#decorateStatement(java.sql.Statement)
      */
-    public Object invoke(Object proxy, Method method, Object[] args)
-            throws Throwable {
-        return method.invoke(getDelegate(), args);
+    @Override
+    protected Statement decorateStatement(Statement statement) throws SQLException {
+        if (fetchPolicy != null)
+            fetchPolicy.apply(statement, null);
+        if (batches == null)
+            return super.decorateStatement(statement);
+        return new BatchingStatement(this, statement, batches);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#decoratePreparedStatement(java.sql.PreparedStatement, java.lang.String)
+     */
+    @Override
+    protected PreparedStatement decoratePreparedStatement(PreparedStatement statement, String sql) throws SQLException {
+        if (fetchPolicy != null)
+            fetchPolicy.apply(statement, sql);
+        if (batches == null)
+            return super.decoratePreparedStatement(statement, sql);
+        return new BatchingPreparedStatement(this, statement, batches);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#decorateCallableStatement(java.sql.CallableStatement, java.lang.String)
+     */
+    @Override
+    protected CallableStatement decorateCallableStatement(CallableStatement statement, String sql) throws SQLException {
+        if (fetchPolicy != null)
+            fetchPolicy.apply(statement, sql);
+        if (batches == null)
+            return super.decorateCallableStatement(statement, sql);
+        return new BatchingCallableStatement(this, statement, batches);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#called(java.lang.String)
+     */
+    @Override
+    protected void called(String method) {
+        Metrics.get().call(method);
+    }
+
+    /** attach cause to {@link #potentialCause},
+     * or to a copy of it if already used by a previous failure
+     */
+    private SQLException failure(Exception cause) {
+        SQLException ex = potentialCause;
+        if (ex.getCause() != null) {
+            ex = new SQLNonTransientConnectionException(ex.getMessage());
+            ex.setStackTrace(potentialCause.getStackTrace());
+        }
+        return (SQLException) ex.initCause(cause);
     }
 }
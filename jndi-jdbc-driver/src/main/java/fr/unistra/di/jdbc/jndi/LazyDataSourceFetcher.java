@@ -15,26 +15,45 @@
  */
 package fr.unistra.di.jdbc.jndi;
 
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.List;
+import java.sql.SQLTransientConnectionException;
 import java.util.Properties;
-import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.naming.NoInitialContextException;
 import javax.sql.DataSource;
 
+import fr.unistra.di.jdbc.jndi.fallback.FallbackStrategies;
 import fr.unistra.di.jdbc.jndi.fallback.FallbackStrategy;
+import fr.unistra.di.jdbc.jndi.metrics.DriverMetrics;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
 
 public class LazyDataSourceFetcher {
 
+    /** failed lookups, shared by every fetcher */
+    private static final NegativeLookupCache negativeCache = new NegativeLookupCache();
+
     /** JNDI Name to lookup for */
     private String jndiName;
     /** JDBC properties */
     private Properties info;
     /** {@link DataSource} object cache */
-    private DataSource dataSource;
+    private volatile DataSource dataSource;
+    /** admission control of connection acquisitions */
+    private final AdmissionControl admission;
+    /** leak detection of acquired connections */
+    private final LeakDetector leakDetector;
+    /** state of fresh connections, {@code null} until captured */
+    private volatile ConnectionDefaults defaults;
+    /** in-flight {@link #lookup()}, shared by concurrent first callers */
+    private final AtomicReference<FutureTask<DataSource>> pending =
+            new AtomicReference<FutureTask<DataSource>>();
 
     /**
      * @param name JNDI Name to look for
@@ -45,6 +64,8 @@ public class LazyDataSourceFetcher {
         this.jndiName = name;
         this.info = info;
         this.dataSource = null;
+        this.admission = new AdmissionControl(name);
+        this.leakDetector = new LeakDetector(name);
     }
 
     /**
@@ -52,7 +73,10 @@ public class LazyDataSourceFetcher {
      * either from JEE Container
      * using a {@link InitialContext#lookup(String) JNDI Lookup},
      * or from the first matching {@link FallbackStrategy}
-     * <p><b>FIXME:</b> not Thread Safe !
+     * <p>Thread safe: the lookup is done once, concurrent first callers
+     * wait for the same in-flight resolution, and later calls only
+     * cost a volatile read. A failed lookup is only cached for a while
+     * (see {@link NegativeLookupCache}).
      * @return lazily fetched {@link DataSource} object
      * @throws NamingException in case of JNDI error from JEE Container
      * @throws SQLException the first exception from FallbackStrategies
@@ -61,10 +85,142 @@ public class LazyDataSourceFetcher {
      * @see FallbackStrategy#getDataSource(String, Properties)
      */
     public DataSource getDataSource() throws NamingException, SQLException {
-        if (dataSource == null) {
-            dataSource = lookup();
+        DataSource ds = dataSource;
+        if (ds == null) {
+            Metrics.get().cacheMiss("dataSource", jndiName);
+            ds = resolve();
+        } else
+            Metrics.get().cacheHit("dataSource", jndiName);
+        return ds;
+    }
+
+    /**
+     * forget the cached {@link DataSource} (and any failed or in-flight
+     * lookup, including the {@link NegativeLookupCache} entry), so that next {@link #getDataSource()} call resolves it again.
+     * <p>Meant to recover from a {@link DataSource} known to be broken
+     * (redeployed, closed...) without restarting the JVM.
+     */
+    public void invalidate() {
+        synchronized (pending) {
+            pending.set(null);
+            dataSource = null;
+            defaults = null;
+        }
+        negativeCache.remove(jndiName);
+        FallbackStrategies.getInstance().forget(jndiName);
+    }
+
+    /**
+     * @return JNDI Name to look for
+     */
+    public String getName() {
+        return jndiName;
+    }
+
+    /**
+     * @return admission control of connection acquisitions for this name
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admission;
+    }
+
+    /**
+     * @return leak detection of acquired connections for this name
+     */
+    public LeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
+    /**
+     * @return state of fresh connections from the {@link DataSource},
+     * {@code null} if not captured yet
+     */
+    public ConnectionDefaults getDefaults() {
+        return defaults;
+    }
+
+    /**
+     * capture fresh connections state, unless already done
+     * @param connection fresh physical connection
+     */
+    void captureDefaults(Connection connection) {
+        if (defaults == null)
+            defaults = ConnectionDefaults.capture(connection);
+    }
+
+    /**
+     * @return failed lookups cache, shared by every fetcher
+     */
+    public static NegativeLookupCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    /**
+     * {@link #lookup()} unless it recently failed
+     * @see NegativeLookupCache
+     */
+    private DataSource cachedLookup() throws NamingException, SQLException {
+        negativeCache.check(jndiName);
+        DriverMetrics metrics = Metrics.get();
+        long start = Metrics.start();
+        try {
+            DataSource ds = lookup();
+            metrics.lookup(jndiName, null, Metrics.since(start), true);
+            return ds;
+        } catch (NamingException ex) {
+            metrics.lookup(jndiName, null, Metrics.since(start), false);
+            negativeCache.put(jndiName, ex);
+            throw ex;
+        } catch (SQLException ex) {
+            metrics.lookup(jndiName, null, Metrics.since(start), false);
+            negativeCache.put(jndiName, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * run {@link #lookup()} once, or wait for the in-flight one
+     */
+    private DataSource resolve() throws NamingException, SQLException {
+        FutureTask<DataSource> task;
+        while ((task = pending.get()) == null) {
+            FutureTask<DataSource> created = new FutureTask<DataSource>(
+                    new Callable<DataSource>() {
+                        public DataSource call() throws Exception {
+                            return cachedLookup();
+                        }
+                    });
+            if (pending.compareAndSet(null, created)) {
+                task = created;
+                task.run();
+                break;
+            }
+        }
+        try {
+            DataSource ds = task.get();
+            // unless invalidated meanwhile
+            synchronized (pending) {
+                if (pending.get() == task)
+                    dataSource = ds;
+            }
+            return ds;
+        } catch (ExecutionException ex) {
+            // forget failure so that next call retries
+            pending.compareAndSet(task, null);
+            Throwable cause = ex.getCause();
+            if (cause instanceof NamingException)
+                throw (NamingException) cause;
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw (SQLException) new SQLException("DataSource lookup failed").initCause(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for DataSource lookup", ex);
         }
-        return dataSource;
     }
 
     /**
@@ -83,19 +239,9 @@ public class LazyDataSourceFetcher {
             // and returns the first non-null match
             // or re-throws the first Exception
             // or re-throws NoInitialContextException
-            SQLException failure = null;
-            ServiceLoader<FallbackStrategy> fallbackStrategies = ServiceLoader.load(FallbackStrategy.class);
-            for (FallbackStrategy strategy : fallbackStrategies)
-                try {
-                    DataSource ds = strategy.getDataSource(jndiName, info);
-                    if (ds != null)
-                        return ds;
-                } catch (SQLException ex) {
-                    if (failure == null)
-                        failure = ex;
-                }
-            if (failure != null)
-                throw failure;
+            DataSource ds = FallbackStrategies.getInstance().getDataSource(jndiName, info);
+            if (ds != null)
+                return ds;
             else
                 throw noContextEx;
         }
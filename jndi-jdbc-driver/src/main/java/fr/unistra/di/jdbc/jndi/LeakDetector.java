@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Leak detection of the connections acquired for one JNDI name.
+ * <p>Connections held longer than {@link #THRESHOLD_PROPERTY} ms
+ * (0, the default, disables detection) are reported once, through
+ * {@link Metrics#LOGGER} and {@link fr.unistra.di.jdbc.jndi.metrics.DriverMetrics#leak(String, long, boolean)}.
+ * The acquisition stack trace is only captured for one acquisition in
+ * {@link #SAMPLING_PROPERTY} (default 100, 1 for every one), so that
+ * detection can stay on in production.
+ * <p>Connections held longer than {@link #HARD_LIMIT_PROPERTY} ms
+ * (0, the default, never) are closed, giving them back to their pool:
+ * their holder then gets errors from the closed connection.
+ * Without hard limit, reported connections are no longer tracked
+ * (nor referenced) afterwards.
+ * <p>Held connections are checked by a shared background thread,
+ * every half of the smallest limit.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class LeakDetector {
+
+    /** System property: hold time (ms) after which a connection is reported, 0 not to detect leaks */
+    public static final String THRESHOLD_PROPERTY = "fr.unistra.di.jdbc.jndi.leak.threshold";
+    /** System property: capture the acquisition stack trace of one connection in N */
+    public static final String SAMPLING_PROPERTY = "fr.unistra.di.jdbc.jndi.leak.sampling";
+    /** System property: hold time (ms) after which a connection is closed, 0 never to close it */
+    public static final String HARD_LIMIT_PROPERTY = "fr.unistra.di.jdbc.jndi.leak.hardLimit";
+
+    private final String name;
+    private final long threshold;
+    private final int sampling;
+    private final long hardLimit;
+    private final Set<Lease> leases = Collections.newSetFromMap(new ConcurrentHashMap<Lease, Boolean>());
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public LeakDetector(String name) {
+        this(name, Long.getLong(THRESHOLD_PROPERTY, 0L),
+                Integer.getInteger(SAMPLING_PROPERTY, 100),
+                Long.getLong(HARD_LIMIT_PROPERTY, 0L));
+    }
+
+    /**
+     * @param name JNDI name
+     * @param threshold hold time (ms) after which a connection is reported, 0 not to report
+     * @param sampling capture the acquisition stack trace of one connection in {@code sampling}
+     * @param hardLimit hold time (ms) after which a connection is closed, 0 never to close it
+     */
+    public LeakDetector(String name, long threshold, int sampling, long hardLimit) {
+        this.name = name;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(Math.max(0, threshold));
+        this.sampling = Math.max(1, sampling);
+        this.hardLimit = TimeUnit.MILLISECONDS.toNanos(Math.max(0, hardLimit));
+    }
+
+    /** @return {@code false} if connections are not tracked */
+    public boolean isEnabled() {
+        return threshold > 0 || hardLimit > 0;
+    }
+
+    /**
+     * start tracking an acquired connection
+     * @param connection acquired connection
+     * @return lease to {@link Lease#release() release} once the
+     * connection is closed, {@code null} if detection is disabled
+     */
+    public Lease track(Connection connection) {
+        if (!isEnabled())
+            return null;
+        Throwable site = sampling == 1 || ThreadLocalRandom.current().nextInt(sampling) == 0
+                ? new Throwable("Connection to " + name + " acquired here") : null;
+        Lease lease = new Lease(connection, site);
+        leases.add(lease);
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+            long period = Math.max(TimeUnit.MILLISECONDS.toNanos(10),
+                    (threshold > 0 && (hardLimit == 0 || threshold < hardLimit) ? threshold : hardLimit) / 2);
+            Scanner.executor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    check();
+                }
+            }, period, period, TimeUnit.NANOSECONDS);
+        }
+        return lease;
+    }
+
+    /**
+     * report connections held past the threshold,
+     * close the ones held past the hard limit
+     * (done periodically once a connection is tracked)
+     */
+    public void check() {
+        long now = System.nanoTime();
+        for (Lease lease : leases) {
+            long held = now - lease.start;
+            if (hardLimit > 0 && held >= hardLimit) {
+                if (!leases.remove(lease))
+                    continue;
+                log(lease, held, "force-closed");
+                Metrics.get().leak(name, held, true);
+                try {
+                    lease.connection.close();
+                } catch (SQLException ex) {
+                    Metrics.LOGGER.log(Level.FINE, "Could not close leaked connection", ex);
+                }
+            } else if (threshold > 0 && held >= threshold && !lease.reported) {
+                lease.reported = true;
+                // never closed: do not keep the connection and its stack trace
+                if (hardLimit == 0 && !leases.remove(lease))
+                    continue;
+                log(lease, held, "possibly leaked");
+                Metrics.get().leak(name, held, false);
+            }
+        }
+    }
+
+    private void log(Lease lease, long held, String status) {
+        String message = MessageFormat.format("Connection to {0} held for {1} ms, {2}{3}",
+                new Object[] { name, String.valueOf(TimeUnit.NANOSECONDS.toMillis(held)), status,
+                        lease.site == null ? " (acquisition stack trace not sampled)" : "" });
+        Metrics.LOGGER.log(Level.WARNING, message, lease.site);
+    }
+
+    /**
+     * @param start acquisition time ({@link System#nanoTime()})
+     * @return {@code true} if a connection acquired at {@code start} is now held
+     * past the threshold or the hard limit (always {@code false} if disabled)
+     */
+    public boolean isHeldTooLong(long start) {
+        long held = System.nanoTime() - start;
+        return threshold > 0 && held >= threshold || hardLimit > 0 && held >= hardLimit;
+    }
+
+    /** @return number of tracked connections */
+    public int size() {
+        return leases.size();
+    }
+
+    /** tracked connection */
+    public final class Lease {
+        final Connection connection;
+        final long start = System.nanoTime();
+        /** acquisition stack trace, {@code null} if not sampled */
+        final Throwable site;
+        volatile boolean reported;
+
+        Lease(Connection connection, Throwable site) {
+            this.connection = connection;
+            this.site = site;
+        }
+
+        /** stop tracking the connection, closed by its holder */
+        public void release() {
+            leases.remove(this);
+        }
+    }
+
+    /** lazily created shared checking thread */
+    private static final class Scanner {
+        static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "jndi-jdbc-leak-detector");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.lang.reflect.Constructor;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingException;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Bounded cache of failed lookups, keyed by JNDI name,
+ * so that a misconfigured name does not run the full
+ * {@code InitialContext} + fallback strategies lookup on every connection.
+ * <p>Entries expire after {@link #TTL_PROPERTY} ms (default 5000, 0 disables
+ * the cache), jittered by ±{@link #JITTER_PROPERTY} (default 0.2) so that
+ * retries from many callers do not all happen at once. At most
+ * {@link #SIZE_PROPERTY} names (default 1000) are kept.
+ * <p>A cached failure is re-thrown as a new exception of the same class
+ * ({@link javax.naming.NameNotFoundException},
+ * {@link java.sql.SQLNonTransientConnectionException}...), with the cached one
+ * as cause, so that callers never share (nor add suppressed exceptions to) a
+ * single instance. A class lacking the usual public constructor is re-thrown
+ * as is, with a fresh stack trace.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class NegativeLookupCache {
+
+    /** System property: failed lookup time to live (ms) */
+    public static final String TTL_PROPERTY = "fr.unistra.di.jdbc.jndi.negativeCache.ttl";
+    /** System property: time to live jitter ratio (0 to 1) */
+    public static final String JITTER_PROPERTY = "fr.unistra.di.jdbc.jndi.negativeCache.jitter";
+    /** System property: maximum number of cached names */
+    public static final String SIZE_PROPERTY = "fr.unistra.di.jdbc.jndi.negativeCache.size";
+
+    private final long ttl;
+    private final double jitter;
+    private final int maxSize;
+
+    private final ConcurrentMap<String, Failure> failures = new ConcurrentHashMap<String, Failure>();
+    private final Random random = new Random();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public NegativeLookupCache() {
+        this(Long.getLong(TTL_PROPERTY, 5000L),
+                getDouble(JITTER_PROPERTY, 0.2),
+                Integer.getInteger(SIZE_PROPERTY, 1000));
+    }
+
+    public NegativeLookupCache(long ttl, double jitter, int maxSize) {
+        this.ttl = ttl;
+        this.jitter = Math.max(0, Math.min(1, jitter));
+        this.maxSize = maxSize;
+    }
+
+    private static double getDouble(String property, double defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * throw a new exception caused by the cached failure for this name, if any and not expired
+     * @param name JNDI name
+     * @throws NamingException caused by the cached JNDI failure
+     * @throws SQLException caused by the cached fallback strategy failure
+     */
+    public void check(String name) throws NamingException, SQLException {
+        if (ttl <= 0)
+            return;
+        Failure failure = failures.get(name);
+        if (failure == null) {
+            misses.incrementAndGet();
+            Metrics.get().cacheMiss("negativeLookup", name);
+            return;
+        }
+        if (failure.expiresAt - System.currentTimeMillis() <= 0) {
+            failures.remove(name, failure);
+            misses.incrementAndGet();
+            Metrics.get().cacheMiss("negativeLookup", name);
+            return;
+        }
+        hits.incrementAndGet();
+        Metrics.get().cacheHit("negativeLookup", name);
+        if (failure.cause instanceof NamingException)
+            throw (NamingException) failure.copy();
+        throw (SQLException) failure.copy();
+    }
+
+    /**
+     * remember a failed lookup
+     * @param name JNDI name
+     * @param cause {@link NamingException} or {@link SQLException}
+     */
+    public void put(String name, Exception cause) {
+        if (ttl <= 0)
+            return;
+        if (failures.size() >= maxSize && !failures.containsKey(name))
+            evict();
+        double factor = 1 + jitter * (2 * random.nextDouble() - 1);
+        failures.put(name, new Failure(cause, System.currentTimeMillis() + (long) (ttl * factor)));
+    }
+
+    /** drop expired entries, or any entry if none expired */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        boolean evicted = false;
+        for (Iterator<Map.Entry<String, Failure>> it = failures.entrySet().iterator(); it.hasNext();)
+            if (it.next().getValue().expiresAt - now <= 0) {
+                it.remove();
+                evicted = true;
+            }
+        Iterator<String> it = failures.keySet().iterator();
+        while (!evicted && failures.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * forget failure cached for this name
+     * @param name JNDI name
+     */
+    public void remove(String name) {
+        failures.remove(name);
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups not found in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of cached names (expired or not)
+     */
+    public int size() {
+        return failures.size();
+    }
+
+    private static final class Failure {
+        final Exception cause;
+        final long expiresAt;
+        /** {@code (String)} constructor of a {@link NamingException}, {@code (String, String, int, Throwable)}
+         * one of a {@link SQLException}, {@code null} if none */
+        private final Constructor<? extends Exception> constructor;
+
+        Failure(Exception cause, long expiresAt) {
+            this.cause = cause;
+            this.expiresAt = expiresAt;
+            Constructor<? extends Exception> found;
+            try {
+                found = cause instanceof NamingException
+                        ? cause.getClass().getConstructor(String.class)
+                        : cause.getClass().getConstructor(String.class, String.class, int.class, Throwable.class);
+            } catch (NoSuchMethodException ex) {
+                found = null;
+            }
+            this.constructor = found;
+        }
+
+        /** @return new exception of the same class, caused by {@link #cause} */
+        Exception copy() {
+            if (constructor != null)
+                try {
+                    if (cause instanceof NamingException) {
+                        NamingException naming = (NamingException) cause;
+                        NamingException ex = (NamingException) constructor.newInstance(naming.getExplanation());
+                        ex.setRootCause(naming);
+                        return ex;
+                    }
+                    SQLException sql = (SQLException) cause;
+                    return constructor.newInstance(sql.getMessage(), sql.getSQLState(),
+                            Integer.valueOf(sql.getErrorCode()), sql);
+                } catch (ReflectiveOperationException ex) {
+                    // not constructible after all
+                } catch (RuntimeException ex) {
+                    // constructor rejecting those arguments
+                }
+            cause.fillInStackTrace();
+            return cause;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.Executor;
+
+import fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Read/write split {@link Connection}: delegates to a replica while
+ * {@link #setReadOnly(boolean) read-only}, to the primary otherwise.
+ * <p>Both sides are {@link JNDIDecoratorProxy} objects, so the primary keeps
+ * its lazy, batching and fetch size options; their physical connections
+ * are only opened when first needed. The replica is chosen by
+ * {@link ReplicaSet#acquire()} on first {@code setReadOnly(true)} and kept
+ * until {@link #close()}.
+ * <p>Auto-commit and transaction isolation are replayed onto a side when
+ * switching to it. Switching is only allowed between transactions:
+ * {@code setReadOnly} throws once a statement was created with auto-commit
+ * off, until {@code commit} or {@code rollback}.
+ * <p> FIXME : not Thread safe !
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see DriverOptions#REPLICAS
+ */
+public class ReadWriteSplitProxy extends ConnectionDecorator {
+
+    private final JNDIDecoratorProxy primary;
+    private final ReplicaSet replicas;
+    /** fetch size policy of replica statements, {@code null} for drivers' defaults */
+    private final FetchPolicy fetchPolicy;
+
+    private JNDIDecoratorProxy replica;
+    /** index of {@link #replica} in {@link #replicas}, -1 if none */
+    private int replicaIndex = -1;
+    /** side last delegated to, {@code null} if none yet */
+    private JNDIDecoratorProxy current;
+    private boolean readOnly;
+    private boolean closed;
+    /** recorded state, {@code null} if not set, replayed when switching sides */
+    private Boolean autoCommit;
+    private Integer transactionIsolation;
+    /** a statement was created with auto-commit off, since last commit or rollback */
+    private boolean inTransaction;
+
+    /**
+     * @param primary read/write {@link javax.sql.DataSource} fetcher
+     * @param replicas read-only {@link javax.sql.DataSource} fetchers
+     */
+    public ReadWriteSplitProxy(LazyDataSourceFetcher primary, ReplicaSet replicas) {
+        this(primary, replicas, null);
+    }
+
+    /**
+     * @param primary read/write {@link javax.sql.DataSource} fetcher
+     * @param replicas read-only {@link javax.sql.DataSource} fetchers
+     * @param fetchPolicy fetch size policy, {@code null} for drivers' defaults
+     */
+    public ReadWriteSplitProxy(LazyDataSourceFetcher primary, ReplicaSet replicas, FetchPolicy fetchPolicy) {
+        this(new JNDIDecoratorProxy(primary, false, null, fetchPolicy), replicas, fetchPolicy);
+    }
+
+    /**
+     * @param primary read/write connection, with its own options
+     * @param replicas read-only {@link javax.sql.DataSource} fetchers
+     * @param fetchPolicy fetch size policy of replica statements,
+     * {@code null} for drivers' defaults
+     */
+    public ReadWriteSplitProxy(JNDIDecoratorProxy primary, ReplicaSet replicas, FetchPolicy fetchPolicy) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.fetchPolicy = fetchPolicy;
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#getDelegate()
+     */
+    @Override
+    protected Connection getDelegate() throws SQLException {
+        if (closed)
+            throw new SQLNonTransientConnectionException("Connection is closed", "08003");
+        JNDIDecoratorProxy side = primary;
+        if (readOnly) {
+            if (replica == null) {
+                replicaIndex = replicas.acquire();
+                replica = new JNDIDecoratorProxy(replicas.get(replicaIndex), false, null, fetchPolicy);
+                replica.setReadOnly(true);
+            }
+            side = replica;
+        }
+        if (side != current) {
+            if (autoCommit != null)
+                side.setAutoCommit(autoCommit.booleanValue());
+            if (transactionIsolation != null)
+                side.setTransactionIsolation(transactionIsolation.intValue());
+            current = side;
+        }
+        return side;
+    }
+
+    /** note a transaction is open, if auto-commit is off */
+    private void begin() throws SQLException {
+        if (!inTransaction && !current.getAutoCommit())
+            inTransaction = true;
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#decorateStatement(java.sql.Statement)
+     */
+    @Override
+    protected Statement decorateStatement(Statement statement) throws SQLException {
+        begin();
+        return super.decorateStatement(statement);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#decoratePreparedStatement(java.sql.PreparedStatement, java.lang.String)
+     */
+    @Override
+    protected PreparedStatement decoratePreparedStatement(PreparedStatement statement, String sql) throws SQLException {
+        begin();
+        return super.decoratePreparedStatement(statement, sql);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#decorateCallableStatement(java.sql.CallableStatement, java.lang.String)
+     */
+    @Override
+    protected CallableStatement decorateCallableStatement(CallableStatement statement, String sql) throws SQLException {
+        begin();
+        return super.decorateCallableStatement(statement, sql);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setAutoCommit(boolean)
+     */
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        super.setAutoCommit(autoCommit);
+        this.autoCommit = Boolean.valueOf(autoCommit);
+        if (autoCommit)
+            inTransaction = false;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setTransactionIsolation(int)
+     */
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        super.setTransactionIsolation(level);
+        this.transactionIsolation = Integer.valueOf(level);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#commit()
+     */
+    @Override
+    public void commit() throws SQLException {
+        super.commit();
+        inTransaction = false;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#rollback()
+     */
+    @Override
+    public void rollback() throws SQLException {
+        super.rollback();
+        inTransaction = false;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#setReadOnly(boolean)
+     */
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        Metrics.get().call("setReadOnly");
+        if (closed)
+            throw new SQLNonTransientConnectionException("Connection is closed", "08003");
+        if (readOnly != this.readOnly && inTransaction)
+            throw new SQLException("cannot switch to the " + (readOnly ? "replica" : "primary")
+                    + " within a transaction, commit or rollback first", "25001");
+        this.readOnly = readOnly;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#isReadOnly()
+     */
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        Metrics.get().call("isReadOnly");
+        return readOnly;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#close()
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            primary.close();
+        } finally {
+            if (replica != null) {
+                replicas.release(replicaIndex);
+                replica.close();
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#abort(java.util.concurrent.Executor)
+     */
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        Metrics.get().call("abort");
+        if (executor == null)
+            throw new SQLException("executor is null");
+        if (closed)
+            return;
+        closed = true;
+        try {
+            primary.abort(executor);
+        } finally {
+            if (replica != null) {
+                replicas.release(replicaIndex);
+                replica.abort(executor);
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Connection#isClosed()
+     */
+    @Override
+    public boolean isClosed() throws SQLException {
+        Metrics.get().call("isClosed");
+        return closed;
+    }
+}
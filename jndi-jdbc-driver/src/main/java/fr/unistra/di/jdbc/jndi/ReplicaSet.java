@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Read-only replicas of a primary {@link javax.sql.DataSource},
+ * with power-of-two-choices least-outstanding selection: two replicas
+ * are picked at random, the one with fewer connections in use wins.
+ * <p>This balances load nearly as well as a full least-outstanding scan,
+ * without any shared lock nor full scan.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see ReadWriteSplitProxy
+ */
+public class ReplicaSet {
+
+    private final LazyDataSourceFetcher[] replicas;
+    /** connections in use, per replica (same index) */
+    private final AtomicIntegerArray outstanding;
+
+    /**
+     * @param replicas replica fetchers, at least one
+     */
+    public ReplicaSet(LazyDataSourceFetcher[] replicas) {
+        if (replicas.length == 0)
+            throw new IllegalArgumentException("no replica");
+        this.replicas = replicas.clone();
+        this.outstanding = new AtomicIntegerArray(replicas.length);
+    }
+
+    /**
+     * choose a replica, counted as in use until {@link #release(int)}
+     * @return replica index
+     */
+    public int acquire() {
+        int chosen = 0;
+        int n = replicas.length;
+        if (n > 1) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int a = random.nextInt(n);
+            int b = random.nextInt(n - 1);
+            if (b >= a)
+                b++;
+            chosen = outstanding.get(a) <= outstanding.get(b) ? a : b;
+        }
+        outstanding.incrementAndGet(chosen);
+        return chosen;
+    }
+
+    /**
+     * @param index replica index given by {@link #acquire()}
+     */
+    public void release(int index) {
+        outstanding.decrementAndGet(index);
+    }
+
+    /**
+     * @param index replica index
+     * @return replica fetcher
+     */
+    public LazyDataSourceFetcher get(int index) {
+        return replicas[index];
+    }
+
+    /**
+     * @param index replica index
+     * @return number of connections in use on this replica
+     */
+    public int getOutstanding(int index) {
+        return outstanding.get(index);
+    }
+
+    /**
+     * @return number of replicas
+     */
+    public int size() {
+        return replicas.length;
+    }
+}
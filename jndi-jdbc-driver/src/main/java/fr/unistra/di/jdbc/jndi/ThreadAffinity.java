@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator;
+
+/**
+ * Thread affinity of connections ({@link DriverOptions#AFFINITY}): while
+ * a connection is open on a thread with auto-commit off, nested connects
+ * of this thread to the same JNDI name (and credentials) get a handle on
+ * that same connection instead of a new one, joining its unit of work.
+ * <p>Handles are reference counted: the shared connection is closed by
+ * the last {@link Connection#close()}, whatever the order. Anything else
+ * (commit, rollback, auto-commit...) applies to the shared connection.
+ * <p>A connection never closed (leaked) would be joined by any later task
+ * run by the same pooled thread: connections held longer than the
+ * {@link LeakDetector} allows are no longer joined, and {@link #clear()}
+ * should be called once a task is done.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class ThreadAffinity {
+
+    /** open shared connections of the current thread, by fetcher */
+    private static final ThreadLocal<Map<LazyDataSourceFetcher, Shared>> shared =
+            new ThreadLocal<Map<LazyDataSourceFetcher, Shared>>();
+
+    private ThreadAffinity() { }
+
+    /**
+     * @param fetcher connection {@link javax.sql.DataSource} fetcher
+     * @return a new handle on the connection open by this thread
+     * for {@code fetcher}, {@code null} if none or in auto-commit mode
+     */
+    public static Connection join(LazyDataSourceFetcher fetcher) {
+        Map<LazyDataSourceFetcher, Shared> open = shared.get();
+        Shared current = open == null ? null : open.get(fetcher);
+        if (current == null)
+            return null;
+        if (current.fetcher.getLeakDetector().isHeldTooLong(current.start)) {
+            current.forget();
+            return null;
+        }
+        try {
+            if (current.connection.isClosed() || current.connection.getAutoCommit())
+                return null;
+        } catch (SQLException ex) {
+            return null;
+        }
+        current.references++;
+        return new Handle(current);
+    }
+
+    /**
+     * stop sharing the connections open by this thread, so that they are
+     * never joined by the next tasks of a pooled thread (the connections
+     * themselves are left to their holders)
+     */
+    public static void clear() {
+        shared.remove();
+    }
+
+    /**
+     * share a new connection with nested connects of this thread
+     * @param fetcher connection {@link javax.sql.DataSource} fetcher
+     * @param connection new connection
+     * @return first handle on {@code connection}
+     */
+    public static Connection open(LazyDataSourceFetcher fetcher, Connection connection) {
+        Map<LazyDataSourceFetcher, Shared> open = shared.get();
+        if (open == null) {
+            open = new HashMap<LazyDataSourceFetcher, Shared>(2);
+            shared.set(open);
+        }
+        Shared created = new Shared(fetcher, connection, open);
+        open.put(fetcher, created);
+        return new Handle(created);
+    }
+
+    /** connection shared by the handles of one thread */
+    private static final class Shared {
+        final LazyDataSourceFetcher fetcher;
+        final Connection connection;
+        /** thread owning this connection */
+        final Thread owner = Thread.currentThread();
+        /** {@link #shared} map of {@link #owner} */
+        final Map<LazyDataSourceFetcher, Shared> open;
+        /** opening time ({@link System#nanoTime()}) */
+        final long start = System.nanoTime();
+        int references = 1;
+
+        Shared(LazyDataSourceFetcher fetcher, Connection connection, Map<LazyDataSourceFetcher, Shared> open) {
+            this.fetcher = fetcher;
+            this.connection = connection;
+            this.open = open;
+        }
+
+        /** give back one handle, closing the connection with the last one */
+        void release() throws SQLException {
+            if (--references > 0)
+                return;
+            // closed from another thread: stale entry, skipped by join()
+            if (Thread.currentThread() == owner)
+                forget();
+            connection.close();
+        }
+
+        /** abort the connection, whatever the other handles on it */
+        void abort(Executor executor) throws SQLException {
+            if (Thread.currentThread() == owner)
+                forget();
+            connection.abort(executor);
+        }
+
+        /** stop sharing this connection with nested connects of {@link #owner} */
+        void forget() {
+            if (open.get(fetcher) != this)
+                return;
+            open.remove(fetcher);
+            if (open.isEmpty() && shared.get() == open)
+                shared.remove();
+        }
+    }
+
+    /** reference counted {@link Connection} handle */
+    private static final class Handle extends ConnectionDecorator {
+        private final Shared shared;
+        private boolean closed;
+
+        Handle(Shared shared) {
+            this.shared = shared;
+        }
+
+        /* (non-Javadoc)
+         * @see fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator#getDelegate()
+         */
+        @Override
+        protected Connection getDelegate() throws SQLException {
+            if (closed)
+                throw new SQLNonTransientConnectionException("Connection is closed", "08003");
+            return shared.connection;
+        }
+
+        /* (non-Javadoc)
+         * @see java.sql.Connection#close()
+         */
+        @Override
+        public void close() throws SQLException {
+            if (closed)
+                return;
+            closed = true;
+            shared.release();
+        }
+
+        /* (non-Javadoc)
+         * @see java.sql.Connection#abort(java.util.concurrent.Executor)
+         */
+        @Override
+        public void abort(Executor executor) throws SQLException {
+            called("abort");
+            if (executor == null)
+                throw new SQLException("executor is null");
+            if (closed)
+                return;
+            closed = true;
+            shared.abort(executor);
+        }
+
+        /* (non-Javadoc)
+         * @see java.sql.Connection#isClosed()
+         */
+        @Override
+        public boolean isClosed() throws SQLException {
+            return closed || shared.connection.isClosed();
+        }
+    }
+}
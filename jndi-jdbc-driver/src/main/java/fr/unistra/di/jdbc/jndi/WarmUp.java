@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+import fr.unistra.di.jdbc.jndi.tomcat.ConnectionPool;
+import fr.unistra.di.jdbc.jndi.tomcat.PooledDriverDatasource;
+
+/**
+ * Background warm-up of {@link LazyDataSourceFetcher} objects, so that
+ * JNDI lookup, server.xml parsing, driver class loading and first physical
+ * connections overlap with application startup instead of delaying
+ * the first request.
+ * <p>Warming up a fetcher resolves its {@link DataSource}, opens the
+ * {@code minIdle} connections of its {@link ConnectionPool} (if any), then
+ * checks one connection with the pool {@code validationQuery}
+ * (or {@link Connection#isValid(int)}). Failures are only logged:
+ * the first real connection will report them.
+ * <p>Enabled either for a list of URLs, warmed up when the {@link Driver}
+ * class is initialized (comma separated {@code jdbc:jndi:} URLs in the
+ * {@link #PROPERTY} system property), or per URL with the
+ * {@link DriverOptions#WARMUP} parameter
+ * ({@code jdbc:jndi:java:comp/env/jdbc/myDB?warmup=true}) on first connect.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class WarmUp {
+
+    /** System property: comma separated jdbc:jndi: URLs to warm up at driver registration */
+    public static final String PROPERTY = "fr.unistra.di.jdbc.jndi.warmup";
+
+    /** seconds, for {@link Connection#isValid(int)} */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jndi-jdbc-warmup");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /** warm-up of each fetcher, done once */
+    private static final ConcurrentMap<LazyDataSourceFetcher, Future<Boolean>> warmed =
+            new ConcurrentHashMap<LazyDataSourceFetcher, Future<Boolean>>();
+
+    private WarmUp() { }
+
+    /**
+     * warm up, in the background, every URL of the {@link #PROPERTY} list
+     * @param driver driver resolving URLs
+     * @param urls comma separated jdbc:jndi: URLs, may be {@code null}
+     */
+    static void start(final Driver driver, String urls) {
+        if (urls == null || urls.trim().length() == 0)
+            return;
+        for (final String url : urls.trim().split("\\s*,\\s*"))
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        warmUp(driver.getFetcher(url)).get();
+                    } catch (Exception ex) {
+                        Metrics.LOGGER.log(Level.WARNING, "warm-up of " + url + " failed", ex);
+                    }
+                }
+            });
+    }
+
+    /**
+     * warm up this fetcher in the background, unless already done
+     * @param fetcher fetcher to warm up
+     * @return {@code true} once warmed up, {@code false} if it failed
+     */
+    public static Future<Boolean> warmUp(final LazyDataSourceFetcher fetcher) {
+        Future<Boolean> future = warmed.get(fetcher);
+        if (future != null)
+            return future;
+        FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+            public Boolean call() {
+                try {
+                    run(fetcher);
+                    return Boolean.TRUE;
+                } catch (Exception ex) {
+                    Metrics.LOGGER.log(Level.WARNING, "warm-up of " + fetcher.getName() + " failed", ex);
+                    return Boolean.FALSE;
+                }
+            }
+        });
+        future = warmed.putIfAbsent(fetcher, task);
+        if (future != null)
+            return future;
+        executor.execute(task);
+        return task;
+    }
+
+    private static void run(LazyDataSourceFetcher fetcher) throws Exception {
+        DataSource ds = fetcher.getDataSource();
+        String validationQuery = null;
+        if (ds instanceof PooledDriverDatasource) {
+            ConnectionPool pool = ((PooledDriverDatasource) ds).getPool();
+            pool.fill(pool.getMinIdle());
+            validationQuery = pool.getValidationQuery();
+        }
+        Connection conn = ds.getConnection();
+        try {
+            if (validationQuery == null) {
+                if (!conn.isValid(VALIDATION_TIMEOUT))
+                    throw new SQLException("invalid connection to " + fetcher.getName());
+            } else {
+                Statement stmt = conn.createStatement();
+                try {
+                    stmt.execute(validationQuery);
+                } finally {
+                    stmt.close();
+                }
+            }
+        } finally {
+            conn.close();
+        }
+        Metrics.LOGGER.fine("warmed up " + fetcher.getName());
+    }
+}
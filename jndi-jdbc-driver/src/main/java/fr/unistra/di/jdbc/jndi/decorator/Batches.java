@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.SQLException;
+
+/**
+ * Batching state of one connection: single-row updates coalesced into
+ * batches by its {@link BatchingPreparedStatement}s, and chunk size of
+ * explicit batches.
+ * <p>Only consecutive updates of one statement are coalesced, so that
+ * statements are executed in order: they are executed when reaching
+ * {@link #getBatchSize()}, before any other statement execution
+ * (including an update of another statement), and before commit
+ * (see {@link #flush()}).
+ * <p>Not thread safe, as the connection it belongs to.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see BatchingPreparedStatement
+ * @see BatchingStatement
+ */
+public class Batches {
+
+    private final int batchSize;
+    private final int chunkSize;
+    /** statement whose updates are coalesced, {@code null} if none */
+    private BatchingPreparedStatement pending;
+
+    /**
+     * @param batchSize number of single-row updates coalesced before
+     * being executed, 0 not to coalesce
+     * @param chunkSize number of explicitly batched commands executed
+     * at once, 0 not to chunk
+     */
+    public Batches(int batchSize, int chunkSize) {
+        this.batchSize = Math.max(0, batchSize);
+        this.chunkSize = Math.max(0, chunkSize);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /** @return {@code true} if some updates are coalesced */
+    public boolean isPending() {
+        return pending != null;
+    }
+
+    /**
+     * execute coalesced updates
+     * @throws SQLException from the batch
+     */
+    public void flush() throws SQLException {
+        if (pending != null)
+            pending.flushCoalesced();
+    }
+
+    /** drop every coalesced update (rollback) */
+    public void discard() throws SQLException {
+        if (pending != null)
+            pending.discardCoalesced();
+    }
+
+    void pending(BatchingPreparedStatement statement) {
+        pending = statement;
+    }
+
+    void done(BatchingPreparedStatement statement) {
+        if (pending == statement)
+            pending = null;
+    }
+}
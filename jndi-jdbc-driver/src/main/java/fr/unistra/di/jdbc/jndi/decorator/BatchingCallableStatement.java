@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link CallableStatement} decorator executing updates coalesced on its
+ * connection before each of its own executions: a procedure may read
+ * (or depend on) rows of pending updates.
+ * <p>Callable statements never coalesce their own updates.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see Batches
+ */
+public class BatchingCallableStatement extends CallableStatementDecorator {
+
+    private final Batches batches;
+
+    public BatchingCallableStatement(Connection connection, CallableStatement callableStatement, Batches batches) {
+        super(connection, callableStatement);
+        this.batches = batches;
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#executeQuery()
+     */
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        batches.flush();
+        return super.executeQuery();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#executeUpdate()
+     */
+    @Override
+    public int executeUpdate() throws SQLException {
+        batches.flush();
+        return super.executeUpdate();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#execute()
+     */
+    @Override
+    public boolean execute() throws SQLException {
+        batches.flush();
+        return super.execute();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeBatch()
+     */
+    @Override
+    public int[] executeBatch() throws SQLException {
+        batches.flush();
+        return super.executeBatch();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeQuery(java.lang.String)
+     */
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        batches.flush();
+        return super.executeQuery(sql);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String)
+     */
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String, int)
+     */
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql, autoGeneratedKeys);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String, int[])
+     */
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql, columnIndexes);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String, java.lang.String[])
+     */
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql, columnNames);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String)
+     */
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        batches.flush();
+        return super.execute(sql);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String, int)
+     */
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        batches.flush();
+        return super.execute(sql, autoGeneratedKeys);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String, int[])
+     */
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        batches.flush();
+        return super.execute(sql, columnIndexes);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String, java.lang.String[])
+     */
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        batches.flush();
+        return super.execute(sql, columnNames);
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link PreparedStatement} decorator batching its updates.
+ * <p>Out of auto-commit mode, {@link #executeUpdate()} only adds the current
+ * parameters to the batch and answers 1 (a single row update is assumed,
+ * the actual count is not observable, see
+ * {@link fr.unistra.di.jdbc.jndi.DriverOptions#BATCH_SIZE}):
+ * coalesced updates are executed by {@link Batches#getBatchSize()}, and
+ * before anything else is executed on the connection, see {@link Batches}.
+ * <p>Explicit batches ({@link #addBatch()}) are executed
+ * by {@link Batches#getChunkSize()} commands, so that the driver does not
+ * keep them all, {@link #executeBatch()} executing the last chunk and
+ * answering update counts of the whole batch.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see Batches
+ */
+public class BatchingPreparedStatement extends PreparedStatementDecorator {
+
+    private final Batches batches;
+    private final Chunks chunks;
+    /** number of coalesced updates */
+    private int coalesced;
+    /** {@code true} while an explicit batch is being built */
+    private boolean batching;
+
+    public BatchingPreparedStatement(Connection connection, PreparedStatement preparedStatement, Batches batches) {
+        super(connection, preparedStatement);
+        this.batches = batches;
+        this.chunks = new Chunks(batches.getChunkSize());
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#executeUpdate()
+     */
+    @Override
+    public int executeUpdate() throws SQLException {
+        if (batches.getBatchSize() == 0 || batching || connection.getAutoCommit()) {
+            batches.flush();
+            return super.executeUpdate();
+        }
+        // updates of another statement come first: statements stay in order
+        if (coalesced == 0)
+            batches.flush();
+        super.addBatch();
+        if (coalesced++ == 0)
+            batches.pending(this);
+        if (coalesced >= batches.getBatchSize())
+            batches.flush();
+        return 1;
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#executeQuery()
+     */
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        batches.flush();
+        return super.executeQuery();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#execute()
+     */
+    @Override
+    public boolean execute() throws SQLException {
+        batches.flush();
+        return super.execute();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#addBatch()
+     */
+    @Override
+    public void addBatch() throws SQLException {
+        if (coalesced > 0)
+            batches.flush();
+        batching = true;
+        super.addBatch();
+        if (chunks.add())
+            try {
+                chunks.executed(super.executeBatch());
+            } catch (BatchUpdateException ex) {
+                batching = false;
+                throw chunks.failed(ex);
+            }
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeBatch()
+     */
+    @Override
+    public int[] executeBatch() throws SQLException {
+        batches.flush();
+        batching = false;
+        try {
+            return chunks.result(super.executeBatch());
+        } catch (BatchUpdateException ex) {
+            throw chunks.failed(ex);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#clearBatch()
+     */
+    @Override
+    public void clearBatch() throws SQLException {
+        if (coalesced > 0)
+            batches.flush();
+        batching = false;
+        chunks.clear();
+        super.clearBatch();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#getGeneratedKeys()
+     */
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        if (coalesced > 0)
+            batches.flush();
+        return super.getGeneratedKeys();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#close()
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (coalesced > 0)
+                batches.flush();
+        } finally {
+            batches.done(this);
+            super.close();
+        }
+    }
+
+    /** execute coalesced updates */
+    void flushCoalesced() throws SQLException {
+        if (coalesced == 0)
+            return;
+        coalesced = 0;
+        batches.done(this);
+        super.executeBatch();
+    }
+
+    /** drop coalesced updates */
+    void discardCoalesced() throws SQLException {
+        if (coalesced == 0)
+            return;
+        coalesced = 0;
+        batches.done(this);
+        super.clearBatch();
+    }
+}
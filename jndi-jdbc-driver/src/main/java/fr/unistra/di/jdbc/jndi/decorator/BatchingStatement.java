@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * {@link Statement} decorator executing explicit batches
+ * by {@link Batches#getChunkSize()} commands, and executing updates
+ * coalesced on its connection before its own statements.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see Batches
+ */
+public class BatchingStatement extends StatementDecorator {
+
+    private final Batches batches;
+    private final Chunks chunks;
+
+    public BatchingStatement(Connection connection, Statement statement, Batches batches) {
+        super(connection, statement);
+        this.batches = batches;
+        this.chunks = new Chunks(batches.getChunkSize());
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#addBatch(java.lang.String)
+     */
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        super.addBatch(sql);
+        if (chunks.add()) {
+            batches.flush();
+            try {
+                chunks.executed(super.executeBatch());
+            } catch (BatchUpdateException ex) {
+                throw chunks.failed(ex);
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeBatch()
+     */
+    @Override
+    public int[] executeBatch() throws SQLException {
+        batches.flush();
+        try {
+            return chunks.result(super.executeBatch());
+        } catch (BatchUpdateException ex) {
+            throw chunks.failed(ex);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#clearBatch()
+     */
+    @Override
+    public void clearBatch() throws SQLException {
+        chunks.clear();
+        super.clearBatch();
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeQuery(java.lang.String)
+     */
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        batches.flush();
+        return super.executeQuery(sql);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String)
+     */
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String, int)
+     */
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql, autoGeneratedKeys);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String, int[])
+     */
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql, columnIndexes);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#executeUpdate(java.lang.String, java.lang.String[])
+     */
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        batches.flush();
+        return super.executeUpdate(sql, columnNames);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String)
+     */
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        batches.flush();
+        return super.execute(sql);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String, int)
+     */
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        batches.flush();
+        return super.execute(sql, autoGeneratedKeys);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String, int[])
+     */
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        batches.flush();
+        return super.execute(sql, columnIndexes);
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.decorator.StatementDecorator#execute(java.lang.String, java.lang.String[])
+     */
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        batches.flush();
+        return super.execute(sql, columnNames);
+    }
+}
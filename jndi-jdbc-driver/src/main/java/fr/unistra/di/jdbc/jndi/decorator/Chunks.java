@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.BatchUpdateException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * update counts of the already executed chunks of an explicit batch
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+final class Chunks {
+
+    private final int size;
+    private final List<int[]> executed = new ArrayList<int[]>();
+    private int added;
+
+    Chunks(int size) {
+        this.size = size;
+    }
+
+    /** @return {@code true} if the current chunk is full and must be executed */
+    boolean add() {
+        return size > 0 && ++added >= size;
+    }
+
+    /** @param counts update counts of the chunk just executed */
+    void executed(int[] counts) {
+        executed.add(counts);
+        added = 0;
+    }
+
+    /**
+     * @param last update counts of the last chunk
+     * @return update counts of the whole batch
+     */
+    int[] result(int[] last) {
+        if (executed.isEmpty()) {
+            added = 0;
+            return last;
+        }
+        int length = last == null ? 0 : last.length;
+        for (int[] counts : executed)
+            length += counts.length;
+        int[] result = new int[length];
+        int pos = 0;
+        for (int[] counts : executed) {
+            System.arraycopy(counts, 0, result, pos, counts.length);
+            pos += counts.length;
+        }
+        if (last != null)
+            System.arraycopy(last, 0, result, pos, last.length);
+        clear();
+        return result;
+    }
+
+    /**
+     * @param ex failure of a chunk
+     * @return failure reporting update counts of the whole batch
+     */
+    BatchUpdateException failed(BatchUpdateException ex) {
+        if (executed.isEmpty()) {
+            clear();
+            return ex;
+        }
+        return new BatchUpdateException(ex.getMessage(), ex.getSQLState(), ex.getErrorCode(),
+                result(ex.getUpdateCounts()), ex);
+    }
+
+    void clear() {
+        executed.clear();
+        added = 0;
+    }
+}
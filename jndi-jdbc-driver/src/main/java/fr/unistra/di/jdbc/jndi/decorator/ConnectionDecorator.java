@@ -0,0 +1,377 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Connection} decorator delegating each call
+ * to a {@link #getDelegate() delegate} with direct (non reflective) calls.
+ * <p>{@link Statement}, {@link PreparedStatement}, {@link CallableStatement}
+ * and {@link DatabaseMetaData} objects are decorated too, so that their
+ * {@code getConnection()} returns this decorator and not the delegate.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public abstract class ConnectionDecorator implements Connection {
+
+    /**
+     * @return {@link Connection} to delegate on
+     * @throws SQLException if not available
+     */
+    protected abstract Connection getDelegate() throws SQLException;
+
+    /**
+     * hook called before each {@link Connection} method,
+     * for instrumentation purpose (does nothing by default)
+     * @param method called method name
+     */
+    protected void called(String method) {
+    }
+
+    /**
+     * @param statement delegate's {@link Statement}
+     * @return decorated {@link Statement}
+     */
+    protected Statement decorateStatement(Statement statement) throws SQLException {
+        return new StatementDecorator(this, statement);
+    }
+
+    /**
+     * @param statement delegate's {@link PreparedStatement}
+     * @param sql statement SQL
+     * @return decorated {@link PreparedStatement}
+     */
+    protected PreparedStatement decoratePreparedStatement(PreparedStatement statement, String sql) throws SQLException {
+        return new PreparedStatementDecorator(this, statement);
+    }
+
+    /**
+     * @param statement delegate's {@link CallableStatement}
+     * @param sql statement SQL
+     * @return decorated {@link CallableStatement}
+     */
+    protected CallableStatement decorateCallableStatement(CallableStatement statement, String sql) throws SQLException {
+        return new CallableStatementDecorator(this, statement);
+    }
+
+    /**
+     * @param metaData delegate's {@link DatabaseMetaData}
+     * @return decorated {@link DatabaseMetaData}
+     */
+    protected DatabaseMetaData decorateMetaData(DatabaseMetaData metaData) throws SQLException {
+        return new DatabaseMetaDataDecorator(this, metaData);
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return getDelegate().unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || getDelegate().isWrapperFor(iface);
+    }
+
+    public Statement createStatement() throws SQLException {
+        called("createStatement");
+        return decorateStatement(getDelegate().createStatement());
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        called("prepareStatement");
+        return decoratePreparedStatement(getDelegate().prepareStatement(sql), sql);
+    }
+
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        called("prepareCall");
+        return decorateCallableStatement(getDelegate().prepareCall(sql), sql);
+    }
+
+    public String nativeSQL(String sql) throws SQLException {
+        called("nativeSQL");
+        return getDelegate().nativeSQL(sql);
+    }
+
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        called("setAutoCommit");
+        getDelegate().setAutoCommit(autoCommit);
+    }
+
+    public boolean getAutoCommit() throws SQLException {
+        called("getAutoCommit");
+        return getDelegate().getAutoCommit();
+    }
+
+    public void commit() throws SQLException {
+        called("commit");
+        getDelegate().commit();
+    }
+
+    public void rollback() throws SQLException {
+        called("rollback");
+        getDelegate().rollback();
+    }
+
+    public void close() throws SQLException {
+        called("close");
+        getDelegate().close();
+    }
+
+    public boolean isClosed() throws SQLException {
+        called("isClosed");
+        return getDelegate().isClosed();
+    }
+
+    public DatabaseMetaData getMetaData() throws SQLException {
+        called("getMetaData");
+        return decorateMetaData(getDelegate().getMetaData());
+    }
+
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        called("setReadOnly");
+        getDelegate().setReadOnly(readOnly);
+    }
+
+    public boolean isReadOnly() throws SQLException {
+        called("isReadOnly");
+        return getDelegate().isReadOnly();
+    }
+
+    public void setCatalog(String catalog) throws SQLException {
+        called("setCatalog");
+        getDelegate().setCatalog(catalog);
+    }
+
+    public String getCatalog() throws SQLException {
+        called("getCatalog");
+        return getDelegate().getCatalog();
+    }
+
+    public void setTransactionIsolation(int level) throws SQLException {
+        called("setTransactionIsolation");
+        getDelegate().setTransactionIsolation(level);
+    }
+
+    public int getTransactionIsolation() throws SQLException {
+        called("getTransactionIsolation");
+        return getDelegate().getTransactionIsolation();
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        called("getWarnings");
+        return getDelegate().getWarnings();
+    }
+
+    public void clearWarnings() throws SQLException {
+        called("clearWarnings");
+        getDelegate().clearWarnings();
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        called("createStatement");
+        return decorateStatement(getDelegate().createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        called("prepareStatement");
+        return decoratePreparedStatement(getDelegate().prepareStatement(sql, resultSetType, resultSetConcurrency), sql);
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        called("prepareCall");
+        return decorateCallableStatement(getDelegate().prepareCall(sql, resultSetType, resultSetConcurrency), sql);
+    }
+
+    public Map<String,Class<?>> getTypeMap() throws SQLException {
+        called("getTypeMap");
+        return getDelegate().getTypeMap();
+    }
+
+    public void setTypeMap(Map<String,Class<?>> map) throws SQLException {
+        called("setTypeMap");
+        getDelegate().setTypeMap(map);
+    }
+
+    public void setHoldability(int holdability) throws SQLException {
+        called("setHoldability");
+        getDelegate().setHoldability(holdability);
+    }
+
+    public int getHoldability() throws SQLException {
+        called("getHoldability");
+        return getDelegate().getHoldability();
+    }
+
+    public Savepoint setSavepoint() throws SQLException {
+        called("setSavepoint");
+        return getDelegate().setSavepoint();
+    }
+
+    public Savepoint setSavepoint(String name) throws SQLException {
+        called("setSavepoint");
+        return getDelegate().setSavepoint(name);
+    }
+
+    public void rollback(Savepoint savepoint) throws SQLException {
+        called("rollback");
+        getDelegate().rollback(savepoint);
+    }
+
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        called("releaseSavepoint");
+        getDelegate().releaseSavepoint(savepoint);
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        called("createStatement");
+        return decorateStatement(getDelegate().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        called("prepareStatement");
+        return decoratePreparedStatement(getDelegate().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql);
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        called("prepareCall");
+        return decorateCallableStatement(getDelegate().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        called("prepareStatement");
+        return decoratePreparedStatement(getDelegate().prepareStatement(sql, autoGeneratedKeys), sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        called("prepareStatement");
+        return decoratePreparedStatement(getDelegate().prepareStatement(sql, columnIndexes), sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        called("prepareStatement");
+        return decoratePreparedStatement(getDelegate().prepareStatement(sql, columnNames), sql);
+    }
+
+    public Clob createClob() throws SQLException {
+        called("createClob");
+        return getDelegate().createClob();
+    }
+
+    public Blob createBlob() throws SQLException {
+        called("createBlob");
+        return getDelegate().createBlob();
+    }
+
+    public NClob createNClob() throws SQLException {
+        called("createNClob");
+        return getDelegate().createNClob();
+    }
+
+    public SQLXML createSQLXML() throws SQLException {
+        called("createSQLXML");
+        return getDelegate().createSQLXML();
+    }
+
+    public boolean isValid(int timeout) throws SQLException {
+        called("isValid");
+        return getDelegate().isValid(timeout);
+    }
+
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        called("setClientInfo");
+        Connection delegate;
+        try {
+            delegate = getDelegate();
+        } catch (SQLException ex) {
+            throw new SQLClientInfoException(ex.getMessage(), ex.getSQLState(), ex.getErrorCode(), null, ex);
+        }
+        delegate.setClientInfo(name, value);
+    }
+
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        called("setClientInfo");
+        Connection delegate;
+        try {
+            delegate = getDelegate();
+        } catch (SQLException ex) {
+            throw new SQLClientInfoException(ex.getMessage(), ex.getSQLState(), ex.getErrorCode(), null, ex);
+        }
+        delegate.setClientInfo(properties);
+    }
+
+    public String getClientInfo(String name) throws SQLException {
+        called("getClientInfo");
+        return getDelegate().getClientInfo(name);
+    }
+
+    public Properties getClientInfo() throws SQLException {
+        called("getClientInfo");
+        return getDelegate().getClientInfo();
+    }
+
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        called("createArrayOf");
+        return getDelegate().createArrayOf(typeName, elements);
+    }
+
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        called("createStruct");
+        return getDelegate().createStruct(typeName, attributes);
+    }
+
+    public void setSchema(String schema) throws SQLException {
+        called("setSchema");
+        getDelegate().setSchema(schema);
+    }
+
+    public String getSchema() throws SQLException {
+        called("getSchema");
+        return getDelegate().getSchema();
+    }
+
+    public void abort(Executor executor) throws SQLException {
+        called("abort");
+        getDelegate().abort(executor);
+    }
+
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        called("setNetworkTimeout");
+        getDelegate().setNetworkTimeout(executor, milliseconds);
+    }
+
+    public int getNetworkTimeout() throws SQLException {
+        called("getNetworkTimeout");
+        return getDelegate().getNetworkTimeout();
+    }
+}
@@ -0,0 +1,746 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.RowIdLifetime;
+import java.sql.SQLException;
+
+/**
+ * {@link DatabaseMetaData} decorator, delegating with direct calls
+ * and returning its decorating {@link Connection}
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see ConnectionDecorator
+ */
+public class DatabaseMetaDataDecorator implements DatabaseMetaData {
+
+    protected final Connection connection;
+    private final DatabaseMetaData metaData;
+
+    public DatabaseMetaDataDecorator(Connection connection, DatabaseMetaData metaData) {
+        this.connection = connection;
+        this.metaData = metaData;
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return metaData.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || metaData.isWrapperFor(iface);
+    }
+
+    public boolean allProceduresAreCallable() throws SQLException {
+        return metaData.allProceduresAreCallable();
+    }
+
+    public boolean allTablesAreSelectable() throws SQLException {
+        return metaData.allTablesAreSelectable();
+    }
+
+    public String getURL() throws SQLException {
+        return metaData.getURL();
+    }
+
+    public String getUserName() throws SQLException {
+        return metaData.getUserName();
+    }
+
+    public boolean isReadOnly() throws SQLException {
+        return metaData.isReadOnly();
+    }
+
+    public boolean nullsAreSortedHigh() throws SQLException {
+        return metaData.nullsAreSortedHigh();
+    }
+
+    public boolean nullsAreSortedLow() throws SQLException {
+        return metaData.nullsAreSortedLow();
+    }
+
+    public boolean nullsAreSortedAtStart() throws SQLException {
+        return metaData.nullsAreSortedAtStart();
+    }
+
+    public boolean nullsAreSortedAtEnd() throws SQLException {
+        return metaData.nullsAreSortedAtEnd();
+    }
+
+    public String getDatabaseProductName() throws SQLException {
+        return metaData.getDatabaseProductName();
+    }
+
+    public String getDatabaseProductVersion() throws SQLException {
+        return metaData.getDatabaseProductVersion();
+    }
+
+    public String getDriverName() throws SQLException {
+        return metaData.getDriverName();
+    }
+
+    public String getDriverVersion() throws SQLException {
+        return metaData.getDriverVersion();
+    }
+
+    public int getDriverMajorVersion() {
+        return metaData.getDriverMajorVersion();
+    }
+
+    public int getDriverMinorVersion() {
+        return metaData.getDriverMinorVersion();
+    }
+
+    public boolean usesLocalFiles() throws SQLException {
+        return metaData.usesLocalFiles();
+    }
+
+    public boolean usesLocalFilePerTable() throws SQLException {
+        return metaData.usesLocalFilePerTable();
+    }
+
+    public boolean supportsMixedCaseIdentifiers() throws SQLException {
+        return metaData.supportsMixedCaseIdentifiers();
+    }
+
+    public boolean storesUpperCaseIdentifiers() throws SQLException {
+        return metaData.storesUpperCaseIdentifiers();
+    }
+
+    public boolean storesLowerCaseIdentifiers() throws SQLException {
+        return metaData.storesLowerCaseIdentifiers();
+    }
+
+    public boolean storesMixedCaseIdentifiers() throws SQLException {
+        return metaData.storesMixedCaseIdentifiers();
+    }
+
+    public boolean supportsMixedCaseQuotedIdentifiers() throws SQLException {
+        return metaData.supportsMixedCaseQuotedIdentifiers();
+    }
+
+    public boolean storesUpperCaseQuotedIdentifiers() throws SQLException {
+        return metaData.storesUpperCaseQuotedIdentifiers();
+    }
+
+    public boolean storesLowerCaseQuotedIdentifiers() throws SQLException {
+        return metaData.storesLowerCaseQuotedIdentifiers();
+    }
+
+    public boolean storesMixedCaseQuotedIdentifiers() throws SQLException {
+        return metaData.storesMixedCaseQuotedIdentifiers();
+    }
+
+    public String getIdentifierQuoteString() throws SQLException {
+        return metaData.getIdentifierQuoteString();
+    }
+
+    public String getSQLKeywords() throws SQLException {
+        return metaData.getSQLKeywords();
+    }
+
+    public String getNumericFunctions() throws SQLException {
+        return metaData.getNumericFunctions();
+    }
+
+    public String getStringFunctions() throws SQLException {
+        return metaData.getStringFunctions();
+    }
+
+    public String getSystemFunctions() throws SQLException {
+        return metaData.getSystemFunctions();
+    }
+
+    public String getTimeDateFunctions() throws SQLException {
+        return metaData.getTimeDateFunctions();
+    }
+
+    public String getSearchStringEscape() throws SQLException {
+        return metaData.getSearchStringEscape();
+    }
+
+    public String getExtraNameCharacters() throws SQLException {
+        return metaData.getExtraNameCharacters();
+    }
+
+    public boolean supportsAlterTableWithAddColumn() throws SQLException {
+        return metaData.supportsAlterTableWithAddColumn();
+    }
+
+    public boolean supportsAlterTableWithDropColumn() throws SQLException {
+        return metaData.supportsAlterTableWithDropColumn();
+    }
+
+    public boolean supportsColumnAliasing() throws SQLException {
+        return metaData.supportsColumnAliasing();
+    }
+
+    public boolean nullPlusNonNullIsNull() throws SQLException {
+        return metaData.nullPlusNonNullIsNull();
+    }
+
+    public boolean supportsConvert() throws SQLException {
+        return metaData.supportsConvert();
+    }
+
+    public boolean supportsConvert(int fromType, int toType) throws SQLException {
+        return metaData.supportsConvert(fromType, toType);
+    }
+
+    public boolean supportsTableCorrelationNames() throws SQLException {
+        return metaData.supportsTableCorrelationNames();
+    }
+
+    public boolean supportsDifferentTableCorrelationNames() throws SQLException {
+        return metaData.supportsDifferentTableCorrelationNames();
+    }
+
+    public boolean supportsExpressionsInOrderBy() throws SQLException {
+        return metaData.supportsExpressionsInOrderBy();
+    }
+
+    public boolean supportsOrderByUnrelated() throws SQLException {
+        return metaData.supportsOrderByUnrelated();
+    }
+
+    public boolean supportsGroupBy() throws SQLException {
+        return metaData.supportsGroupBy();
+    }
+
+    public boolean supportsGroupByUnrelated() throws SQLException {
+        return metaData.supportsGroupByUnrelated();
+    }
+
+    public boolean supportsGroupByBeyondSelect() throws SQLException {
+        return metaData.supportsGroupByBeyondSelect();
+    }
+
+    public boolean supportsLikeEscapeClause() throws SQLException {
+        return metaData.supportsLikeEscapeClause();
+    }
+
+    public boolean supportsMultipleResultSets() throws SQLException {
+        return metaData.supportsMultipleResultSets();
+    }
+
+    public boolean supportsMultipleTransactions() throws SQLException {
+        return metaData.supportsMultipleTransactions();
+    }
+
+    public boolean supportsNonNullableColumns() throws SQLException {
+        return metaData.supportsNonNullableColumns();
+    }
+
+    public boolean supportsMinimumSQLGrammar() throws SQLException {
+        return metaData.supportsMinimumSQLGrammar();
+    }
+
+    public boolean supportsCoreSQLGrammar() throws SQLException {
+        return metaData.supportsCoreSQLGrammar();
+    }
+
+    public boolean supportsExtendedSQLGrammar() throws SQLException {
+        return metaData.supportsExtendedSQLGrammar();
+    }
+
+    public boolean supportsANSI92EntryLevelSQL() throws SQLException {
+        return metaData.supportsANSI92EntryLevelSQL();
+    }
+
+    public boolean supportsANSI92IntermediateSQL() throws SQLException {
+        return metaData.supportsANSI92IntermediateSQL();
+    }
+
+    public boolean supportsANSI92FullSQL() throws SQLException {
+        return metaData.supportsANSI92FullSQL();
+    }
+
+    public boolean supportsIntegrityEnhancementFacility() throws SQLException {
+        return metaData.supportsIntegrityEnhancementFacility();
+    }
+
+    public boolean supportsOuterJoins() throws SQLException {
+        return metaData.supportsOuterJoins();
+    }
+
+    public boolean supportsFullOuterJoins() throws SQLException {
+        return metaData.supportsFullOuterJoins();
+    }
+
+    public boolean supportsLimitedOuterJoins() throws SQLException {
+        return metaData.supportsLimitedOuterJoins();
+    }
+
+    public String getSchemaTerm() throws SQLException {
+        return metaData.getSchemaTerm();
+    }
+
+    public String getProcedureTerm() throws SQLException {
+        return metaData.getProcedureTerm();
+    }
+
+    public String getCatalogTerm() throws SQLException {
+        return metaData.getCatalogTerm();
+    }
+
+    public boolean isCatalogAtStart() throws SQLException {
+        return metaData.isCatalogAtStart();
+    }
+
+    public String getCatalogSeparator() throws SQLException {
+        return metaData.getCatalogSeparator();
+    }
+
+    public boolean supportsSchemasInDataManipulation() throws SQLException {
+        return metaData.supportsSchemasInDataManipulation();
+    }
+
+    public boolean supportsSchemasInProcedureCalls() throws SQLException {
+        return metaData.supportsSchemasInProcedureCalls();
+    }
+
+    public boolean supportsSchemasInTableDefinitions() throws SQLException {
+        return metaData.supportsSchemasInTableDefinitions();
+    }
+
+    public boolean supportsSchemasInIndexDefinitions() throws SQLException {
+        return metaData.supportsSchemasInIndexDefinitions();
+    }
+
+    public boolean supportsSchemasInPrivilegeDefinitions() throws SQLException {
+        return metaData.supportsSchemasInPrivilegeDefinitions();
+    }
+
+    public boolean supportsCatalogsInDataManipulation() throws SQLException {
+        return metaData.supportsCatalogsInDataManipulation();
+    }
+
+    public boolean supportsCatalogsInProcedureCalls() throws SQLException {
+        return metaData.supportsCatalogsInProcedureCalls();
+    }
+
+    public boolean supportsCatalogsInTableDefinitions() throws SQLException {
+        return metaData.supportsCatalogsInTableDefinitions();
+    }
+
+    public boolean supportsCatalogsInIndexDefinitions() throws SQLException {
+        return metaData.supportsCatalogsInIndexDefinitions();
+    }
+
+    public boolean supportsCatalogsInPrivilegeDefinitions() throws SQLException {
+        return metaData.supportsCatalogsInPrivilegeDefinitions();
+    }
+
+    public boolean supportsPositionedDelete() throws SQLException {
+        return metaData.supportsPositionedDelete();
+    }
+
+    public boolean supportsPositionedUpdate() throws SQLException {
+        return metaData.supportsPositionedUpdate();
+    }
+
+    public boolean supportsSelectForUpdate() throws SQLException {
+        return metaData.supportsSelectForUpdate();
+    }
+
+    public boolean supportsStoredProcedures() throws SQLException {
+        return metaData.supportsStoredProcedures();
+    }
+
+    public boolean supportsSubqueriesInComparisons() throws SQLException {
+        return metaData.supportsSubqueriesInComparisons();
+    }
+
+    public boolean supportsSubqueriesInExists() throws SQLException {
+        return metaData.supportsSubqueriesInExists();
+    }
+
+    public boolean supportsSubqueriesInIns() throws SQLException {
+        return metaData.supportsSubqueriesInIns();
+    }
+
+    public boolean supportsSubqueriesInQuantifieds() throws SQLException {
+        return metaData.supportsSubqueriesInQuantifieds();
+    }
+
+    public boolean supportsCorrelatedSubqueries() throws SQLException {
+        return metaData.supportsCorrelatedSubqueries();
+    }
+
+    public boolean supportsUnion() throws SQLException {
+        return metaData.supportsUnion();
+    }
+
+    public boolean supportsUnionAll() throws SQLException {
+        return metaData.supportsUnionAll();
+    }
+
+    public boolean supportsOpenCursorsAcrossCommit() throws SQLException {
+        return metaData.supportsOpenCursorsAcrossCommit();
+    }
+
+    public boolean supportsOpenCursorsAcrossRollback() throws SQLException {
+        return metaData.supportsOpenCursorsAcrossRollback();
+    }
+
+    public boolean supportsOpenStatementsAcrossCommit() throws SQLException {
+        return metaData.supportsOpenStatementsAcrossCommit();
+    }
+
+    public boolean supportsOpenStatementsAcrossRollback() throws SQLException {
+        return metaData.supportsOpenStatementsAcrossRollback();
+    }
+
+    public int getMaxBinaryLiteralLength() throws SQLException {
+        return metaData.getMaxBinaryLiteralLength();
+    }
+
+    public int getMaxCharLiteralLength() throws SQLException {
+        return metaData.getMaxCharLiteralLength();
+    }
+
+    public int getMaxColumnNameLength() throws SQLException {
+        return metaData.getMaxColumnNameLength();
+    }
+
+    public int getMaxColumnsInGroupBy() throws SQLException {
+        return metaData.getMaxColumnsInGroupBy();
+    }
+
+    public int getMaxColumnsInIndex() throws SQLException {
+        return metaData.getMaxColumnsInIndex();
+    }
+
+    public int getMaxColumnsInOrderBy() throws SQLException {
+        return metaData.getMaxColumnsInOrderBy();
+    }
+
+    public int getMaxColumnsInSelect() throws SQLException {
+        return metaData.getMaxColumnsInSelect();
+    }
+
+    public int getMaxColumnsInTable() throws SQLException {
+        return metaData.getMaxColumnsInTable();
+    }
+
+    public int getMaxConnections() throws SQLException {
+        return metaData.getMaxConnections();
+    }
+
+    public int getMaxCursorNameLength() throws SQLException {
+        return metaData.getMaxCursorNameLength();
+    }
+
+    public int getMaxIndexLength() throws SQLException {
+        return metaData.getMaxIndexLength();
+    }
+
+    public int getMaxSchemaNameLength() throws SQLException {
+        return metaData.getMaxSchemaNameLength();
+    }
+
+    public int getMaxProcedureNameLength() throws SQLException {
+        return metaData.getMaxProcedureNameLength();
+    }
+
+    public int getMaxCatalogNameLength() throws SQLException {
+        return metaData.getMaxCatalogNameLength();
+    }
+
+    public int getMaxRowSize() throws SQLException {
+        return metaData.getMaxRowSize();
+    }
+
+    public boolean doesMaxRowSizeIncludeBlobs() throws SQLException {
+        return metaData.doesMaxRowSizeIncludeBlobs();
+    }
+
+    public int getMaxStatementLength() throws SQLException {
+        return metaData.getMaxStatementLength();
+    }
+
+    public int getMaxStatements() throws SQLException {
+        return metaData.getMaxStatements();
+    }
+
+    public int getMaxTableNameLength() throws SQLException {
+        return metaData.getMaxTableNameLength();
+    }
+
+    public int getMaxTablesInSelect() throws SQLException {
+        return metaData.getMaxTablesInSelect();
+    }
+
+    public int getMaxUserNameLength() throws SQLException {
+        return metaData.getMaxUserNameLength();
+    }
+
+    public int getDefaultTransactionIsolation() throws SQLException {
+        return metaData.getDefaultTransactionIsolation();
+    }
+
+    public boolean supportsTransactions() throws SQLException {
+        return metaData.supportsTransactions();
+    }
+
+    public boolean supportsTransactionIsolationLevel(int level) throws SQLException {
+        return metaData.supportsTransactionIsolationLevel(level);
+    }
+
+    public boolean supportsDataDefinitionAndDataManipulationTransactions() throws SQLException {
+        return metaData.supportsDataDefinitionAndDataManipulationTransactions();
+    }
+
+    public boolean supportsDataManipulationTransactionsOnly() throws SQLException {
+        return metaData.supportsDataManipulationTransactionsOnly();
+    }
+
+    public boolean dataDefinitionCausesTransactionCommit() throws SQLException {
+        return metaData.dataDefinitionCausesTransactionCommit();
+    }
+
+    public boolean dataDefinitionIgnoredInTransactions() throws SQLException {
+        return metaData.dataDefinitionIgnoredInTransactions();
+    }
+
+    public ResultSet getProcedures(String catalog, String schemaPattern, String procedureNamePattern) throws SQLException {
+        return metaData.getProcedures(catalog, schemaPattern, procedureNamePattern);
+    }
+
+    public ResultSet getProcedureColumns(String catalog, String schemaPattern, String procedureNamePattern, String columnNamePattern) throws SQLException {
+        return metaData.getProcedureColumns(catalog, schemaPattern, procedureNamePattern, columnNamePattern);
+    }
+
+    public ResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) throws SQLException {
+        return metaData.getTables(catalog, schemaPattern, tableNamePattern, types);
+    }
+
+    public ResultSet getSchemas() throws SQLException {
+        return metaData.getSchemas();
+    }
+
+    public ResultSet getCatalogs() throws SQLException {
+        return metaData.getCatalogs();
+    }
+
+    public ResultSet getTableTypes() throws SQLException {
+        return metaData.getTableTypes();
+    }
+
+    public ResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+        return metaData.getColumns(catalog, schemaPattern, tableNamePattern, columnNamePattern);
+    }
+
+    public ResultSet getColumnPrivileges(String catalog, String schema, String table, String columnNamePattern) throws SQLException {
+        return metaData.getColumnPrivileges(catalog, schema, table, columnNamePattern);
+    }
+
+    public ResultSet getTablePrivileges(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+        return metaData.getTablePrivileges(catalog, schemaPattern, tableNamePattern);
+    }
+
+    public ResultSet getBestRowIdentifier(String catalog, String schema, String table, int scope, boolean nullable) throws SQLException {
+        return metaData.getBestRowIdentifier(catalog, schema, table, scope, nullable);
+    }
+
+    public ResultSet getVersionColumns(String catalog, String schema, String table) throws SQLException {
+        return metaData.getVersionColumns(catalog, schema, table);
+    }
+
+    public ResultSet getPrimaryKeys(String catalog, String schema, String table) throws SQLException {
+        return metaData.getPrimaryKeys(catalog, schema, table);
+    }
+
+    public ResultSet getImportedKeys(String catalog, String schema, String table) throws SQLException {
+        return metaData.getImportedKeys(catalog, schema, table);
+    }
+
+    public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
+        return metaData.getExportedKeys(catalog, schema, table);
+    }
+
+    public ResultSet getCrossReference(String parentCatalog, String parentSchema, String parentTable, String foreignCatalog, String foreignSchema, String foreignTable) throws SQLException {
+        return metaData.getCrossReference(parentCatalog, parentSchema, parentTable, foreignCatalog, foreignSchema, foreignTable);
+    }
+
+    public ResultSet getTypeInfo() throws SQLException {
+        return metaData.getTypeInfo();
+    }
+
+    public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique, boolean approximate) throws SQLException {
+        return metaData.getIndexInfo(catalog, schema, table, unique, approximate);
+    }
+
+    public boolean supportsResultSetType(int type) throws SQLException {
+        return metaData.supportsResultSetType(type);
+    }
+
+    public boolean supportsResultSetConcurrency(int type, int concurrency) throws SQLException {
+        return metaData.supportsResultSetConcurrency(type, concurrency);
+    }
+
+    public boolean ownUpdatesAreVisible(int type) throws SQLException {
+        return metaData.ownUpdatesAreVisible(type);
+    }
+
+    public boolean ownDeletesAreVisible(int type) throws SQLException {
+        return metaData.ownDeletesAreVisible(type);
+    }
+
+    public boolean ownInsertsAreVisible(int type) throws SQLException {
+        return metaData.ownInsertsAreVisible(type);
+    }
+
+    public boolean othersUpdatesAreVisible(int type) throws SQLException {
+        return metaData.othersUpdatesAreVisible(type);
+    }
+
+    public boolean othersDeletesAreVisible(int type) throws SQLException {
+        return metaData.othersDeletesAreVisible(type);
+    }
+
+    public boolean othersInsertsAreVisible(int type) throws SQLException {
+        return metaData.othersInsertsAreVisible(type);
+    }
+
+    public boolean updatesAreDetected(int type) throws SQLException {
+        return metaData.updatesAreDetected(type);
+    }
+
+    public boolean deletesAreDetected(int type) throws SQLException {
+        return metaData.deletesAreDetected(type);
+    }
+
+    public boolean insertsAreDetected(int type) throws SQLException {
+        return metaData.insertsAreDetected(type);
+    }
+
+    public boolean supportsBatchUpdates() throws SQLException {
+        return metaData.supportsBatchUpdates();
+    }
+
+    public ResultSet getUDTs(String catalog, String schemaPattern, String typeNamePattern, int[] types) throws SQLException {
+        return metaData.getUDTs(catalog, schemaPattern, typeNamePattern, types);
+    }
+
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    public boolean supportsSavepoints() throws SQLException {
+        return metaData.supportsSavepoints();
+    }
+
+    public boolean supportsNamedParameters() throws SQLException {
+        return metaData.supportsNamedParameters();
+    }
+
+    public boolean supportsMultipleOpenResults() throws SQLException {
+        return metaData.supportsMultipleOpenResults();
+    }
+
+    public boolean supportsGetGeneratedKeys() throws SQLException {
+        return metaData.supportsGetGeneratedKeys();
+    }
+
+    public ResultSet getSuperTypes(String catalog, String schemaPattern, String typeNamePattern) throws SQLException {
+        return metaData.getSuperTypes(catalog, schemaPattern, typeNamePattern);
+    }
+
+    public ResultSet getSuperTables(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+        return metaData.getSuperTables(catalog, schemaPattern, tableNamePattern);
+    }
+
+    public ResultSet getAttributes(String catalog, String schemaPattern, String typeNamePattern, String attributeNamePattern) throws SQLException {
+        return metaData.getAttributes(catalog, schemaPattern, typeNamePattern, attributeNamePattern);
+    }
+
+    public boolean supportsResultSetHoldability(int holdability) throws SQLException {
+        return metaData.supportsResultSetHoldability(holdability);
+    }
+
+    public int getResultSetHoldability() throws SQLException {
+        return metaData.getResultSetHoldability();
+    }
+
+    public int getDatabaseMajorVersion() throws SQLException {
+        return metaData.getDatabaseMajorVersion();
+    }
+
+    public int getDatabaseMinorVersion() throws SQLException {
+        return metaData.getDatabaseMinorVersion();
+    }
+
+    public int getJDBCMajorVersion() throws SQLException {
+        return metaData.getJDBCMajorVersion();
+    }
+
+    public int getJDBCMinorVersion() throws SQLException {
+        return metaData.getJDBCMinorVersion();
+    }
+
+    public int getSQLStateType() throws SQLException {
+        return metaData.getSQLStateType();
+    }
+
+    public boolean locatorsUpdateCopy() throws SQLException {
+        return metaData.locatorsUpdateCopy();
+    }
+
+    public boolean supportsStatementPooling() throws SQLException {
+        return metaData.supportsStatementPooling();
+    }
+
+    public RowIdLifetime getRowIdLifetime() throws SQLException {
+        return metaData.getRowIdLifetime();
+    }
+
+    public ResultSet getSchemas(String catalog, String schemaPattern) throws SQLException {
+        return metaData.getSchemas(catalog, schemaPattern);
+    }
+
+    public boolean supportsStoredFunctionsUsingCallSyntax() throws SQLException {
+        return metaData.supportsStoredFunctionsUsingCallSyntax();
+    }
+
+    public boolean autoCommitFailureClosesAllResultSets() throws SQLException {
+        return metaData.autoCommitFailureClosesAllResultSets();
+    }
+
+    public ResultSet getClientInfoProperties() throws SQLException {
+        return metaData.getClientInfoProperties();
+    }
+
+    public ResultSet getFunctions(String catalog, String schemaPattern, String functionNamePattern) throws SQLException {
+        return metaData.getFunctions(catalog, schemaPattern, functionNamePattern);
+    }
+
+    public ResultSet getFunctionColumns(String catalog, String schemaPattern, String functionNamePattern, String columnNamePattern) throws SQLException {
+        return metaData.getFunctionColumns(catalog, schemaPattern, functionNamePattern, columnNamePattern);
+    }
+
+    public ResultSet getPseudoColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+        return metaData.getPseudoColumns(catalog, schemaPattern, tableNamePattern, columnNamePattern);
+    }
+
+    public boolean generatedKeyAlwaysReturned() throws SQLException {
+        return metaData.generatedKeyAlwaysReturned();
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * {@link Statement} decorator, delegating with direct calls
+ * and returning its decorating {@link Connection}
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see ConnectionDecorator
+ */
+public class StatementDecorator implements Statement {
+
+    protected final Connection connection;
+    private final Statement statement;
+
+    public StatementDecorator(Connection connection, Statement statement) {
+        this.connection = connection;
+        this.statement = statement;
+    }
+
+    /**
+     * @return decorated {@link Statement}, every call goes through
+     * @throws SQLException if it may not be used
+     */
+    protected Statement getDelegate() throws SQLException {
+        return statement;
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return getDelegate().unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || getDelegate().isWrapperFor(iface);
+    }
+
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return getDelegate().executeQuery(sql);
+    }
+
+    public int executeUpdate(String sql) throws SQLException {
+        return getDelegate().executeUpdate(sql);
+    }
+
+    public void close() throws SQLException {
+        getDelegate().close();
+    }
+
+    public int getMaxFieldSize() throws SQLException {
+        return getDelegate().getMaxFieldSize();
+    }
+
+    public void setMaxFieldSize(int max) throws SQLException {
+        getDelegate().setMaxFieldSize(max);
+    }
+
+    public int getMaxRows() throws SQLException {
+        return getDelegate().getMaxRows();
+    }
+
+    public void setMaxRows(int max) throws SQLException {
+        getDelegate().setMaxRows(max);
+    }
+
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        getDelegate().setEscapeProcessing(enable);
+    }
+
+    public int getQueryTimeout() throws SQLException {
+        return getDelegate().getQueryTimeout();
+    }
+
+    public void setQueryTimeout(int seconds) throws SQLException {
+        getDelegate().setQueryTimeout(seconds);
+    }
+
+    public void cancel() throws SQLException {
+        getDelegate().cancel();
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return getDelegate().getWarnings();
+    }
+
+    public void clearWarnings() throws SQLException {
+        getDelegate().clearWarnings();
+    }
+
+    public void setCursorName(String name) throws SQLException {
+        getDelegate().setCursorName(name);
+    }
+
+    public boolean execute(String sql) throws SQLException {
+        return getDelegate().execute(sql);
+    }
+
+    public ResultSet getResultSet() throws SQLException {
+        return getDelegate().getResultSet();
+    }
+
+    public int getUpdateCount() throws SQLException {
+        return getDelegate().getUpdateCount();
+    }
+
+    public boolean getMoreResults() throws SQLException {
+        return getDelegate().getMoreResults();
+    }
+
+    public void setFetchDirection(int direction) throws SQLException {
+        getDelegate().setFetchDirection(direction);
+    }
+
+    public int getFetchDirection() throws SQLException {
+        return getDelegate().getFetchDirection();
+    }
+
+    public void setFetchSize(int rows) throws SQLException {
+        getDelegate().setFetchSize(rows);
+    }
+
+    public int getFetchSize() throws SQLException {
+        return getDelegate().getFetchSize();
+    }
+
+    public int getResultSetConcurrency() throws SQLException {
+        return getDelegate().getResultSetConcurrency();
+    }
+
+    public int getResultSetType() throws SQLException {
+        return getDelegate().getResultSetType();
+    }
+
+    public void addBatch(String sql) throws SQLException {
+        getDelegate().addBatch(sql);
+    }
+
+    public void clearBatch() throws SQLException {
+        getDelegate().clearBatch();
+    }
+
+    public int[] executeBatch() throws SQLException {
+        return getDelegate().executeBatch();
+    }
+
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    public boolean getMoreResults(int current) throws SQLException {
+        return getDelegate().getMoreResults(current);
+    }
+
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return getDelegate().getGeneratedKeys();
+    }
+
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return getDelegate().executeUpdate(sql, autoGeneratedKeys);
+    }
+
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return getDelegate().executeUpdate(sql, columnIndexes);
+    }
+
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return getDelegate().executeUpdate(sql, columnNames);
+    }
+
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return getDelegate().execute(sql, autoGeneratedKeys);
+    }
+
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return getDelegate().execute(sql, columnIndexes);
+    }
+
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return getDelegate().execute(sql, columnNames);
+    }
+
+    public int getResultSetHoldability() throws SQLException {
+        return getDelegate().getResultSetHoldability();
+    }
+
+    public boolean isClosed() throws SQLException {
+        return getDelegate().isClosed();
+    }
+
+    public void setPoolable(boolean poolable) throws SQLException {
+        getDelegate().setPoolable(poolable);
+    }
+
+    public boolean isPoolable() throws SQLException {
+        return getDelegate().isPoolable();
+    }
+
+    public void closeOnCompletion() throws SQLException {
+        getDelegate().closeOnCompletion();
+    }
+
+    public boolean isCloseOnCompletion() throws SQLException {
+        return getDelegate().isCloseOnCompletion();
+    }
+}
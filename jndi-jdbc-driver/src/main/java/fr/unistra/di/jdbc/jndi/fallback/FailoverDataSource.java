@@ -0,0 +1,380 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.fallback;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Composite {@link DataSource} balancing new connections (round robin)
+ * across its healthy members, and failing over to the next member
+ * when a connection cannot be opened.
+ * <p>Members are checked in the background every {@link #CHECK_INTERVAL_PROPERTY}
+ * ms (default 2000) with the validation query (or {@link Connection#isValid(int)}).
+ * A check not answered within {@link #CHECK_TIMEOUT_PROPERTY} ms (default 1000)
+ * marks the member unhealthy, so that a dead database is taken out within
+ * interval + timeout, instead of blocking every caller for a TCP timeout.
+ * Checks run asynchronously, so that the shared scheduler is never blocked
+ * by the members of one instance.
+ * A member whose previous check is still stuck is not checked again (and
+ * stays unhealthy), so that at most one check per member is in flight.
+ * <p>A member is also marked unhealthy when it fails to open a connection
+ * with a connection exception (SQLState class 08), other failures (bad
+ * credentials...) leaving its health as is.
+ * When no member is known healthy, every member is tried anyway.
+ * <p>Instances must be {@link #close() closed} to stop their health checks.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class FailoverDataSource implements DataSource, Closeable {
+
+    /** System property: delay (ms) between two health checks of each member */
+    public static final String CHECK_INTERVAL_PROPERTY = "fr.unistra.di.jdbc.jndi.failover.checkInterval";
+    /** System property: maximum duration (ms) of a health check */
+    public static final String CHECK_TIMEOUT_PROPERTY = "fr.unistra.di.jdbc.jndi.failover.checkTimeout";
+
+    private static final ThreadFactory daemons = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jndi-jdbc-failover-check");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+    /** shared scheduler of every health check round */
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(daemons);
+    /** shared runner of health checks, a stuck check only holds its own thread
+     * (at most one per member, see {@link Member#checking}) */
+    private static final ExecutorService checkers = Executors.newCachedThreadPool(daemons);
+
+    private final List<Member> members;
+    private final String validationQuery;
+    private final long checkTimeout;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledFuture<?> checkTask;
+    private volatile boolean closed;
+
+    /**
+     * @param dataSources members, in preference order
+     * @param validationQuery health check query, {@code null} for {@link Connection#isValid(int)}
+     */
+    public FailoverDataSource(List<? extends DataSource> dataSources, String validationQuery) {
+        this(dataSources, validationQuery,
+                Long.getLong(CHECK_INTERVAL_PROPERTY, 2000L),
+                Long.getLong(CHECK_TIMEOUT_PROPERTY, 1000L));
+    }
+
+    /**
+     * @param dataSources members, in preference order
+     * @param validationQuery health check query, {@code null} for {@link Connection#isValid(int)}
+     * @param checkInterval ms between two health checks, 0 or less for no background check
+     * @param checkTimeout ms before a health check is considered failed
+     */
+    public FailoverDataSource(List<? extends DataSource> dataSources, String validationQuery,
+            long checkInterval, long checkTimeout) {
+        if (dataSources.isEmpty())
+            throw new IllegalArgumentException("no member");
+        List<Member> list = new ArrayList<Member>(dataSources.size());
+        for (DataSource ds : dataSources)
+            list.add(new Member(ds));
+        this.members = Collections.unmodifiableList(list);
+        this.validationQuery = validationQuery == null || validationQuery.trim().length() == 0
+                ? null : validationQuery;
+        this.checkTimeout = checkTimeout;
+        if (checkInterval > 0)
+            this.checkTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    check();
+                }
+            }, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        else
+            this.checkTask = null;
+    }
+
+    /**
+     * @return member {@link DataSource}s, in preference order
+     */
+    public List<DataSource> getMembers() {
+        List<DataSource> list = new ArrayList<DataSource>(members.size());
+        for (Member member : members)
+            list.add(member.dataSource);
+        return list;
+    }
+
+    /**
+     * @param index member index
+     * @return {@code false} if last health check or connection failed
+     */
+    public boolean isHealthy(int index) {
+        return members.get(index).healthy;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.DataSource#getConnection()
+     */
+    public Connection getConnection() throws SQLException {
+        int n = members.size();
+        int start = (next.getAndIncrement() & Integer.MAX_VALUE) % n;
+        SQLException failure = null;
+        // healthy members first, then any member as a last resort
+        for (int pass = 0; pass < 2; pass++)
+            for (int i = 0; i < n; i++) {
+                Member member = members.get((start + i) % n);
+                if (member.healthy != (pass == 0))
+                    continue;
+                try {
+                    Connection conn = member.dataSource.getConnection();
+                    member.healthy = true;
+                    return conn;
+                } catch (SQLException ex) {
+                    if (isConnectionFailure(ex))
+                        member.healthy = false;
+                    if (failure == null)
+                        failure = ex;
+                }
+            }
+        throw failure != null ? failure
+                : new SQLNonTransientConnectionException("no failover member available");
+    }
+
+    /** @return {@code true} for a connection exception (SQLState class 08),
+     * not for a busy member (pool exhausted) */
+    private static boolean isConnectionFailure(SQLException ex) {
+        String state = ex.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    /**
+     * check every member in parallel, without waiting: each check not
+     * answered within {@code checkTimeout} is cancelled by the scheduler,
+     * and its member marked unhealthy
+     */
+    void check() {
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            if (!member.checking.compareAndSet(false, true)) {
+                // previous check still stuck
+                update(i, false);
+                continue;
+            }
+            final Check check = new Check(i, member);
+            check.timeout = scheduler.schedule(new Runnable() {
+                public void run() {
+                    check.cancel(true);
+                }
+            }, checkTimeout, TimeUnit.MILLISECONDS);
+            checkers.execute(check);
+        }
+    }
+
+    /** record a member health */
+    private void update(int index, boolean healthy) {
+        Member member = members.get(index);
+        if (member.healthy != healthy)
+            Metrics.LOGGER.info("failover member " + index + " of " + this
+                    + (healthy ? " is back" : " is down"));
+        member.healthy = healthy;
+    }
+
+    private boolean validate(DataSource ds) {
+        Connection conn = null;
+        try {
+            conn = ds.getConnection();
+            if (validationQuery == null)
+                return conn.isValid((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(checkTimeout)));
+            Statement stmt = conn.createStatement();
+            try {
+                stmt.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(checkTimeout)));
+                stmt.execute(validationQuery);
+                return true;
+            } finally {
+                stmt.close();
+            }
+        } catch (SQLException ex) {
+            return false;
+        } finally {
+            if (conn != null)
+                try {
+                    conn.close();
+                } catch (SQLException ex) { }
+        }
+    }
+
+    /**
+     * stop health checks, and close {@link Closeable} members
+     */
+    public void close() {
+        closed = true;
+        if (checkTask != null)
+            checkTask.cancel(false);
+        for (Member member : members)
+            if (member.dataSource instanceof Closeable)
+                try {
+                    ((Closeable) member.dataSource).close();
+                } catch (IOException ex) { }
+    }
+
+    /**
+     * @return {@code true} once {@link #close()}d
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.DataSource#getConnection(java.lang.String, java.lang.String)
+     */
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#getLogWriter()
+     */
+    public PrintWriter getLogWriter() throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#setLogWriter(java.io.PrintWriter)
+     */
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#setLoginTimeout(int)
+     */
+    public void setLoginTimeout(int seconds) throws SQLException {
+        for (Member member : members)
+            member.dataSource.setLoginTimeout(seconds);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#getLoginTimeout()
+     */
+    public int getLoginTimeout() throws SQLException {
+        return members.get(0).dataSource.getLoginTimeout();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#getParentLogger()
+     */
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return Metrics.LOGGER;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Wrapper#unwrap(java.lang.Class)
+     */
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("not a wrapper for " + iface);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Wrapper#isWrapperFor(java.lang.Class)
+     */
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    /** health check of one member, cancelled when late */
+    private final class Check extends FutureTask<Boolean> {
+        private final int index;
+        private final Member member;
+        /** cancellation task, cancelled once checked */
+        volatile ScheduledFuture<?> timeout;
+
+        Check(int index, final Member member) {
+            super(new Callable<Boolean>() {
+                public Boolean call() {
+                    return Boolean.valueOf(validate(member.dataSource));
+                }
+            });
+            this.index = index;
+            this.member = member;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.FutureTask#run()
+         */
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                member.checking.set(false);
+            }
+        }
+
+        /** record the result, unhealthy if failed or cancelled (late) */
+        @Override
+        protected void done() {
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null)
+                pending.cancel(false);
+            boolean healthy = false;
+            if (!isCancelled())
+                try {
+                    healthy = get().booleanValue();
+                } catch (ExecutionException ex) {
+                    // failed check
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            update(index, healthy);
+        }
+    }
+
+    /** member {@link DataSource} and its last known health */
+    private static final class Member {
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+        /** a health check is running (possibly stuck, even if cancelled) */
+        final AtomicBoolean checking = new AtomicBoolean();
+
+        Member(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
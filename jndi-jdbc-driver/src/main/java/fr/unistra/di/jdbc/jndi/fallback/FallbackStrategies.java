@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.fallback;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.ConnectionKey;
+import fr.unistra.di.jdbc.jndi.NegativeLookupCache;
+import fr.unistra.di.jdbc.jndi.metrics.DriverMetrics;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Immutable, ordered, chain of {@link FallbackStrategy} instances,
+ * discovered once per {@link ClassLoader} with {@link ServiceLoader}.
+ * <p>Strategies are ordered by {@link PrioritizedFallbackStrategy#getPriority()}
+ * (0 for plain strategies, ties keep {@link ServiceLoader} order), unless
+ * the {@link #ORDER_PROPERTY} system property lists (simple or qualified)
+ * class names first.
+ * <p>Each strategy result is remembered per name and connection properties
+ * (driver options excepted): a returned {@link DataSource} is given back
+ * without asking the strategy again, until {@link #forget(String)}; a strategy
+ * which returned {@code null} is skipped for
+ * {@link NegativeLookupCache#TTL_PROPERTY} ms, as failed lookups are (so that
+ * a resource configured later is found). At most
+ * {@link NegativeLookupCache#SIZE_PROPERTY} results are kept per strategy.
+ * Failures ({@link SQLException}) are not remembered.
+ * <p>Instances are only softly held per {@link ClassLoader}, since strategies
+ * (loaded by it) would otherwise keep an undeployed loader reachable.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class FallbackStrategies {
+
+    /** System property: comma separated strategy class names, in wanted order */
+    public static final String ORDER_PROPERTY = "fr.unistra.di.jdbc.jndi.fallback.order";
+
+    private static final Map<ClassLoader, Reference<FallbackStrategies>> instances =
+            new WeakHashMap<ClassLoader, Reference<FallbackStrategies>>();
+
+    private final List<FallbackStrategy> strategies;
+    /** strategy class names (same index), as reported to {@link DriverMetrics} */
+    private final String[] names;
+    /** per strategy (same index), per name and properties, {@link DataSource} or {@link Unhandled} */
+    private final List<ConcurrentMap<ConnectionKey, Object>> results;
+    /** time (ms) a "not handled" result is remembered, 0 not to remember it */
+    private final long ttl;
+    /** maximum number of results remembered per strategy */
+    private final int maxSize;
+
+    FallbackStrategies(Iterable<FallbackStrategy> loaded, String order) {
+        this(loaded, order, Long.getLong(NegativeLookupCache.TTL_PROPERTY, 5000L),
+                Integer.getInteger(NegativeLookupCache.SIZE_PROPERTY, 1000));
+    }
+
+    FallbackStrategies(Iterable<FallbackStrategy> loaded, String order, long ttl, int maxSize) {
+        this.ttl = ttl;
+        this.maxSize = Math.max(1, maxSize);
+        List<FallbackStrategy> sorted = new ArrayList<FallbackStrategy>();
+        for (FallbackStrategy strategy : loaded)
+            sorted.add(strategy);
+        Collections.sort(sorted, new StrategyComparator(order));
+        this.strategies = Collections.unmodifiableList(sorted);
+        this.names = new String[sorted.size()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = sorted.get(i).getClass().getName();
+        List<ConcurrentMap<ConnectionKey, Object>> memo =
+                new ArrayList<ConcurrentMap<ConnectionKey, Object>>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++)
+            memo.add(new ConcurrentHashMap<ConnectionKey, Object>());
+        this.results = memo;
+    }
+
+    /**
+     * @return strategies for the current thread context {@link ClassLoader}
+     */
+    public static FallbackStrategies getInstance() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null)
+            loader = ClassLoader.getSystemClassLoader();
+        return getInstance(loader);
+    }
+
+    /**
+     * @return strategies for this {@link ClassLoader}, discovered on first call
+     */
+    public static FallbackStrategies getInstance(ClassLoader loader) {
+        synchronized (instances) {
+            Reference<FallbackStrategies> ref = instances.get(loader);
+            FallbackStrategies instance = ref == null ? null : ref.get();
+            if (instance == null) {
+                instance = new FallbackStrategies(
+                        ServiceLoader.load(FallbackStrategy.class, loader),
+                        System.getProperty(ORDER_PROPERTY));
+                instances.put(loader, new SoftReference<FallbackStrategies>(instance));
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * @return immutable, ordered, strategies list
+     */
+    public List<FallbackStrategy> getStrategies() {
+        return strategies;
+    }
+
+    /**
+     * @return the first non-null {@link DataSource} from the chain,
+     * or {@code null} if no strategy handles this name
+     * @throws SQLException the first exception from strategies,
+     * if none returned a {@link DataSource}
+     * @see FallbackStrategy#getDataSource(String, Properties)
+     */
+    public DataSource getDataSource(String name, Properties info) throws SQLException {
+        DriverMetrics metrics = Metrics.get();
+        SQLException failure = null;
+        ConnectionKey key = new ConnectionKey(name, info);
+        for (int i = 0; i < strategies.size(); i++) {
+            ConcurrentMap<ConnectionKey, Object> memo = results.get(i);
+            Object known = memo.get(key);
+            if (known instanceof Unhandled && ((Unhandled) known).expiresAt - System.currentTimeMillis() <= 0) {
+                memo.remove(key, known);
+                known = null;
+            }
+            if (known != null) {
+                metrics.cacheHit("fallback", name);
+                if (known instanceof Unhandled)
+                    continue;
+                return (DataSource) known;
+            }
+            metrics.cacheMiss("fallback", name);
+            long start = Metrics.start();
+            try {
+                DataSource ds = strategies.get(i).getDataSource(name, info);
+                metrics.lookup(name, names[i], Metrics.since(start), true);
+                if (ds != null) {
+                    evict(memo);
+                    Object previous = memo.putIfAbsent(key, ds);
+                    if (previous instanceof DataSource)
+                        return (DataSource) previous;
+                    if (previous != null)
+                        memo.replace(key, previous, ds);
+                    return ds;
+                }
+                if (ttl > 0) {
+                    evict(memo);
+                    memo.put(key, new Unhandled(System.currentTimeMillis() + ttl));
+                }
+            } catch (SQLException ex) {
+                metrics.lookup(name, names[i], Metrics.since(start), false);
+                if (failure == null)
+                    failure = ex;
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return null;
+    }
+
+    /**
+     * forget every remembered result for this name, whatever the properties
+     * @param name JNDI name
+     */
+    public void forget(String name) {
+        for (ConcurrentMap<ConnectionKey, Object> memo : results)
+            for (ConnectionKey key : memo.keySet())
+                if (key.getName().equals(name))
+                    memo.remove(key);
+    }
+
+    /** make room for one result: drop expired ones, or any one if none expired */
+    private void evict(ConcurrentMap<ConnectionKey, Object> memo) {
+        if (memo.size() < maxSize)
+            return;
+        long now = System.currentTimeMillis();
+        boolean evicted = false;
+        for (Iterator<Object> it = memo.values().iterator(); it.hasNext();) {
+            Object known = it.next();
+            if (known instanceof Unhandled && ((Unhandled) known).expiresAt - now <= 0) {
+                it.remove();
+                evicted = true;
+            }
+        }
+        Iterator<ConnectionKey> it = memo.keySet().iterator();
+        while (!evicted && memo.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /** memoised "not handled" result, until {@link #expiresAt} */
+    private static final class Unhandled {
+        final long expiresAt;
+
+        Unhandled(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /** orders by {@link #ORDER_PROPERTY} rank, then priority */
+    private static class StrategyComparator implements Comparator<FallbackStrategy> {
+        private final List<String> order;
+
+        StrategyComparator(String order) {
+            this.order = order == null || order.trim().length() == 0
+                    ? Collections.<String>emptyList()
+                    : Arrays.asList(order.trim().split("\\s*,\\s*"));
+        }
+
+        public int compare(FallbackStrategy s1, FallbackStrategy s2) {
+            int r1 = rank(s1), r2 = rank(s2);
+            if (r1 != r2)
+                return r1 < r2 ? -1 : 1;
+            int p1 = priority(s1), p2 = priority(s2);
+            return p1 < p2 ? -1 : (p1 == p2 ? 0 : 1);
+        }
+
+        private int rank(FallbackStrategy strategy) {
+            Class<?> clazz = strategy.getClass();
+            for (int i = 0; i < order.size(); i++)
+                if (order.get(i).equals(clazz.getName()) || order.get(i).equals(clazz.getSimpleName()))
+                    return i;
+            return order.size();
+        }
+
+        private static int priority(FallbackStrategy strategy) {
+            if (strategy instanceof PrioritizedFallbackStrategy)
+                return ((PrioritizedFallbackStrategy) strategy).getPriority();
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.metrics;
+
+/**
+ * Instrumentation SPI, discovered with {@link java.util.ServiceLoader}
+ * (see {@link Metrics#get()}).
+ * <p>Methods are called on hot paths (every proxied {@link java.sql.Connection}
+ * call for {@link #call(String)}): implementations must be thread safe
+ * and cheap, and callers only pass already existing objects
+ * so that a no-op implementation costs no allocation.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public interface DriverMetrics {
+
+    /**
+     * a {@link javax.sql.DataSource} lookup completed
+     * @param name JNDI name
+     * @param strategy strategy class name, {@code null} for the whole lookup
+     * (JEE container, then fallback strategies)
+     * @param nanos lookup duration
+     * @param success {@code false} if the lookup failed
+     */
+    void lookup(String name, String strategy, long nanos, boolean success);
+
+    /**
+     * @param cache cache name ({@code dataSource}, {@code negativeLookup}, {@code fallback}...)
+     * @param name JNDI name
+     */
+    void cacheHit(String cache, String name);
+
+    /**
+     * @param cache cache name ({@code dataSource}, {@code negativeLookup}, {@code fallback}...)
+     * @param name JNDI name
+     */
+    void cacheMiss(String cache, String name);
+
+    /**
+     * a {@link java.sql.Connection} was acquired from a {@link javax.sql.DataSource}
+     * @param name JNDI name
+     * @param nanos acquisition duration
+     * @param success {@code false} if the acquisition failed
+     */
+    void acquire(String name, long nanos, boolean success);
+
+    /**
+     * a caller went through connection admission control
+     * @param name JNDI name
+     * @param nanos time spent waiting for a slot
+     * @param queued number of waiting callers (including this one if it waited)
+     * @param admitted {@code false} if the caller was shed
+     */
+    void admission(String name, long nanos, int queued, boolean admitted);
+
+    /**
+     * a connection was held past the leak detection threshold or hard limit
+     * @param name JNDI name
+     * @param nanos hold time so far
+     * @param reclaimed {@code true} if the connection was force-closed
+     * @see fr.unistra.di.jdbc.jndi.LeakDetector
+     */
+    void leak(String name, long nanos, boolean reclaimed);
+
+    /**
+     * a pooled connection was validated
+     * @param name pool name
+     * @param nanos validation duration
+     * @param success {@code false} if the connection was found invalid
+     */
+    void validation(String name, long nanos, boolean success);
+
+    /**
+     * start publishing a pool active/idle gauges
+     * @param name pool name
+     * @param pool gauges
+     */
+    void registerPool(String name, PoolGauges pool);
+
+    /**
+     * stop publishing a pool gauges
+     * @param name pool name
+     * @param pool gauges given to {@link #registerPool(String, PoolGauges)}
+     */
+    void unregisterPool(String name, PoolGauges pool);
+
+    /**
+     * a proxied {@link java.sql.Connection} method was called
+     * @param method method name
+     */
+    void call(String method);
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link DriverMetrics} published as JMX MXBeans,
+ * in the {@value #DOMAIN} domain:
+ * <ul>
+ * <li>{@code type=Driver}: cache hits and misses (per cache, and per cache and name), admission queue depths, proxy calls per method</li>
+ * <li>{@code type=Lookup,name=<JNDI name>}: whole lookup latency</li>
+ * <li>{@code type=Lookup,name=<JNDI name>,strategy=<class>}: per strategy lookup latency</li>
+ * <li>{@code type=Acquire,name=<JNDI name>}: connection acquire latency</li>
+ * <li>{@code type=Admission,name=<JNDI name>}: admission wait time (failures are shed callers)</li>
+ * <li>{@code type=Leak,name=<JNDI name>}: hold time of leaked connections (failures are force-closed ones)</li>
+ * <li>{@code type=Validation,name=<pool name>}: pooled connections validation time (failures are invalid connections)</li>
+ * <li>{@code type=Pool,name=<pool name>}: active and idle gauges</li>
+ * </ul>
+ * <p>MXBeans are registered on first event.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class JmxDriverMetrics implements DriverMetrics, DriverStatsMXBean {
+
+    public static final String DOMAIN = "fr.unistra.di.jdbc.jndi";
+
+    private final MBeanServer server;
+
+    private final ConcurrentMap<String, AtomicLong> cacheHits = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, AtomicLong> cacheMisses = new ConcurrentHashMap<String, AtomicLong>();
+    /** per {@code <cache>:<name>} */
+    private final ConcurrentMap<String, AtomicLong> nameHits = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, AtomicLong> nameMisses = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, AtomicLong> calls = new ConcurrentHashMap<String, AtomicLong>();
+    /** lookup histograms, by JNDI name then strategy ("" for the whole lookup) */
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> lookups =
+            new ConcurrentHashMap<String, ConcurrentMap<String, LatencyHistogram>>();
+    private final ConcurrentMap<String, LatencyHistogram> acquires =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> admissions =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> leaks =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> validations =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, Integer> queueDepths = new ConcurrentHashMap<String, Integer>();
+
+    public JmxDriverMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxDriverMetrics(MBeanServer server) {
+        this.server = server;
+        register(DOMAIN + ":type=Driver", this);
+    }
+
+    public void lookup(String name, String strategy, long nanos, boolean success) {
+        ConcurrentMap<String, LatencyHistogram> byStrategy = lookups.get(name);
+        if (byStrategy == null) {
+            ConcurrentMap<String, LatencyHistogram> created = new ConcurrentHashMap<String, LatencyHistogram>();
+            byStrategy = lookups.putIfAbsent(name, created);
+            if (byStrategy == null)
+                byStrategy = created;
+        }
+        String key = strategy == null ? "" : strategy;
+        LatencyHistogram histogram = byStrategy.get(key);
+        if (histogram == null)
+            histogram = histogram(byStrategy, key, DOMAIN + ":type=Lookup,name=" + ObjectName.quote(name)
+                    + (strategy == null ? "" : ",strategy=" + ObjectName.quote(strategy)));
+        histogram.record(nanos, success);
+    }
+
+    public void acquire(String name, long nanos, boolean success) {
+        LatencyHistogram histogram = acquires.get(name);
+        if (histogram == null)
+            histogram = histogram(acquires, name, DOMAIN + ":type=Acquire,name=" + ObjectName.quote(name));
+        histogram.record(nanos, success);
+    }
+
+    public void admission(String name, long nanos, int queued, boolean admitted) {
+        LatencyHistogram histogram = admissions.get(name);
+        if (histogram == null)
+            histogram = histogram(admissions, name, DOMAIN + ":type=Admission,name=" + ObjectName.quote(name));
+        histogram.record(nanos, admitted);
+        queueDepths.put(name, Integer.valueOf(queued));
+    }
+
+    public void leak(String name, long nanos, boolean reclaimed) {
+        LatencyHistogram histogram = leaks.get(name);
+        if (histogram == null)
+            histogram = histogram(leaks, name, DOMAIN + ":type=Leak,name=" + ObjectName.quote(name));
+        histogram.record(nanos, !reclaimed);
+    }
+
+    public void validation(String name, long nanos, boolean success) {
+        LatencyHistogram histogram = validations.get(name);
+        if (histogram == null)
+            histogram = histogram(validations, name, DOMAIN + ":type=Validation,name=" + ObjectName.quote(name));
+        histogram.record(nanos, success);
+    }
+
+    public void cacheHit(String cache, String name) {
+        increment(cacheHits, cache);
+        increment(nameHits, cache + ':' + name);
+    }
+
+    public void cacheMiss(String cache, String name) {
+        increment(cacheMisses, cache);
+        increment(nameMisses, cache + ':' + name);
+    }
+
+    public void call(String method) {
+        increment(calls, method);
+    }
+
+    public void registerPool(String name, final PoolGauges pool) {
+        register(poolObjectName(name), new PoolMXBean() {
+            public int getActive() {
+                return pool.getActive();
+            }
+
+            public int getIdle() {
+                return pool.getIdle();
+            }
+        });
+    }
+
+    public void unregisterPool(String name, PoolGauges pool) {
+        try {
+            server.unregisterMBean(new ObjectName(poolObjectName(name)));
+        } catch (JMException ex) {
+            // already unregistered
+        }
+    }
+
+    public Map<String, Long> getCacheHits() {
+        return snapshot(cacheHits);
+    }
+
+    public Map<String, Long> getCacheMisses() {
+        return snapshot(cacheMisses);
+    }
+
+    public Map<String, Long> getCacheHitsByName() {
+        return snapshot(nameHits);
+    }
+
+    public Map<String, Long> getCacheMissesByName() {
+        return snapshot(nameMisses);
+    }
+
+    public Map<String, Integer> getQueueDepths() {
+        return new HashMap<String, Integer>(queueDepths);
+    }
+
+    public Map<String, Long> getCalls() {
+        return snapshot(calls);
+    }
+
+    private static String poolObjectName(String name) {
+        return DOMAIN + ":type=Pool,name=" + ObjectName.quote(name);
+    }
+
+    /** create and register the histogram for this key, unless another thread did */
+    private LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms,
+            String key, String objectName) {
+        LatencyHistogram created = new LatencyHistogram();
+        LatencyHistogram histogram = histograms.putIfAbsent(key, created);
+        if (histogram != null)
+            return histogram;
+        register(objectName, created);
+        return created;
+    }
+
+    private void register(String objectName, Object mbean) {
+        try {
+            ObjectName on = new ObjectName(objectName);
+            if (server.isRegistered(on))
+                server.unregisterMBean(on);
+            server.registerMBean(mbean, on);
+        } catch (JMException ex) {
+            Metrics.LOGGER.log(Level.WARNING, "could not register MBean " + objectName, ex);
+        }
+    }
+
+    private static void increment(ConcurrentMap<String, AtomicLong> counters, String key) {
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(key, created);
+            if (counter == null)
+                counter = created;
+        }
+        counter.incrementAndGet();
+    }
+
+    private static Map<String, Long> snapshot(ConcurrentMap<String, AtomicLong> counters) {
+        Map<String, Long> result = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet())
+            result.put(entry.getKey(), entry.getValue().get());
+        return result;
+    }
+
+    /**
+     * @return lookup histogram, or {@code null} if no such lookup recorded
+     * @param name JNDI name
+     * @param strategy strategy class name, {@code null} for the whole lookup
+     */
+    public LatencyHistogram getLookupLatency(String name, String strategy) {
+        ConcurrentMap<String, LatencyHistogram> byStrategy = lookups.get(name);
+        return byStrategy == null ? null : byStrategy.get(strategy == null ? "" : strategy);
+    }
+
+    /**
+     * @return admission wait histogram, or {@code null} if no admission recorded
+     * @param name JNDI name
+     */
+    public LatencyHistogram getAdmissionWait(String name) {
+        return admissions.get(name);
+    }
+
+    /**
+     * @return leaked connections hold time histogram, or {@code null} if no leak recorded
+     * @param name JNDI name
+     */
+    public LatencyHistogram getLeaks(String name) {
+        return leaks.get(name);
+    }
+
+    /**
+     * @return validation histogram, or {@code null} if no validation recorded
+     * @param name pool name
+     */
+    public LatencyHistogram getValidationLatency(String name) {
+        return validations.get(name);
+    }
+
+    /**
+     * @return acquire histogram, or {@code null} if no acquisition recorded
+     * @param name JNDI name
+     */
+    public LatencyHistogram getAcquireLatency(String name) {
+        return acquires.get(name);
+    }
+}
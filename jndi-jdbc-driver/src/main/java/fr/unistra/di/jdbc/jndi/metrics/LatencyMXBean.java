@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link LatencyHistogram}
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public interface LatencyMXBean {
+
+    long getCount();
+
+    long getFailures();
+
+    long getMeanMicros();
+
+    long getMaxMicros();
+
+    /**
+     * @return "&lt;N us" upper bound → count, for non-empty buckets
+     */
+    Map<String, Long> getBuckets();
+}
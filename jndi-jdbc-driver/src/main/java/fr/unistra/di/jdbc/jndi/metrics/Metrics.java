@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link DriverMetrics} discovery, done once when first used:
+ * <ul>
+ * <li>{@link #PROPERTY} system property: {@code jmx} for
+ * {@link JmxDriverMetrics}, {@code none} for {@link NoopDriverMetrics},
+ * or an implementation class name;</li>
+ * <li>otherwise the first {@link DriverMetrics} found by {@link ServiceLoader};</li>
+ * <li>otherwise {@link NoopDriverMetrics}.</li>
+ * </ul>
+ * <p>{@link #start()} and {@link #since(long)} only read the clock when
+ * metrics are enabled.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class Metrics {
+
+    /** System property: {@code jmx}, {@code none} or a {@link DriverMetrics} class name */
+    public static final String PROPERTY = "fr.unistra.di.jdbc.jndi.metrics";
+
+    /** logger of the whole driver */
+    public static final Logger LOGGER = Logger.getLogger("fr.unistra.di.jdbc.jndi");
+
+    private static final DriverMetrics instance = load();
+    private static final boolean enabled = !(instance instanceof NoopDriverMetrics);
+
+    private Metrics() { }
+
+    /**
+     * @return discovered {@link DriverMetrics}, never {@code null}
+     */
+    public static DriverMetrics get() {
+        return instance;
+    }
+
+    /**
+     * @return {@code false} if metrics are not recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return start time to give to {@link #since(long)}
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * @param start value returned by {@link #start()}
+     * @return nanoseconds elapsed since {@code start}
+     */
+    public static long since(long start) {
+        return enabled ? System.nanoTime() - start : 0L;
+    }
+
+    private static DriverMetrics load() {
+        String configured = System.getProperty(PROPERTY);
+        try {
+            if ("none".equalsIgnoreCase(configured))
+                return NoopDriverMetrics.INSTANCE;
+            if ("jmx".equalsIgnoreCase(configured))
+                return new JmxDriverMetrics();
+            if (configured != null && configured.trim().length() > 0)
+                return (DriverMetrics) Class.forName(configured.trim(), true,
+                        Metrics.class.getClassLoader()).getDeclaredConstructor().newInstance();
+            Iterator<DriverMetrics> it = ServiceLoader.load(DriverMetrics.class,
+                    Metrics.class.getClassLoader()).iterator();
+            if (it.hasNext())
+                return it.next();
+        } catch (ServiceConfigurationError ex) {
+            LOGGER.log(Level.WARNING, "could not load DriverMetrics", ex);
+        } catch (Exception ex) {
+            LOGGER.log(Level.WARNING, "could not load DriverMetrics " + configured, ex);
+        }
+        return NoopDriverMetrics.INSTANCE;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.metrics;
+
+/**
+ * Default {@link DriverMetrics}: records nothing
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class NoopDriverMetrics implements DriverMetrics {
+
+    public static final NoopDriverMetrics INSTANCE = new NoopDriverMetrics();
+
+    private NoopDriverMetrics() { }
+
+    public void lookup(String name, String strategy, long nanos, boolean success) { }
+
+    public void cacheHit(String cache, String name) { }
+
+    public void cacheMiss(String cache, String name) { }
+
+    public void acquire(String name, long nanos, boolean success) { }
+
+    public void admission(String name, long nanos, int queued, boolean admitted) { }
+
+    public void leak(String name, long nanos, boolean reclaimed) { }
+
+    public void validation(String name, long nanos, boolean success) { }
+
+    public void registerPool(String name, PoolGauges pool) { }
+
+    public void unregisterPool(String name, PoolGauges pool) { }
+
+    public void call(String method) { }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class resolution cache, by class loader and class name, remembering
+ * classes, failed lookups ({@link ClassNotFoundException}) and shared
+ * instances (stateless {@link javax.naming.spi.ObjectFactory factories},
+ * JDBC {@link java.sql.Driver drivers}), so that repeated resolutions
+ * do no reflection at all.
+ * <p>Thread safe. Class loaders are kept referenced, this cache is meant
+ * for long lived ones (this driver's, by default).
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class ClassCache {
+
+    private static final ConcurrentMap<ClassLoader, ConcurrentMap<String, Entry>> loaders =
+            new ConcurrentHashMap<ClassLoader, ConcurrentMap<String, Entry>>();
+
+    private ClassCache() { }
+
+    /**
+     * @param className class name
+     * @return class, loaded by this driver's class loader
+     * @throws ClassNotFoundException (possibly cached) if not found
+     */
+    public static Class<?> forName(String className) throws ClassNotFoundException {
+        return forName(className, ClassCache.class.getClassLoader());
+    }
+
+    /**
+     * @param className class name
+     * @param loader class loader, {@code null} for the system one
+     * @return class
+     * @throws ClassNotFoundException (possibly cached) if not found
+     */
+    public static Class<?> forName(String className, ClassLoader loader) throws ClassNotFoundException {
+        return getEntry(className, loader).getType();
+    }
+
+    /**
+     * @param className class name
+     * @param type expected type
+     * @return shared instance, created by the class default constructor
+     * @throws ClassNotFoundException (possibly cached) if not found
+     * @throws ClassCastException if the class is not a {@code type}
+     * @throws ReflectiveOperationException if the class has no accessible default
+     * constructor, or could not be instantiated
+     */
+    public static <T> T getInstance(String className, Class<T> type) throws ReflectiveOperationException {
+        Entry entry = getEntry(className, ClassCache.class.getClassLoader());
+        Object instance = entry.instance;
+        if (instance == null) {
+            Class<? extends T> clazz = entry.getType().asSubclass(type);
+            synchronized (entry) {
+                instance = entry.instance;
+                if (instance == null)
+                    entry.instance = instance = clazz.getDeclaredConstructor().newInstance();
+            }
+        }
+        return type.cast(instance);
+    }
+
+    private static Entry getEntry(String className, ClassLoader loader) {
+        if (loader == null)
+            loader = ClassLoader.getSystemClassLoader();
+        ConcurrentMap<String, Entry> entries = loaders.get(loader);
+        if (entries == null) {
+            ConcurrentMap<String, Entry> created = new ConcurrentHashMap<String, Entry>();
+            entries = loaders.putIfAbsent(loader, created);
+            if (entries == null)
+                entries = created;
+        }
+        Entry entry = entries.get(className);
+        if (entry == null) {
+            Entry created;
+            try {
+                created = new Entry(Class.forName(className, true, loader), null);
+            } catch (ClassNotFoundException ex) {
+                created = new Entry(null, ex);
+            }
+            entry = entries.putIfAbsent(className, created);
+            if (entry == null)
+                entry = created;
+        }
+        return entry;
+    }
+
+    /** resolution result of one class name */
+    private static final class Entry {
+        final Class<?> type;
+        final ClassNotFoundException failure;
+        /** shared instance, see {@link ClassCache#getInstance(String, Class)} */
+        volatile Object instance;
+
+        Entry(Class<?> type, ClassNotFoundException failure) {
+            this.type = type;
+            this.failure = failure;
+        }
+
+        Class<?> getType() throws ClassNotFoundException {
+            if (type == null)
+                throw failure;
+            return type;
+        }
+    }
+}
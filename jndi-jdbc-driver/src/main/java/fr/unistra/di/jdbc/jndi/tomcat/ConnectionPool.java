@@ -0,0 +1,612 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+import fr.unistra.di.jdbc.jndi.metrics.PoolGauges;
+
+/**
+ * Lightweight {@link Connection} pool used by {@link PooledDriverDatasource}
+ * when no container pool is available.
+ * <p>Borrowing is bounded by a fair {@link Semaphore} of {@code maxActive}
+ * permits (waiting at most {@code maxWait} ms), idle connections are kept
+ * in a lock-free stack (the last given back is borrowed first, so that
+ * the others stay idle long enough to be evicted), and a background task
+ * evicts connections idle for more than {@code minEvictableIdleTimeMillis}
+ * while keeping {@code minIdle}.
+ * <p>With {@code poolPreparedStatements}, each physical connection keeps
+ * up to {@code maxOpenPreparedStatements} idle statements in a {@link StatementCache}.
+ * <p>With {@code testOnBorrow}, idle connections are validated by a
+ * {@link ConnectionValidator}, unless given back within {@code validationInterval} ms.
+ * <p>Active and idle gauges are published to {@link Metrics}, under the JDBC URL.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class ConnectionPool implements PoolGauges {
+
+    /** shared daemon thread for every pool eviction task */
+    private static final ScheduledExecutorService evictor =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "jndi-jdbc-pool-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final DriverDatasource source;
+    private final int maxActive;
+    private final int maxIdle;
+    private final int minIdle;
+    private final long maxWait;
+    private final String validationQuery;
+    private final boolean testOnBorrow;
+    private final ConnectionValidator validator;
+    private final long minEvictableIdleTimeMillis;
+    /** idle statements per physical connection, 0 for no statement cache */
+    private final int maxOpenPreparedStatements;
+
+    private final Semaphore permits;
+    /** idle connections, most recently used first */
+    private final ConcurrentLinkedDeque<PooledConnection> idle =
+            new ConcurrentLinkedDeque<PooledConnection>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ScheduledFuture<?> evictionTask;
+
+    /**
+     * @param source physical {@link Connection} provider
+     * @param config pool configuration
+     */
+    public ConnectionPool(DriverDatasource source, Config config) {
+        this.source = source;
+        this.maxActive = config.maxActive;
+        this.maxIdle = Math.min(config.maxIdle, config.maxActive);
+        this.minIdle = Math.min(config.minIdle, this.maxIdle);
+        this.maxWait = config.maxWait;
+        this.validationQuery = config.validationQuery == null || config.validationQuery.trim().length() == 0
+                ? null : config.validationQuery;
+        this.testOnBorrow = config.testOnBorrow;
+        this.validator = new ConnectionValidator(source.getUrl(), validationQuery,
+                config.validationQueryTimeout, config.validationInterval);
+        this.minEvictableIdleTimeMillis = config.minEvictableIdleTimeMillis;
+        this.maxOpenPreparedStatements = config.poolPreparedStatements
+                ? Math.max(0, config.maxOpenPreparedStatements) : 0;
+        this.permits = new Semaphore(maxActive, true);
+        if (config.timeBetweenEvictionRunsMillis > 0)
+            this.evictionTask = evictor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    evict();
+                }
+            }, config.timeBetweenEvictionRunsMillis, config.timeBetweenEvictionRunsMillis, TimeUnit.MILLISECONDS);
+        else
+            this.evictionTask = null;
+        Metrics.get().registerPool(source.getUrl(), this);
+    }
+
+    /**
+     * Borrow a {@link Connection} from the pool,
+     * waiting at most {@code maxWait} ms for one to be available
+     * @return pooled {@link Connection}, physically closed on
+     * {@link Connection#close()} only if not kept idle
+     * @throws SQLTransientConnectionException if none available in time
+     * @throws SQLException from the underlying {@link java.sql.Driver}
+     */
+    public Connection borrow() throws SQLException {
+        if (closed.get())
+            throw new SQLTransientConnectionException("Connection pool is closed");
+        try {
+            if (maxWait < 0)
+                permits.acquire();
+            else if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException(
+                        "Timeout: Pool empty. Unable to fetch a connection in " + maxWait + " ms, "
+                        + activeCount.get() + " in use");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", ex);
+        }
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null)
+                pooled = new PooledConnection(source.connect());
+            activeCount.incrementAndGet();
+            return pooled.handle();
+        } catch (SQLException ex) {
+            permits.release();
+            throw ex;
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /** pop a (valid if {@code testOnBorrow}, and not recently used) idle connection */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (!testOnBorrow || validator.isRecent(pooled.lastUsed) || validator.validate(pooled.physical))
+                return pooled;
+            pooled.close();
+        }
+        return null;
+    }
+
+    /** give back a borrowed connection */
+    void release(PooledConnection pooled) {
+        activeCount.decrementAndGet();
+        try {
+            if (closed.get() || !reset(pooled)) {
+                pooled.close();
+                return;
+            }
+            if (idleCount.incrementAndGet() > maxIdle) {
+                idleCount.decrementAndGet();
+                pooled.close();
+                return;
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+            if (closed.get())
+                clear();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** drop a borrowed connection that must not be reused (aborted) */
+    void discard(PooledConnection pooled) {
+        activeCount.decrementAndGet();
+        try {
+            pooled.close();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** rollback pending transaction, restore auto-commit,
+     * and any other setting changed by the borrower */
+    private boolean reset(PooledConnection pooled) {
+        Connection physical = pooled.physical;
+        try {
+            if (physical.isClosed())
+                return false;
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (pooled.dirty) {
+                pooled.restore();
+                pooled.dirty = false;
+            }
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /** evict connections idle for too long, then refill up to {@code minIdle} */
+    void evict() {
+        long deadline = System.currentTimeMillis() - minEvictableIdleTimeMillis;
+        for (PooledConnection pooled : idle)
+            if (idleCount.get() > minIdle && pooled.lastUsed < deadline && idle.remove(pooled)) {
+                idleCount.decrementAndGet();
+                pooled.close();
+            }
+        try {
+            fill(minIdle);
+        } catch (SQLException ex) {
+            // database unavailable, next run will retry
+        }
+    }
+
+    /**
+     * open physical connections until {@code count} are idle
+     * (bounded by {@code maxIdle})
+     * @param count number of idle connections wanted
+     * @throws SQLException from the underlying {@link java.sql.Driver}
+     */
+    public void fill(int count) throws SQLException {
+        count = Math.min(count, maxIdle);
+        while (!closed.get() && idleCount.get() < count) {
+            PooledConnection pooled = new PooledConnection(source.connect());
+            if (idleCount.incrementAndGet() > count) {
+                idleCount.decrementAndGet();
+                pooled.close();
+                return;
+            }
+            idle.offerLast(pooled);
+        }
+    }
+
+    /** close idle connections and refuse new borrows,
+     * active ones are physically closed when given back */
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            if (evictionTask != null)
+                evictionTask.cancel(false);
+            clear();
+            Metrics.get().unregisterPool(source.getUrl(), this);
+        }
+    }
+
+    private void clear() {
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            idleCount.decrementAndGet();
+            pooled.close();
+        }
+    }
+
+    private static String[] getSchema(Connection physical) throws SQLException {
+        try {
+            return new String[] { physical.getSchema() };
+        } catch (SQLFeatureNotSupportedException ex) {
+            return null;
+        } catch (AbstractMethodError err) {
+            // pre JDBC 4.1 driver
+            return null;
+        }
+    }
+
+    private static Map<String, Class<?>> getTypeMap(Connection physical) throws SQLException {
+        try {
+            Map<String, Class<?>> typeMap = physical.getTypeMap();
+            return typeMap == null ? null : new HashMap<String, Class<?>>(typeMap);
+        } catch (SQLFeatureNotSupportedException ex) {
+            return null;
+        }
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static void closeQuietly(Connection physical) {
+        try {
+            physical.close();
+        } catch (SQLException ex) { }
+    }
+
+    /**
+     * @return number of borrowed connections
+     */
+    public int getActive() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return number of idle connections
+     */
+    public int getIdle() {
+        return idleCount.get();
+    }
+
+    /**
+     * @return {@code minIdle} setting
+     */
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * @return {@code validationQuery} setting
+     */
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    /**
+     * @return borrowed connections validator
+     */
+    public ConnectionValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * Pool settings, named after Tomcat {@code Resource} attributes
+     */
+    public static class Config {
+        public int maxActive = 100;
+        public int maxIdle = 100;
+        public int minIdle = 0;
+        /** ms, negative value to wait forever */
+        public long maxWait = 30000;
+        public String validationQuery = null;
+        /** s, 0 for no timeout */
+        public int validationQueryTimeout = 5;
+        /** ms, see {@link ConnectionValidator} */
+        public long validationInterval = 3000;
+        public boolean testOnBorrow = false;
+        public long timeBetweenEvictionRunsMillis = 5000;
+        public long minEvictableIdleTimeMillis = 60000;
+        public boolean poolPreparedStatements = false;
+        /** idle statements kept per physical connection */
+        public int maxOpenPreparedStatements = 50;
+    }
+
+    /**
+     * Physical connection while in the pool
+     */
+    class PooledConnection {
+        final Connection physical;
+        /** {@code null} if statements are not cached */
+        final StatementCache statements;
+        volatile long lastUsed;
+        /** {@code true} once a borrower changed a setting restored by {@link #restore()} */
+        volatile boolean dirty;
+
+        /** settings of the physical connection, as created */
+        private final boolean readOnly;
+        private final int transactionIsolation;
+        private final int holdability;
+        private final String catalog;
+        /** {@code null} if not supported by the driver */
+        private final String[] schema;
+        /** {@code null} if not supported by the driver */
+        private final Map<String, Class<?>> typeMap;
+
+        /**
+         * @param physical new physical connection, closed on failure
+         * @throws SQLException if its settings could not be read
+         */
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            try {
+                this.readOnly = physical.isReadOnly();
+                this.transactionIsolation = physical.getTransactionIsolation();
+                this.holdability = physical.getHoldability();
+                this.catalog = physical.getCatalog();
+                this.schema = getSchema(physical);
+                this.typeMap = getTypeMap(physical);
+            } catch (SQLException ex) {
+                closeQuietly(physical);
+                throw ex;
+            }
+            this.statements = maxOpenPreparedStatements > 0
+                    ? new StatementCache(source.getUrl(), maxOpenPreparedStatements) : null;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /** restore settings that differ from the created ones */
+        void restore() throws SQLException {
+            if (physical.isReadOnly() != readOnly)
+                physical.setReadOnly(readOnly);
+            if (physical.getTransactionIsolation() != transactionIsolation)
+                physical.setTransactionIsolation(transactionIsolation);
+            if (physical.getHoldability() != holdability)
+                physical.setHoldability(holdability);
+            if (!equal(physical.getCatalog(), catalog))
+                physical.setCatalog(catalog);
+            if (schema != null && !equal(physical.getSchema(), schema[0]))
+                physical.setSchema(schema[0]);
+            if (typeMap != null && !typeMap.equals(physical.getTypeMap()))
+                physical.setTypeMap(typeMap);
+        }
+
+        /** flush cached statements, then physically close */
+        void close() {
+            if (statements != null)
+                statements.flush();
+            closeQuietly(physical);
+        }
+
+        /** new borrow handle on this physical connection */
+        Connection handle() {
+            return new Handle(this);
+        }
+    }
+
+    /**
+     * Borrowed {@link Connection}: {@link Connection#close()} closes the
+     * statements opened through it, and gives the physical connection back
+     * to the pool; {@link Connection#abort(Executor)} discards it
+     */
+    private class Handle extends ConnectionDecorator {
+        private final PooledConnection pooled;
+        private final AtomicBoolean released = new AtomicBoolean();
+        /** statements opened through this handle, closed on release */
+        private final List<Statement> statements = new ArrayList<Statement>();
+        /** size of {@link #statements} from which closed ones are dropped */
+        private int pruneAt = 16;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        protected Connection getDelegate() throws SQLException {
+            if (released.get())
+                throw new SQLException("Connection is closed", "08003");
+            return pooled.physical;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!released.compareAndSet(false, true))
+                return;
+            try {
+                closeStatements();
+            } finally {
+                release(pooled);
+            }
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return released.get() || pooled.physical.isClosed();
+        }
+
+        /** abort the physical connection, never pooled again, and give its permit back */
+        @Override
+        public void abort(Executor executor) throws SQLException {
+            if (executor == null)
+                throw new SQLException("executor is null");
+            if (!released.compareAndSet(false, true))
+                return;
+            called("abort");
+            try {
+                pooled.physical.abort(executor);
+            } finally {
+                discard(pooled);
+            }
+        }
+
+        /** remember a statement to close on release */
+        private <S extends Statement> S track(S statement) throws SQLException {
+            synchronized (statements) {
+                if (statements.size() >= pruneAt) {
+                    for (Iterator<Statement> it = statements.iterator(); it.hasNext();)
+                        if (it.next().isClosed())
+                            it.remove();
+                    pruneAt = Math.max(16, 2 * statements.size());
+                }
+                statements.add(statement);
+            }
+            return statement;
+        }
+
+        /** close statements left open by the borrower */
+        private void closeStatements() {
+            Statement[] open;
+            synchronized (statements) {
+                open = statements.toArray(new Statement[statements.size()]);
+                statements.clear();
+            }
+            for (Statement statement : open)
+                try {
+                    statement.close();
+                } catch (SQLException ex) {
+                    Metrics.LOGGER.log(Level.FINE, "Could not close statement", ex);
+                }
+        }
+
+        @Override
+        protected Statement decorateStatement(Statement statement) throws SQLException {
+            return track(super.decorateStatement(statement));
+        }
+
+        @Override
+        protected PreparedStatement decoratePreparedStatement(PreparedStatement statement, String sql)
+                throws SQLException {
+            return track(super.decoratePreparedStatement(statement, sql));
+        }
+
+        @Override
+        protected CallableStatement decorateCallableStatement(CallableStatement statement, String sql)
+                throws SQLException {
+            return track(super.decorateCallableStatement(statement, sql));
+        }
+
+        @Override
+        public void setReadOnly(boolean readOnly) throws SQLException {
+            pooled.dirty = true;
+            super.setReadOnly(readOnly);
+        }
+
+        @Override
+        public void setTransactionIsolation(int level) throws SQLException {
+            pooled.dirty = true;
+            super.setTransactionIsolation(level);
+        }
+
+        @Override
+        public void setHoldability(int holdability) throws SQLException {
+            pooled.dirty = true;
+            super.setHoldability(holdability);
+        }
+
+        @Override
+        public void setCatalog(String catalog) throws SQLException {
+            pooled.dirty = true;
+            super.setCatalog(catalog);
+        }
+
+        @Override
+        public void setSchema(String schema) throws SQLException {
+            pooled.dirty = true;
+            super.setSchema(schema);
+        }
+
+        @Override
+        public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+            pooled.dirty = true;
+            super.setTypeMap(map);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            if (pooled.statements == null)
+                return super.prepareStatement(sql);
+            called("prepareStatement");
+            return track(pooled.statements.prepare(this, getDelegate(), sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int resultSetType,
+                int resultSetConcurrency) throws SQLException {
+            if (pooled.statements == null)
+                return super.prepareStatement(sql, resultSetType, resultSetConcurrency);
+            called("prepareStatement");
+            return track(pooled.statements.prepare(this, getDelegate(), sql,
+                    resultSetType, resultSetConcurrency));
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int resultSetType,
+                int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+            if (pooled.statements == null)
+                return super.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+            called("prepareStatement");
+            return track(pooled.statements.prepare(this, getDelegate(), sql,
+                    resultSetType, resultSetConcurrency, resultSetHoldability));
+        }
+
+        @Override
+        public String toString() {
+            return "Pooled[" + pooled.physical + "]";
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Validation of pooled connections.
+ * <p>{@link Connection#isValid(int)} is preferred, the
+ * {@code validationQuery} round trip being only used with drivers not
+ * supporting it (or, with no query, the connection is assumed valid).
+ * <p>Connections given back to the pool less than
+ * {@code validationInterval} ms ago are not validated again. While
+ * validations keep succeeding, this window doubles every
+ * {@link #BACKOFF_STEP} successes, up to 8 times its configured value;
+ * a single failure brings it back.
+ * <p>Validation latency is recorded by {@link Metrics}, by pool name.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class ConnectionValidator {
+
+    /** consecutive successful validations doubling the skip window */
+    public static final int BACKOFF_STEP = 32;
+    private static final int MAX_BACKOFF_SHIFT = 3;
+
+    private final String name;
+    private final String validationQuery;
+    private final int timeout;
+    private final long validationInterval;
+    /** {@code false} once the driver failed to support {@link Connection#isValid(int)} */
+    private volatile boolean isValidSupported = true;
+    private final AtomicLong successes = new AtomicLong();
+
+    /**
+     * @param name pool name
+     * @param validationQuery query, used if {@link Connection#isValid(int)}
+     * is not supported, may be {@code null}
+     * @param timeout validation timeout (s), 0 for none
+     * @param validationInterval ms since the connection was given back
+     * within which it is not validated, 0 to always validate
+     */
+    public ConnectionValidator(String name, String validationQuery, int timeout, long validationInterval) {
+        this.name = name;
+        this.validationQuery = validationQuery;
+        this.timeout = Math.max(0, timeout);
+        this.validationInterval = Math.max(0, validationInterval);
+    }
+
+    /**
+     * @return current skip window (ms), backed off from {@code validationInterval}
+     */
+    public long getInterval() {
+        int shift = (int) Math.min(successes.get() / BACKOFF_STEP, MAX_BACKOFF_SHIFT);
+        return validationInterval << shift;
+    }
+
+    /**
+     * @param lastUsed time (ms) the connection was given back to the pool
+     * @return {@code true} if the connection need not be validated
+     */
+    public boolean isRecent(long lastUsed) {
+        return validationInterval > 0 && System.currentTimeMillis() - lastUsed < getInterval();
+    }
+
+    /**
+     * @param physical connection to validate
+     * @return {@code true} if valid
+     */
+    public boolean validate(Connection physical) {
+        long start = Metrics.start();
+        boolean valid = isValid(physical);
+        Metrics.get().validation(name, Metrics.since(start), valid);
+        if (valid)
+            successes.incrementAndGet();
+        else
+            successes.set(0);
+        return valid;
+    }
+
+    private boolean isValid(Connection physical) {
+        if (isValidSupported)
+            try {
+                return physical.isValid(timeout);
+            } catch (SQLFeatureNotSupportedException ex) {
+                isValidSupported = false;
+            } catch (AbstractMethodError err) {
+                // pre JDBC 4 driver
+                isValidSupported = false;
+            } catch (SQLException ex) {
+                return false;
+            }
+        if (validationQuery == null)
+            return true;
+        Statement stmt = null;
+        try {
+            stmt = physical.createStatement();
+            if (timeout > 0)
+                stmt.setQueryTimeout(timeout);
+            stmt.execute(validationQuery);
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        } finally {
+            if (stmt != null)
+                try {
+                    stmt.close();
+                } catch (SQLException ex) { }
+        }
+    }
+}
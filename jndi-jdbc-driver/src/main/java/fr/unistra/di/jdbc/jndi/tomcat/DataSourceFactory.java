@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NamingException;
+import javax.naming.RefAddr;
+import javax.naming.Reference;
+import javax.naming.spi.ObjectFactory;
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * {@link ObjectFactory} of any JavaBean {@link DataSource} class
+ * (HikariCP {@code HikariDataSource}, drivers' own DataSources...),
+ * so that pools shipping no {@link ObjectFactory} can be used as
+ * {@code -Djavax.sql.DataSource.Factory}.
+ * <p>The DataSource is built by its default constructor, then each
+ * {@link Reference} attribute is given to the matching setter (property
+ * name ignoring case, or a usual alias of Tomcat attributes, as
+ * {@code username} → {@code setUser}, {@code url} → {@code setJdbcUrl},
+ * {@code maxActive} → {@code setMaximumPoolSize}), converted to its
+ * parameter type. Attributes without setter are ignored.
+ * <p>Setters of a class are looked up once, and cached.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class DataSourceFactory implements ObjectFactory {
+
+    /** Tomcat attribute (lower case) → other usual property names */
+    private static final Map<String, String[]> ALIASES = new HashMap<String, String[]>();
+    static {
+        ALIASES.put("username", new String[] { "user" });
+        ALIASES.put("user", new String[] { "username" });
+        ALIASES.put("url", new String[] { "jdbcurl", "databaseurl" });
+        ALIASES.put("maxactive", new String[] { "maximumpoolsize", "maxtotal", "maxpoolsize" });
+        ALIASES.put("minidle", new String[] { "minimumidle", "minpoolsize" });
+        ALIASES.put("maxwait", new String[] { "connectiontimeout", "maxwaitmillis" });
+        ALIASES.put("validationquery", new String[] { "connectiontestquery" });
+        ALIASES.put("connectionproperties", new String[] { "datasourceproperties" });
+    }
+
+    /** class → setter by lower case property name */
+    private static final ConcurrentMap<Class<?>, Map<String, Method>> setters =
+            new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+    private final Class<? extends DataSource> dataSourceClass;
+
+    /**
+     * @param dataSourceClass JavaBean {@link DataSource} class,
+     * with a public default constructor
+     */
+    public DataSourceFactory(Class<? extends DataSource> dataSourceClass) {
+        this.dataSourceClass = dataSourceClass;
+    }
+
+    public Class<? extends DataSource> getDataSourceClass() {
+        return dataSourceClass;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.naming.spi.ObjectFactory#getObjectInstance(java.lang.Object, javax.naming.Name, javax.naming.Context, java.util.Hashtable)
+     */
+    public Object getObjectInstance(Object obj, Name name, Context nameCtx,
+            Hashtable<?, ?> environment) throws Exception {
+
+        // only handle non-null Reference objects
+        if ((obj == null) || !(obj instanceof Reference))
+            return null;
+
+        DataSource ds = dataSourceClass.getConstructor().newInstance();
+        Map<String, Method> classSetters = getSetters(dataSourceClass);
+        Enumeration<RefAddr> attrs = ((Reference) obj).getAll();
+        while (attrs.hasMoreElements()) {
+            RefAddr attr = attrs.nextElement();
+            Object content = attr.getContent();
+            if (content == null)
+                continue;
+            Method setter = getSetter(classSetters, attr.getType());
+            if (setter == null) {
+                Metrics.LOGGER.log(Level.FINE, "No {0} property in {1}",
+                        new Object[] { attr.getType(), dataSourceClass.getName() });
+                continue;
+            }
+            try {
+                setter.invoke(ds, convert(content.toString(), setter.getParameterTypes()[0]));
+            } catch (InvocationTargetException ex) {
+                throw (NamingException) new NamingException("Could not set " + attr.getType()
+                        + " of " + dataSourceClass.getName()).initCause(ex.getCause());
+            } catch (IllegalArgumentException ex) {
+                throw (NamingException) new NamingException("Invalid " + attr.getType()
+                        + " value: " + content).initCause(ex);
+            }
+        }
+        return ds;
+    }
+
+    /**
+     * @param clazz JavaBean class
+     * @return cached setters of {@code clazz}, by lower case property name
+     */
+    static Map<String, Method> getSetters(Class<?> clazz) {
+        Map<String, Method> classSetters = setters.get(clazz);
+        if (classSetters == null) {
+            Map<String, Method> found = new HashMap<String, Method>();
+            for (Method method : clazz.getMethods()) {
+                if (!method.getName().startsWith("set") || method.getName().length() == 3
+                        || method.getParameterTypes().length != 1
+                        || Modifier.isStatic(method.getModifiers()))
+                    continue;
+                Class<?> type = method.getParameterTypes()[0];
+                if (!isConvertible(type))
+                    continue;
+                String property = method.getName().substring(3).toLowerCase(Locale.ROOT);
+                Method previous = found.get(property);
+                // on overloaded setters, prefer the String one
+                if (previous == null || type == String.class)
+                    found.put(property, method);
+            }
+            Map<String, Method> created = Collections.unmodifiableMap(found);
+            classSetters = setters.putIfAbsent(clazz, created);
+            if (classSetters == null)
+                classSetters = created;
+        }
+        return classSetters;
+    }
+
+    private static Method getSetter(Map<String, Method> classSetters, String attribute) {
+        String property = attribute.toLowerCase(Locale.ROOT);
+        Method setter = classSetters.get(property);
+        String[] aliases = ALIASES.get(property);
+        if (setter == null && aliases != null)
+            for (int i = 0; setter == null && i < aliases.length; i++)
+                setter = classSetters.get(aliases[i]);
+        return setter;
+    }
+
+    private static boolean isConvertible(Class<?> type) {
+        return type == String.class || type.isPrimitive() && type != char.class
+                || Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang.")
+                || type == Boolean.class || type == Properties.class || type.isEnum();
+    }
+
+    /**
+     * @param value attribute value
+     * @param type setter parameter type, see {@link #isConvertible(Class)}
+     * @return converted value
+     * @throws IllegalArgumentException if not convertible
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object convert(String value, Class<?> type) {
+        if (type == String.class)
+            return value;
+        String trimmed = value.trim();
+        if (type == int.class || type == Integer.class)
+            return Integer.valueOf(trimmed);
+        if (type == long.class || type == Long.class)
+            return Long.valueOf(trimmed);
+        if (type == boolean.class || type == Boolean.class)
+            return Boolean.valueOf(trimmed);
+        if (type == short.class || type == Short.class)
+            return Short.valueOf(trimmed);
+        if (type == byte.class || type == Byte.class)
+            return Byte.valueOf(trimmed);
+        if (type == double.class || type == Double.class)
+            return Double.valueOf(trimmed);
+        if (type == float.class || type == Float.class)
+            return Float.valueOf(trimmed);
+        if (type == Properties.class) {
+            // Tomcat connectionProperties syntax: key=value;key=value
+            Properties props = new Properties();
+            for (String pair : trimmed.split(";")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0)
+                    props.setProperty(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+            return props;
+        }
+        if (type.isEnum())
+            return Enum.valueOf((Class<? extends Enum>) type, trimmed);
+        throw new IllegalArgumentException("Unsupported property type " + type.getName());
+    }
+}
@@ -16,9 +16,14 @@
 package fr.unistra.di.jdbc.jndi.tomcat;
 
 import java.sql.Driver;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import javax.naming.Context;
 import javax.naming.Name;
@@ -26,13 +31,35 @@ import javax.naming.RefAddr;
 import javax.naming.Reference;
 import javax.naming.StringRefAddr;
 import javax.naming.spi.ObjectFactory;
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.fallback.FailoverDataSource;
 
 /**
+ * Last-Resort {@link ObjectFactory} building a {@link DriverDatasource}
+ * from {@code driverClassName}, {@code url} and {@code username} attributes.
+ * <p>If a {@code maxActive} attribute is provided, connections are pooled
+ * by a {@link PooledDriverDatasource} configured with the usual Tomcat
+ * attributes ({@code maxActive}, {@code maxIdle}, {@code minIdle},
+ * {@code maxWait}, {@code validationQuery}, {@code validationQueryTimeout},
+ * {@code validationInterval}, {@code testOnBorrow},
+ * {@code timeBetweenEvictionRunsMillis}, {@code minEvictableIdleTimeMillis},
+ * {@code poolPreparedStatements}, {@code maxOpenPreparedStatements}).
+ * <p>A comma separated list of JDBC URLs builds a {@link FailoverDataSource}
+ * of one (pooled) {@link DriverDatasource} per URL.
+ *
  * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
  *
  */
 public class DriverDataSourceFactory implements ObjectFactory {
 
+    /** pool attributes, not given to the JDBC {@link Driver} */
+    private static final Set<String> POOL_ATTRIBUTES = new HashSet<String>(Arrays.asList(
+            "maxActive", "maxIdle", "minIdle", "maxWait",
+            "validationQuery", "validationQueryTimeout", "validationInterval", "testOnBorrow",
+            "timeBetweenEvictionRunsMillis", "minEvictableIdleTimeMillis",
+            "poolPreparedStatements", "maxOpenPreparedStatements"));
+
     /* (non-Javadoc)
      * @see javax.naming.spi.ObjectFactory#getObjectInstance(java.lang.Object, javax.naming.Name, javax.naming.Context, java.util.Hashtable)
      */
@@ -45,7 +72,7 @@ public class DriverDataSourceFactory implements ObjectFactory {
 
         Reference ref = (Reference) obj;
         String driverClassName = getAttr(ref, "driverClassName");
-        Driver driver = (Driver) Class.forName(driverClassName).newInstance();
+        Driver driver = ClassCache.getInstance(driverClassName, Driver.class);
         String url = getAttr(ref, "url");
 
         Properties props = new Properties();
@@ -53,7 +80,7 @@ public class DriverDataSourceFactory implements ObjectFactory {
         while (attrs.hasMoreElements()) {
             RefAddr attr = (RefAddr) attrs.nextElement();
             String key = attr.getType();
-            if ("driverClassName".equals(key) || "url".equals(key))
+            if ("driverClassName".equals(key) || "url".equals(key) || POOL_ATTRIBUTES.contains(key))
                 continue;
             if ("username".equals(key))
                 props.put("user", attr.getContent());
@@ -61,7 +88,63 @@ public class DriverDataSourceFactory implements ObjectFactory {
                 props.put(key, attr.getContent());
         }
 
-        return new DriverDatasource(driver, url, props);
+        String[] urls = url == null ? new String[] { null } : url.trim().split("\\s*,\\s*(?=jdbc:)");
+        if (urls.length == 1)
+            return newDataSource(ref, driver, url, props);
+        List<DataSource> members = new ArrayList<DataSource>(urls.length);
+        for (String memberUrl : urls)
+            members.add(newDataSource(ref, driver, memberUrl, props));
+        return new FailoverDataSource(members, getAttr(ref, "validationQuery"));
+    }
+
+    /**
+     * @return {@link PooledDriverDatasource} if {@code maxActive} is set,
+     * {@link DriverDatasource} otherwise
+     */
+    private DriverDatasource newDataSource(Reference ref, Driver driver, String url, Properties props) {
+        if (getAttr(ref, "maxActive") == null)
+            return new DriverDatasource(driver, url, props);
+        return new PooledDriverDatasource(driver, url, props, getPoolConfig(ref));
+    }
+
+    /**
+     * @return pool settings from {@link Reference} attributes
+     */
+    protected ConnectionPool.Config getPoolConfig(Reference ref) {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.maxActive = (int) getLongAttr(ref, "maxActive", config.maxActive);
+        config.maxIdle = (int) getLongAttr(ref, "maxIdle", config.maxActive);
+        config.minIdle = (int) getLongAttr(ref, "minIdle", config.minIdle);
+        config.maxWait = getLongAttr(ref, "maxWait", config.maxWait);
+        config.validationQuery = getAttr(ref, "validationQuery");
+        config.validationQueryTimeout = (int) getLongAttr(ref,
+                "validationQueryTimeout", config.validationQueryTimeout);
+        config.validationInterval = getLongAttr(ref, "validationInterval", config.validationInterval);
+        String testOnBorrow = getAttr(ref, "testOnBorrow");
+        if (testOnBorrow != null)
+            config.testOnBorrow = Boolean.parseBoolean(testOnBorrow.trim());
+        config.timeBetweenEvictionRunsMillis = getLongAttr(ref,
+                "timeBetweenEvictionRunsMillis", config.timeBetweenEvictionRunsMillis);
+        config.minEvictableIdleTimeMillis = getLongAttr(ref,
+                "minEvictableIdleTimeMillis", config.minEvictableIdleTimeMillis);
+        String poolPreparedStatements = getAttr(ref, "poolPreparedStatements");
+        if (poolPreparedStatements != null)
+            config.poolPreparedStatements = Boolean.parseBoolean(poolPreparedStatements.trim());
+        config.maxOpenPreparedStatements = (int) getLongAttr(ref,
+                "maxOpenPreparedStatements", config.maxOpenPreparedStatements);
+        return config;
+    }
+
+    public static long getLongAttr(Reference ref, String key, long defaultValue)
+    {
+        String value = getAttr(ref, key);
+        if (value == null || value.trim().length() == 0)
+            return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
     }
 
     public static String getAttr(Reference ref, String key)
@@ -20,7 +20,17 @@ import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -28,13 +38,26 @@ import javax.sql.DataSource;
 /**
  * Minimalist {@link DataSource} implementation
  * delegating to a {@link Driver} object
+ * <p>With a {@link #setLoginTimeout(int) login timeout}, connects run
+ * on a daemon thread and are given up after it, the connection
+ * established too late being closed.
  * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
  */
 public class DriverDatasource implements DataSource {
 
+    private static final ExecutorService connectors = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jndi-jdbc-connect");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private Driver driver;
     private String url;
     private Properties props;
+    /** seconds, 0 for none */
+    private volatile int loginTimeout;
 
     public DriverDatasource(Driver driver, String url, Properties props) {
         this.driver = driver;
@@ -46,11 +69,88 @@ public class DriverDatasource implements DataSource {
         return driver;
     }
 
+    public String getUrl() {
+        return url;
+    }
+
     /* (non-Javadoc)
      * @see javax.sql.DataSource#getConnection()
      */
     public Connection getConnection() throws SQLException {
-        return driver.connect(url, props);
+        return connect();
+    }
+
+    /**
+     * open a new physical {@link Connection}
+     * @throws SQLException from the {@link Driver}
+     */
+    protected Connection connect() throws SQLException {
+        int seconds = loginTimeout;
+        if (seconds == 0)
+            return driver.connect(url, props);
+        Connect connect = new Connect();
+        connectors.execute(connect);
+        try {
+            return connect.get(seconds, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            connect.abandon();
+            throw new SQLTimeoutException("Could not connect to " + url + " within " + seconds + "s", "08001", ex);
+        } catch (InterruptedException ex) {
+            connect.abandon();
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while connecting", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new SQLException(cause);
+        }
+    }
+
+    /** {@link Driver#connect(String, Properties)} which may be abandoned */
+    private final class Connect extends FutureTask<Connection> {
+
+        Connect() {
+            super(new Callable<Connection>() {
+                public Connection call() throws SQLException {
+                    return driver.connect(url, props);
+                }
+            });
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.FutureTask#set(java.lang.Object)
+         */
+        @Override
+        protected void set(Connection conn) {
+            super.set(conn);
+            if (isCancelled())
+                close(conn);
+        }
+
+        /** cancel, or close the connection if already established */
+        void abandon() {
+            if (cancel(true))
+                return;
+            try {
+                close(get());
+            } catch (Exception ex) {
+                // failed anyway
+            }
+        }
+
+        private void close(Connection conn) {
+            if (conn != null)
+                try {
+                    conn.close();
+                } catch (SQLException ex) {
+                    // given up connection
+                }
+        }
     }
 
     /* (non-Javadoc)
@@ -71,14 +171,14 @@ public class DriverDatasource implements DataSource {
      * @see javax.sql.CommonDataSource#setLoginTimeout(int)
      */
     public void setLoginTimeout(int seconds) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        this.loginTimeout = Math.max(0, seconds);
     }
 
     /* (non-Javadoc)
      * @see javax.sql.CommonDataSource#getLoginTimeout()
      */
     public int getLoginTimeout() throws SQLException {
-        return 0;
+        return loginTimeout;
     }
 
     /* (non-Javadoc)
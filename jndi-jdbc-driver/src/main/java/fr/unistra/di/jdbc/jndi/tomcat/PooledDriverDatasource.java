@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * {@link DriverDatasource} keeping physical connections
+ * in a {@link ConnectionPool}
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class PooledDriverDatasource extends DriverDatasource implements Closeable {
+
+    private final ConnectionPool pool;
+
+    public PooledDriverDatasource(Driver driver, String url, Properties props,
+            ConnectionPool.Config config) {
+        super(driver, url, props);
+        this.pool = new ConnectionPool(this, config);
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.tomcat.DriverDatasource#getConnection()
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return pool.borrow();
+    }
+
+    /**
+     * close the underlying {@link ConnectionPool}
+     */
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import javax.naming.Reference;
+import javax.sql.DataSource;
+
+import fr.unistra.di.jdbc.jndi.decorator.ConnectionDecorator;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * {@link DataSource} whose target can be swapped at runtime
+ * (server.xml {@code Resource} changed), without failing nor
+ * blocking callers.
+ * <p>After {@link #swap(DataSource, List)}, new connections come from the
+ * new DataSource, while the old one drains: it gets no new borrow, and is
+ * closed (if {@link Closeable}) once its last connection is closed.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ * @see ServerXMLWatcher
+ */
+public class ReloadableDataSource implements DataSource, Closeable {
+
+    private final AtomicReference<Generation> current;
+
+    /**
+     * @param dataSource initial target
+     * @param references {@link Reference}s it was built from
+     */
+    public ReloadableDataSource(DataSource dataSource, List<Reference> references) {
+        this.current = new AtomicReference<Generation>(new Generation(dataSource, references));
+    }
+
+    /**
+     * @return current target
+     */
+    public DataSource getDataSource() {
+        return current.get().dataSource;
+    }
+
+    /**
+     * @return {@link Reference}s the current target was built from
+     */
+    public List<Reference> getReferences() {
+        return current.get().references;
+    }
+
+    /**
+     * atomically replace the target, the previous one being drained
+     * @param dataSource new target
+     * @param references {@link Reference}s it was built from
+     */
+    public void swap(DataSource dataSource, List<Reference> references) {
+        Generation previous = current.getAndSet(new Generation(dataSource, references));
+        previous.drain();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.DataSource#getConnection()
+     */
+    public Connection getConnection() throws SQLException {
+        while (true) {
+            Generation generation = current.get();
+            if (!generation.enter())
+                continue; // swapped meanwhile, retry on the new one
+            try {
+                return new Borrowed(generation, generation.dataSource.getConnection());
+            } catch (SQLException ex) {
+                generation.exit();
+                throw ex;
+            } catch (RuntimeException ex) {
+                generation.exit();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * drain the current target
+     */
+    public void close() {
+        current.get().drain();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.DataSource#getConnection(java.lang.String, java.lang.String)
+     */
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#getLogWriter()
+     */
+    public PrintWriter getLogWriter() throws SQLException {
+        return getDataSource().getLogWriter();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#setLogWriter(java.io.PrintWriter)
+     */
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        getDataSource().setLogWriter(out);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#setLoginTimeout(int)
+     */
+    public void setLoginTimeout(int seconds) throws SQLException {
+        getDataSource().setLoginTimeout(seconds);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#getLoginTimeout()
+     */
+    public int getLoginTimeout() throws SQLException {
+        return getDataSource().getLoginTimeout();
+    }
+
+    /* (non-Javadoc)
+     * @see javax.sql.CommonDataSource#getParentLogger()
+     */
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return Metrics.LOGGER;
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Wrapper#unwrap(java.lang.Class)
+     */
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return getDataSource().unwrap(iface);
+    }
+
+    /* (non-Javadoc)
+     * @see java.sql.Wrapper#isWrapperFor(java.lang.Class)
+     */
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || getDataSource().isWrapperFor(iface);
+    }
+
+    /**
+     * One target, with its connections in use
+     */
+    private static final class Generation {
+        final DataSource dataSource;
+        final List<Reference> references;
+        final AtomicInteger inUse = new AtomicInteger();
+        volatile boolean draining;
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        Generation(DataSource dataSource, List<Reference> references) {
+            this.dataSource = dataSource;
+            this.references = references;
+        }
+
+        /** @return {@code false} if draining (no new borrow) */
+        boolean enter() {
+            inUse.incrementAndGet();
+            if (!draining)
+                return true;
+            exit();
+            return false;
+        }
+
+        void exit() {
+            if (inUse.decrementAndGet() == 0 && draining)
+                closeDataSource();
+        }
+
+        void drain() {
+            draining = true;
+            if (inUse.get() == 0)
+                closeDataSource();
+        }
+
+        private void closeDataSource() {
+            if (closed.compareAndSet(false, true) && dataSource instanceof Closeable)
+                try {
+                    ((Closeable) dataSource).close();
+                } catch (IOException ex) {
+                    Metrics.LOGGER.warning("could not close drained DataSource: " + ex);
+                }
+        }
+    }
+
+    /**
+     * {@link Connection} counted in use by its {@link Generation} until closed
+     */
+    private static final class Borrowed extends ConnectionDecorator {
+        private final Generation generation;
+        private final Connection physical;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Borrowed(Generation generation, Connection physical) {
+            this.generation = generation;
+            this.physical = physical;
+        }
+
+        @Override
+        protected Connection getDelegate() throws SQLException {
+            return physical;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                physical.close();
+            } finally {
+                if (released.compareAndSet(false, true))
+                    generation.exit();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.Reference;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Immutable name → {@link Reference} index of a Tomcat server.xml
+ * {@code GlobalNamingResources}, parsed once and parsed again only
+ * when the file modification time or size changes.
+ * <p>The file is checked at most once per {@link #CHECK_INTERVAL_PROPERTY}
+ * milliseconds (default 5000, 0 to check on every lookup,
+ * negative never to check again), lookups are then plain hash hits.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public class ServerXMLIndex {
+
+    /** System property: minimum delay (ms) between two server.xml checks */
+    public static final String CHECK_INTERVAL_PROPERTY = "fr.unistra.di.jdbc.jndi.tomcat.checkInterval";
+
+    private final File file;
+    private final long checkInterval;
+
+    private volatile Snapshot snapshot;
+    private volatile long nextCheck;
+
+    public ServerXMLIndex(File file) {
+        this(file, Long.getLong(CHECK_INTERVAL_PROPERTY, 5000L));
+    }
+
+    public ServerXMLIndex(File file, long checkInterval) {
+        this.file = file;
+        this.checkInterval = checkInterval;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @param name resource name
+     * @return a copy of the indexed {@link Reference}
+     * @throws NameNotFoundException if no such resource
+     * @throws FileNotFoundException if server.xml could not be read
+     * @throws XMLStreamException if server.xml could not be parsed
+     */
+    public Reference get(String name)
+            throws FileNotFoundException, XMLStreamException, NameNotFoundException {
+        Reference ref = getResources().get(name);
+        if (ref == null)
+            throw new NameNotFoundException(MessageFormat.format(
+                    "Could not find ressource {1} in {0}",
+                    new Object[] { file.getPath(), name }
+                    ));
+        return (Reference) ref.clone();
+    }
+
+    /**
+     * @param name resource name
+     * @return copies of every {@link Reference} declared with this name,
+     * in document order
+     * @throws NameNotFoundException if no such resource
+     * @throws FileNotFoundException if server.xml could not be read
+     * @throws XMLStreamException if server.xml could not be parsed
+     */
+    public List<Reference> getMembers(String name)
+            throws FileNotFoundException, XMLStreamException, NameNotFoundException {
+        getResources();
+        List<Reference> refs = snapshot.members.get(name);
+        if (refs == null)
+            throw new NameNotFoundException(MessageFormat.format(
+                    "Could not find ressource {1} in {0}",
+                    new Object[] { file.getPath(), name }
+                    ));
+        List<Reference> copies = new ArrayList<Reference>(refs.size());
+        for (Reference ref : refs)
+            copies.add((Reference) ref.clone());
+        return copies;
+    }
+
+    /**
+     * @return up to date, unmodifiable, resources index
+     * @throws FileNotFoundException if server.xml could not be read
+     * @throws XMLStreamException if server.xml could not be parsed
+     */
+    public Map<String, Reference> getResources()
+            throws FileNotFoundException, XMLStreamException {
+        Snapshot current = snapshot;
+        if (current != null && (checkInterval < 0 || System.currentTimeMillis() < nextCheck))
+            return current.resources;
+        return refresh(false);
+    }
+
+    /**
+     * check server.xml now, whatever the check interval
+     * (file changed notification)
+     * @return up to date, unmodifiable, resources index
+     * @throws FileNotFoundException if server.xml could not be read
+     * @throws XMLStreamException if server.xml could not be parsed
+     */
+    public Map<String, Reference> reload()
+            throws FileNotFoundException, XMLStreamException {
+        return refresh(true);
+    }
+
+    /** re-parse server.xml if changed, one thread at a time */
+    private synchronized Map<String, Reference> refresh(boolean force)
+            throws FileNotFoundException, XMLStreamException {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (!force && current != null && (checkInterval < 0 || now < nextCheck))
+            return current.resources;
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (current == null || current.lastModified != lastModified || current.length != length) {
+            current = new Snapshot(lastModified, length, ServerXMLReader.readAllMembers(file));
+            snapshot = current;
+        }
+        nextCheck = now + checkInterval;
+        return current.resources;
+    }
+
+    /** parsed server.xml, with the file state it was parsed from */
+    private static final class Snapshot {
+        final long lastModified;
+        final long length;
+        /** first resource of each name */
+        final Map<String, Reference> resources;
+        /** every resource of each name */
+        final Map<String, List<Reference>> members;
+
+        Snapshot(long lastModified, long length, Map<String, List<Reference>> members) {
+            this.lastModified = lastModified;
+            this.length = length;
+            Map<String, Reference> first = new HashMap<String, Reference>();
+            for (Map.Entry<String, List<Reference>> entry : members.entrySet())
+                first.put(entry.getKey(), entry.getValue().get(0));
+            this.resources = Collections.unmodifiableMap(first);
+            this.members = Collections.unmodifiableMap(new HashMap<String, List<Reference>>(members));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.Reference;
+import javax.naming.StringRefAddr;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming (StAX) reader of Tomcat server.xml
+ * {@code /Server/GlobalNamingResources/Resource} elements.
+ * <p>No DOM is built: other elements are only skipped over, and reading
+ * stops at the end of {@code GlobalNamingResources}, so that
+ * {@code Service}, {@code Connector}, {@code Engine} and {@code Host}
+ * elements usually following it are never read.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class ServerXMLReader {
+
+    private static final String[] PATH = { "Server", "GlobalNamingResources", "Resource" };
+
+    private static final XMLInputFactory xmlInputFactory = newXMLInputFactory();
+
+    private ServerXMLReader() { }
+
+    private static XMLInputFactory newXMLInputFactory() {
+        XMLInputFactory xif = XMLInputFactory.newInstance();
+        xif.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        xif.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        xif.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        return xif;
+    }
+
+    /**
+     * read every resource of server.xml in one pass
+     * (first one wins on duplicate names)
+     * @param file server.xml
+     * @return name → {@link Reference} index, in document order
+     * @throws FileNotFoundException if server.xml could not be read
+     * @throws XMLStreamException if server.xml could not be parsed
+     */
+    public static Map<String, Reference> readAll(File file)
+            throws FileNotFoundException, XMLStreamException {
+        Map<String, Reference> resources = new LinkedHashMap<String, Reference>();
+        for (Map.Entry<String, List<Reference>> entry : readAllMembers(file).entrySet())
+            resources.put(entry.getKey(), entry.getValue().get(0));
+        return resources;
+    }
+
+    /**
+     * read every resource of server.xml in one pass,
+     * keeping every resource declared with the same name
+     * (failover members, see {@link fr.unistra.di.jdbc.jndi.fallback.FailoverDataSource})
+     * @param file server.xml
+     * @return name → {@link Reference}s index, in document order
+     * @throws FileNotFoundException if server.xml could not be read
+     * @throws XMLStreamException if server.xml could not be parsed
+     */
+    public static Map<String, List<Reference>> readAllMembers(File file)
+            throws FileNotFoundException, XMLStreamException {
+        Map<String, List<Reference>> resources = new LinkedHashMap<String, List<Reference>>();
+        read(file, resources);
+        return resources;
+    }
+
+    private static void read(File file, Map<String, List<Reference>> resources)
+            throws FileNotFoundException, XMLStreamException {
+        InputStream in = new FileInputStream(file);
+        try {
+            XMLStreamReader xml;
+            synchronized (xmlInputFactory) {
+                xml = xmlInputFactory.createXMLStreamReader(file.getPath(), in);
+            }
+            try {
+                read(xml, resources);
+            } finally {
+                xml.close();
+            }
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ex) { }
+        }
+    }
+
+    private static void read(XMLStreamReader xml, Map<String, List<Reference>> resources)
+            throws XMLStreamException {
+        // depth of current element : 1 for Server, 2 for GlobalNamingResources...
+        int depth = 0;
+        // depth of the deepest /Server/GlobalNamingResources/Resource ancestor matched
+        int matched = 0;
+        while (xml.hasNext()) {
+            switch (xml.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                if (matched == depth - 1 && depth <= 3
+                        && xml.getLocalName().equals(PATH[depth - 1])) {
+                    matched = depth;
+                    if (depth == 3) {
+                        String name = xml.getAttributeValue(null, "name");
+                        if (name != null) {
+                            List<Reference> members = resources.get(name);
+                            if (members == null) {
+                                members = new ArrayList<Reference>(1);
+                                resources.put(name, members);
+                            }
+                            members.add(toReference(xml));
+                        }
+                    }
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                if (matched == depth) {
+                    matched--;
+                    // end of GlobalNamingResources : nothing more to read
+                    if (depth == 2)
+                        return;
+                }
+                depth--;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param xml reader positioned on a {@code Resource} start element
+     */
+    private static Reference toReference(XMLStreamReader xml) {
+        String type = xml.getAttributeValue(null, "type");
+        String factory = xml.getAttributeValue(null, "factory");
+
+        Reference ref = new Reference(type, factory, null);
+        for (int i = 0; i < xml.getAttributeCount(); i++) {
+            String name = xml.getAttributeLocalName(i);
+            if ("name".equals(name) || "type".equals(name) || "factory".equals(name))
+                continue;
+            String value = xml.getAttributeValue(i);
+            ref.add(new StringRefAddr(name, value));
+        }
+        return ref;
+    }
+}
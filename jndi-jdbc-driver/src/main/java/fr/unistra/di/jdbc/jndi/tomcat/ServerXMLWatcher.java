@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * Watch server.xml files with a NIO {@link WatchService}, running
+ * listeners (on a single daemon thread) when they are modified.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+public final class ServerXMLWatcher implements Runnable {
+
+    private final WatchService watchService;
+    /** watched file → listeners */
+    private final ConcurrentMap<Path, List<Runnable>> listeners =
+            new ConcurrentHashMap<Path, List<Runnable>>();
+    /** watched directories */
+    private final ConcurrentMap<Path, WatchKey> directories =
+            new ConcurrentHashMap<Path, WatchKey>();
+
+    ServerXMLWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this, "jndi-jdbc-serverxml-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return shared watcher
+     * @throws IOException if file watching is not available
+     */
+    public static ServerXMLWatcher getInstance() throws IOException {
+        if (Holder.failure != null)
+            throw Holder.failure;
+        return Holder.instance;
+    }
+
+    /**
+     * run {@code listener} whenever {@code file} is created or modified
+     * @param file watched file
+     * @param listener change listener
+     * @throws IOException if its directory could not be watched
+     */
+    public void watch(File file, Runnable listener) throws IOException {
+        Path path = file.getAbsoluteFile().toPath().normalize();
+        Path dir = path.getParent();
+        synchronized (directories) {
+            if (!directories.containsKey(dir))
+                directories.put(dir, dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+        }
+        List<Runnable> list = listeners.get(path);
+        if (list == null) {
+            List<Runnable> created = new CopyOnWriteArrayList<Runnable>();
+            list = listeners.putIfAbsent(path, created);
+            if (list == null)
+                list = created;
+        }
+        list.add(listener);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // events lost: check every file of this directory
+                    for (Path path : listeners.keySet())
+                        if (dir.equals(path.getParent()))
+                            fire(path);
+                    continue;
+                }
+                fire(dir.resolve((Path) event.context()));
+            }
+            key.reset();
+        }
+    }
+
+    private void fire(Path path) {
+        List<Runnable> list = listeners.get(path);
+        if (list == null)
+            return;
+        for (Runnable listener : list)
+            try {
+                listener.run();
+            } catch (Throwable ex) {
+                Metrics.LOGGER.log(Level.WARNING, "reload of " + path + " failed", ex);
+            }
+    }
+
+    /** lazily started shared watcher */
+    private static final class Holder {
+        static ServerXMLWatcher instance;
+        static IOException failure;
+        static {
+            try {
+                instance = new ServerXMLWatcher();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * LRU cache of idle {@link PreparedStatement} objects of one physical
+ * {@link Connection}, keyed by SQL, result set type, concurrency and holdability.
+ * <p>A statement is taken out of the cache while in use, and given back
+ * when the {@link CachedPreparedStatement} handed out is closed:
+ * a statement is never shared. Least recently used statements are
+ * physically closed beyond {@code maxOpenPreparedStatements}.
+ * <p>Before being cached again, a statement gets its open result set closed,
+ * its parameters, batch and warnings cleared, and its changed settings
+ * (max rows, query timeout, fetch size and direction, max field size,
+ * poolable) restored: the next borrower gets it as freshly prepared.
+ *
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ */
+class StatementCache {
+
+    /** holdability of statements prepared without one */
+    private static final int DEFAULT_HOLDABILITY = -1;
+
+    private final String name;
+    private final int max;
+    private final LinkedHashMap<Key, PreparedStatement> idle;
+    private boolean closed;
+
+    /**
+     * @param name cache name, for {@link Metrics}
+     * @param max maximum number of idle statements
+     */
+    StatementCache(String name, int max) {
+        this.name = name;
+        this.max = max;
+        this.idle = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true);
+    }
+
+    /**
+     * @return a cached statement, or a new one prepared on {@code physical}
+     */
+    PreparedStatement prepare(Connection handle, Connection physical, String sql,
+            int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        Key key = new Key(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        PreparedStatement stmt;
+        synchronized (this) {
+            stmt = idle.remove(key);
+        }
+        if (stmt != null)
+            Metrics.get().cacheHit("preparedStatement", name);
+        else {
+            Metrics.get().cacheMiss("preparedStatement", name);
+            if (resultSetHoldability != DEFAULT_HOLDABILITY)
+                stmt = physical.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+            else
+                stmt = physical.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        }
+        return new CachedPreparedStatement(handle, stmt, key);
+    }
+
+    PreparedStatement prepare(Connection handle, Connection physical, String sql,
+            int resultSetType, int resultSetConcurrency) throws SQLException {
+        return prepare(handle, physical, sql, resultSetType, resultSetConcurrency, DEFAULT_HOLDABILITY);
+    }
+
+    /** give back an idle statement, or close it if not worth keeping */
+    private void release(CachedPreparedStatement cached) {
+        Key key = cached.key;
+        PreparedStatement stmt = cached.stmt;
+        try {
+            cached.reset();
+        } catch (SQLException ex) {
+            closeQuietly(stmt);
+            return;
+        }
+        List<PreparedStatement> evicted = new ArrayList<PreparedStatement>(1);
+        synchronized (this) {
+            PreparedStatement previous = closed ? stmt : idle.put(key, stmt);
+            if (previous != null)
+                evicted.add(previous);
+            for (Iterator<PreparedStatement> it = idle.values().iterator(); idle.size() > max && it.hasNext();) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+        for (PreparedStatement old : evicted)
+            closeQuietly(old);
+    }
+
+    /** close every idle statement, and statements released later:
+     * the physical connection is being closed */
+    void flush() {
+        List<PreparedStatement> evicted;
+        synchronized (this) {
+            closed = true;
+            evicted = new ArrayList<PreparedStatement>(idle.values());
+            idle.clear();
+        }
+        for (PreparedStatement old : evicted)
+            closeQuietly(old);
+    }
+
+    /**
+     * @return number of idle statements
+     */
+    synchronized int size() {
+        return idle.size();
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ex) { }
+    }
+
+    /**
+     * Borrowed statement: {@link #close()} gives it back to the cache
+     */
+    private class CachedPreparedStatement extends PreparedStatementDecorator {
+        private final PreparedStatement stmt;
+        private final Key key;
+        private boolean released;
+        /** last result set handed out, closed on release */
+        private ResultSet resultSet;
+        /** original settings, {@code null} if not changed by the borrower */
+        private Integer maxRows;
+        private Integer queryTimeout;
+        private Integer fetchSize;
+        private Integer fetchDirection;
+        private Integer maxFieldSize;
+        private Boolean poolable;
+
+        CachedPreparedStatement(Connection handle, PreparedStatement stmt, Key key) {
+            super(handle, stmt);
+            this.stmt = stmt;
+            this.key = key;
+        }
+
+        /* (non-Javadoc)
+         * @see fr.unistra.di.jdbc.jndi.decorator.PreparedStatementDecorator#getDelegate()
+         */
+        @Override
+        protected PreparedStatement getDelegate() throws SQLException {
+            if (released)
+                throw new SQLException("Statement is closed");
+            return stmt;
+        }
+
+        /** close the open result set, clear and restore changed settings */
+        void reset() throws SQLException {
+            if (resultSet != null)
+                resultSet.close();
+            ResultSet rs = stmt.getResultSet();
+            if (rs != null)
+                rs.close();
+            stmt.clearParameters();
+            stmt.clearBatch();
+            stmt.clearWarnings();
+            if (maxRows != null)
+                stmt.setMaxRows(maxRows.intValue());
+            if (queryTimeout != null)
+                stmt.setQueryTimeout(queryTimeout.intValue());
+            if (fetchSize != null)
+                stmt.setFetchSize(fetchSize.intValue());
+            if (fetchDirection != null)
+                stmt.setFetchDirection(fetchDirection.intValue());
+            if (maxFieldSize != null)
+                stmt.setMaxFieldSize(maxFieldSize.intValue());
+            if (poolable != null)
+                stmt.setPoolable(poolable.booleanValue());
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!released) {
+                released = true;
+                release(this);
+            }
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return released || stmt.isClosed();
+        }
+
+        private ResultSet track(ResultSet rs) {
+            if (rs != null)
+                resultSet = rs;
+            return rs;
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            return track(super.executeQuery());
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return track(super.getResultSet());
+        }
+
+        @Override
+        public ResultSet getGeneratedKeys() throws SQLException {
+            return track(super.getGeneratedKeys());
+        }
+
+        @Override
+        public void setMaxRows(int max) throws SQLException {
+            if (maxRows == null)
+                maxRows = Integer.valueOf(getDelegate().getMaxRows());
+            stmt.setMaxRows(max);
+        }
+
+        @Override
+        public void setQueryTimeout(int seconds) throws SQLException {
+            if (queryTimeout == null)
+                queryTimeout = Integer.valueOf(getDelegate().getQueryTimeout());
+            stmt.setQueryTimeout(seconds);
+        }
+
+        @Override
+        public void setFetchSize(int rows) throws SQLException {
+            if (fetchSize == null)
+                fetchSize = Integer.valueOf(getDelegate().getFetchSize());
+            stmt.setFetchSize(rows);
+        }
+
+        @Override
+        public void setFetchDirection(int direction) throws SQLException {
+            if (fetchDirection == null)
+                fetchDirection = Integer.valueOf(getDelegate().getFetchDirection());
+            stmt.setFetchDirection(direction);
+        }
+
+        @Override
+        public void setMaxFieldSize(int max) throws SQLException {
+            if (maxFieldSize == null)
+                maxFieldSize = Integer.valueOf(getDelegate().getMaxFieldSize());
+            stmt.setMaxFieldSize(max);
+        }
+
+        @Override
+        public void setPoolable(boolean poolable) throws SQLException {
+            if (this.poolable == null)
+                this.poolable = Boolean.valueOf(getDelegate().isPoolable());
+            stmt.setPoolable(poolable);
+        }
+    }
+
+    /** cache key */
+    static final class Key {
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int resultSetHoldability;
+
+        Key(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.resultSetHoldability = resultSetHoldability;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((sql.hashCode() * 31 + resultSetType) * 31 + resultSetConcurrency) * 31 + resultSetHoldability;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return sql.equals(other.sql) && resultSetType == other.resultSetType
+                    && resultSetConcurrency == other.resultSetConcurrency
+                    && resultSetHoldability == other.resultSetHoldability;
+        }
+    }
+}
@@ -15,38 +15,46 @@
  */
 package fr.unistra.di.jdbc.jndi.tomcat;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Driver;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
 import java.sql.SQLSyntaxErrorException;
-import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
 
 import javax.naming.NameNotFoundException;
 import javax.naming.NamingException;
 import javax.naming.Reference;
-import javax.naming.StringRefAddr;
 import javax.naming.spi.ObjectFactory;
 import javax.sql.DataSource;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import org.w3c.dom.Attr;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-
-import fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy;
-import fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher;
+import javax.xml.stream.XMLStreamException;
+
+import fr.unistra.di.jdbc.jndi.fallback.FailoverDataSource;
 import fr.unistra.di.jdbc.jndi.fallback.FallbackStrategy;
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
 
 /**
+ * {@link FallbackStrategy} building {@link DataSource}s from Tomcat
+ * server.xml {@code GlobalNamingResources}.
+ * <p>Several {@code Resource}s declared with the same name
+ * make a {@link FailoverDataSource}.
+ * <p>A new lookup of an unchanged {@code Resource} (after an invalidation
+ * for example) gets the same DataSource. A changed one gets a new DataSource,
+ * the replaced one being closed (if {@link Closeable}, stopping
+ * {@link FailoverDataSource} health checks).
+ * <p>With the {@link #WATCH_PROPERTY} system property set to {@code true},
+ * server.xml is watched, and {@link ReloadableDataSource}s are returned:
+ * when a {@code Resource} changes, only its DataSource is rebuilt
+ * and swapped in, the previous one being drained.
+ *
  * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
  *
  */
@@ -59,7 +67,18 @@ public class TomcatServerXMLStrategy implements FallbackStrategy {
     public static String[] ENV_PROPS = new String[] {
         "CATALINA_HOME", "CATALINA_BASE"
     };
+    /** System property: {@code true} to watch server.xml and reload changed resources */
+    public static final String WATCH_PROPERTY = "fr.unistra.di.jdbc.jndi.tomcat.watch";
+
     private static final ObjectFactory factory = new TopSPIObjectFactory();
+    /** DataSources built without watching, per server.xml file and resource name */
+    private static final ConcurrentMap<String, Built> built = new ConcurrentHashMap<String, Built>();
+    /** reloadable DataSources, per server.xml file and resource name */
+    private static final ConcurrentMap<String, ReloadableDataSource> reloadables =
+            new ConcurrentHashMap<String, ReloadableDataSource>();
+    /** one parsed server.xml index per file */
+    private static final ConcurrentMap<File, ServerXMLIndex> indexes =
+            new ConcurrentHashMap<File, ServerXMLIndex>();
 
     /* (non-Javadoc)
      * @see fr.unistra.di.dip.tools.jdbc.jndi.FallbackStrategy#getDataSource(java.lang.String, java.util.Properties)
@@ -68,21 +87,136 @@ public class TomcatServerXMLStrategy implements FallbackStrategy {
             throws SQLException {
 
         // ignore non JEE standard JNDI resource name
-        if (!name.startsWith("java:comp/env/"))
+        // (relative names are looked up as is)
+        if (name.startsWith("java:comp/env/"))
+            name = name.substring("java:comp/env/".length());
+        else if (name.indexOf(':') >= 0)
             return null;
-        name = name.substring("java:comp/env/".length());
 
-        Reference dsRef;
+        File tomcatConf;
+        List<Reference> dsRefs;
         try {
-            File tomcatConf = fetchServerXML();
-            dsRef = parseServerXML(tomcatConf, name);
+            tomcatConf = fetchServerXML();
+            dsRefs = getIndex(tomcatConf).getMembers(name);
         } catch (FileNotFoundException ex) {
             throw new SQLNonTransientConnectionException(ex);
         } catch (NamingException ex) {
             throw new SQLNonTransientConnectionException(ex);
-        } catch (XPathExpressionException ex) {
+        } catch (XMLStreamException ex) {
             throw new SQLSyntaxErrorException(ex);
         }
+        if (Boolean.getBoolean(WATCH_PROPERTY))
+            return getReloadable(tomcatConf, name, dsRefs);
+        return getBuilt(tomcatConf, name, dsRefs);
+    }
+
+    /**
+     * @return DataSource already built from the same {@code Resource}s,
+     * or a new one, closing the one it replaces
+     */
+    DataSource getBuilt(File file, String name, List<Reference> dsRefs) throws SQLException {
+        String key = file.getAbsolutePath() + '#' + name;
+        Built previous = built.get(key);
+        if (previous != null && sameResources(previous.references, dsRefs))
+            return previous.dataSource;
+        Built created = new Built(newDataSource(dsRefs), dsRefs);
+        boolean stored = previous == null ? built.putIfAbsent(key, created) == null
+                : built.replace(key, previous, created);
+        if (!stored) {
+            // built meanwhile by another thread
+            close(created.dataSource);
+            return getBuilt(file, name, dsRefs);
+        }
+        if (previous != null)
+            close(previous.dataSource);
+        return created.dataSource;
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof Closeable)
+            try {
+                ((Closeable) dataSource).close();
+            } catch (IOException ex) {
+                Metrics.LOGGER.log(Level.WARNING, "could not close " + dataSource, ex);
+            }
+    }
+
+    /**
+     * @return shared {@link ReloadableDataSource} of this resource,
+     * watching server.xml for changes
+     */
+    protected DataSource getReloadable(final File file, final String name, List<Reference> dsRefs)
+            throws SQLException {
+        String key = file.getAbsolutePath() + '#' + name;
+        ReloadableDataSource reloadable = reloadables.get(key);
+        if (reloadable != null)
+            return reloadable;
+        ReloadableDataSource created = new ReloadableDataSource(newDataSource(dsRefs), dsRefs);
+        reloadable = reloadables.putIfAbsent(key, created);
+        if (reloadable != null) {
+            created.close();
+            return reloadable;
+        }
+        final ReloadableDataSource watched = created;
+        try {
+            ServerXMLWatcher.getInstance().watch(file, new Runnable() {
+                public void run() {
+                    reload(file, name, watched);
+                }
+            });
+        } catch (IOException ex) {
+            Metrics.LOGGER.log(Level.WARNING, "could not watch " + file, ex);
+        }
+        return watched;
+    }
+
+    /**
+     * rebuild the resource DataSource if its {@code Resource}s changed
+     * (a removed or unparsable resource keeps the current one)
+     */
+    void reload(File file, String name, ReloadableDataSource reloadable) {
+        try {
+            getIndex(file).reload();
+            List<Reference> dsRefs = getIndex(file).getMembers(name);
+            if (sameResources(dsRefs, reloadable.getReferences()))
+                return;
+            reloadable.swap(newDataSource(dsRefs), dsRefs);
+            Metrics.LOGGER.info("reloaded " + name + " from " + file);
+        } catch (Exception ex) {
+            Metrics.LOGGER.log(Level.WARNING, "could not reload " + name + " from " + file, ex);
+        }
+    }
+
+    /**
+     * @return {@code true} if both lists hold the same {@code Resource}s,
+     * factory included ({@link Reference#equals(Object)} ignores it)
+     */
+    static boolean sameResources(List<Reference> refs, List<Reference> others) {
+        if (!refs.equals(others))
+            return false;
+        for (int i = 0; i < refs.size(); i++) {
+            String factory = refs.get(i).getFactoryClassName();
+            String other = others.get(i).getFactoryClassName();
+            if (factory == null ? other != null : !factory.equals(other))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return DataSource of a {@code Resource},
+     * or {@link FailoverDataSource} of same name {@code Resource}s
+     */
+    private DataSource newDataSource(List<Reference> dsRefs) throws SQLException {
+        if (dsRefs.size() == 1)
+            return newDataSource(dsRefs.get(0));
+        List<DataSource> members = new ArrayList<DataSource>(dsRefs.size());
+        for (Reference dsRef : dsRefs)
+            members.add(newDataSource(dsRef));
+        return new FailoverDataSource(members, DriverDataSourceFactory.getAttr(dsRefs.get(0), "validationQuery"));
+    }
+
+    private DataSource newDataSource(Reference dsRef) throws SQLException {
         try {
             return (DataSource) factory.getObjectInstance(dsRef, null, null, null);
         } catch (Exception ex) {
@@ -106,43 +240,39 @@ public class TomcatServerXMLStrategy implements FallbackStrategy {
         throw new FileNotFoundException("Did not find tomcat's server.xml {" + Arrays.asList(locations).toString() + "}");
     }
 
+    /**
+     * lookup resource {@code name} in server.xml
+     * (parsed once, then only if modified)
+     * @see ServerXMLIndex#get(String)
+     */
     protected Reference parseServerXML(File file, String name)
-            throws FileNotFoundException, XPathExpressionException, NameNotFoundException  {
-        XPath xpath = XPathFactory.newInstance().newXPath();
-        InputSource serverXML = new InputSource(new FileInputStream(file));
-        serverXML.setPublicId(file.getPath());
-        Node resource = (Node) xpath.evaluate(
-                "/Server/GlobalNamingResources/Resource[@name='"+name+"']",
-                serverXML,
-                XPathConstants.NODE);
-        if (resource == null)
-            throw new NameNotFoundException(MessageFormat.format(
-                    "Could not find ressource {1} in {0}",
-                    new Object[] { file.getPath(), name }
-                    ));
-        NamedNodeMap attributes = resource.getAttributes();
-        return attributesToReference(attributes);
+            throws FileNotFoundException, XMLStreamException, NameNotFoundException  {
+        return getIndex(file).get(name);
     }
 
     /**
-     * @param attributes
+     * @return shared {@link ServerXMLIndex} for this file
      */
-    private Reference attributesToReference(NamedNodeMap attributes) {
-        Attr typeN = (Attr) attributes.getNamedItem("type");
-        String type = typeN == null ? null : typeN.getValue();
-        Attr factoryN = (Attr) attributes.getNamedItem("factory");
-        String factory = factoryN == null ? null : factoryN.getValue();
-
-        Reference ref = new Reference(type, factory, null);
-        for (int i = 0; i < attributes.getLength(); i++) {
-            Attr attribute = (Attr) attributes.item(i);
-            String name = attribute.getName();
-            if ("name".equals(name) || "type".equals(name) || "factory".equals(name))
-                continue;
-            String value = attribute.getValue();
-            ref.add(new StringRefAddr(name, value));
+    protected ServerXMLIndex getIndex(File file) {
+        ServerXMLIndex index = indexes.get(file);
+        if (index == null) {
+            ServerXMLIndex created = new ServerXMLIndex(file);
+            index = indexes.putIfAbsent(file, created);
+            if (index == null)
+                index = created;
         }
-        return ref;
+        return index;
     }
 
+
+    /** DataSource and the {@code Resource}s it was built from */
+    private static final class Built {
+        final DataSource dataSource;
+        final List<Reference> references;
+
+        Built(DataSource dataSource, List<Reference> references) {
+            this.dataSource = dataSource;
+            this.references = references;
+        }
+    }
 }
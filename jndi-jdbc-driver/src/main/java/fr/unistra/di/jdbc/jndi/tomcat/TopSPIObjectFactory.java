@@ -16,6 +16,7 @@
 package fr.unistra.di.jdbc.jndi.tomcat;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.ServiceLoader;
@@ -30,6 +31,12 @@ import javax.naming.spi.ObjectFactory;
 import javax.sql.DataSource;
 
 /**
+ * Top level {@link ObjectFactory}: the {@link Reference} factory if any,
+ * else SPI provided factories, else the best default one available.
+ * <p>Factory classes, their instances, and failed class lookups are
+ * cached (see {@link ClassCache}), so that repeated resolutions do no
+ * reflection at all.
+ *
  * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
  */
 public class TopSPIObjectFactory implements ObjectFactory {
@@ -41,41 +48,49 @@ public class TopSPIObjectFactory implements ObjectFactory {
     };
 
     private static ServiceLoader<ObjectFactory> spiLoader = ServiceLoader.load(ObjectFactory.class);
-    private static List<ObjectFactory> factories;
+    /** unmodifiable, built once */
+    private static volatile List<ObjectFactory> factories;
 
     /**
      * Use Java SPI to get a list of {@link ObjectFactory JNDI Object Factories}
-     * <p><b>FIXME:</b> Not Thread Safe™ !
+     * (built once, thread safe)
      */
     protected List<ObjectFactory> getFactories() throws NamingException {
-        if (factories == null) {
-            // get Factories list from SPI
-            factories = new ArrayList<ObjectFactory>(1);
-            for(ObjectFactory spiImpl : spiLoader)
-                factories.add(spiImpl);
-
-            // Otherwise provide one by ourselves
-            if (factories.isEmpty()) {
-                Class<?> factoryClazz = getDefaultFactoryClass();
-
-                // Instantiate one
-                ObjectFactory factory;
-                if (ObjectFactory.class.isAssignableFrom(factoryClazz))
-                    try {
-                        factory = (ObjectFactory) factoryClazz.newInstance();
-                    } catch (InstantiationException ex) {
-                        throw (NamingException) new NamingException().initCause(ex);
-                    } catch (IllegalAccessException ex) {
-                        throw (NamingException) new NamingException().initCause(ex);
-                    }
-                //else if (DataSource.class.isAssignableFrom(factoryClazz))
-                //    factory = new DataSourceFactory((Class<? extends DataSource>)factoryClazz);
-                else
-                    throw new ConfigurationException("Unknown Factory Type !");
-                factories.add(factory);
+        List<ObjectFactory> current = factories;
+        if (current == null)
+            synchronized (TopSPIObjectFactory.class) {
+                current = factories;
+                if (current == null)
+                    factories = current = Collections.unmodifiableList(loadFactories());
             }
+        return current;
+    }
+
+    private List<ObjectFactory> loadFactories() throws NamingException {
+        // get Factories list from SPI
+        List<ObjectFactory> loaded = new ArrayList<ObjectFactory>(1);
+        for (ObjectFactory spiImpl : spiLoader)
+            loaded.add(spiImpl);
+
+        // Otherwise provide one by ourselves
+        if (loaded.isEmpty()) {
+            Class<?> factoryClazz = getDefaultFactoryClass();
+
+            // Instantiate one
+            ObjectFactory factory;
+            if (ObjectFactory.class.isAssignableFrom(factoryClazz))
+                try {
+                    factory = ClassCache.getInstance(factoryClazz.getName(), ObjectFactory.class);
+                } catch (ReflectiveOperationException ex) {
+                    throw (NamingException) new NamingException().initCause(ex);
+                }
+            else if (DataSource.class.isAssignableFrom(factoryClazz))
+                factory = new DataSourceFactory(factoryClazz.asSubclass(DataSource.class));
+            else
+                throw new ConfigurationException("Unknown Factory Type !");
+            loaded.add(factory);
         }
-        return factories;
+        return loaded;
     }
 
     /**
@@ -89,13 +104,13 @@ public class TopSPIObjectFactory implements ObjectFactory {
                 System.getProperty("javax.sql.DataSource.Factory");
         if (javaxSqlDataSourceFactoryClazz != null)
             try {
-                return Class.forName(javaxSqlDataSourceFactoryClazz);
+                return ClassCache.forName(javaxSqlDataSourceFactoryClazz);
             } catch (ClassNotFoundException e) { }
 
         // try well known ObjectFactory if available in ClassPath
         for (String clazz : WELL_KNOWN_FACTORIES)
             try {
-                return Class.forName(clazz);
+                return ClassCache.forName(clazz);
             } catch (ClassNotFoundException e) { }
 
         // or use our Last-Resort one
@@ -122,12 +137,14 @@ public class TopSPIObjectFactory implements ObjectFactory {
         if (ref != null && ref.getFactoryClassName() != null) {
             ObjectFactory factory = null;
             try {
-                Class<?> factoryClazz = Class.forName(ref.getFactoryClassName());
-                factory = (ObjectFactory) factoryClazz.newInstance();
+                factory = ClassCache.getInstance(ref.getFactoryClassName(), ObjectFactory.class);
             } catch (ClassNotFoundException ex) {
                 //throw (NamingException) new NamingException().initCause(ex);
             } catch (ClassCastException ex) {
-                //throw (NamingException) new NamingException().initCause(ex);
+                // a DataSource class given as factory is built as a JavaBean
+                Class<?> clazz = ClassCache.forName(ref.getFactoryClassName());
+                if (DataSource.class.isAssignableFrom(clazz))
+                    factory = new DataSourceFactory(clazz.asSubclass(DataSource.class));
             }
             if (factory != null) {
                 return factory.getObjectInstance(obj, name, nameCtx, environment);
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class AdmissionControlTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.AdmissionControl#getConnection(DataSource)}.
+     */
+    @Test
+    public void testAdmissionControl() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1), release = new CountDownLatch(1);
+        final JDBCDataSource ds = new JDBCDataSource() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getConnection();
+            }
+        };
+        ds.setUrl("jdbc:hsqldb:mem:admission");
+        ds.setUser("sa");
+        ds.setLoginTimeout(0);
+        final AdmissionControl admission = new AdmissionControl("jdbc/admission", 1, 1, 200);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Connection> holder = executor.submit(new Callable<Connection>() {
+                public Connection call() throws Exception {
+                    return admission.getConnection(ds);
+                }
+            });
+            entered.await();
+            Future<Connection> waiter = executor.submit(new Callable<Connection>() {
+                public Connection call() throws Exception {
+                    return admission.getConnection(ds);
+                }
+            });
+            while (admission.getQueued() == 0)
+                Thread.sleep(5);
+            try {
+                admission.getConnection(ds);
+                fail("queue full");
+            } catch (ConnectionShedException expected) { }
+            try {
+                waiter.get();
+                fail("deadline");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof ConnectionShedException);
+            }
+            release.countDown();
+            holder.get().close();
+            admission.getConnection(ds).close();
+            assertEquals(0, admission.getQueued());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCConnection;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class AsyncConnectionsTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.AsyncConnections#getConnection(String, Properties)}.
+     */
+    @Test
+    public void testAsyncConcurrencyLimit() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+        final JDBCDataSource ds = new JDBCDataSource() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                int current = inFlight.incrementAndGet();
+                while (maxInFlight.get() < current)
+                    maxInFlight.set(current);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return super.getConnection();
+            }
+        };
+        ds.setUrl("jdbc:hsqldb:mem:async");
+        ds.setUser("sa");
+        final LazyDataSourceFetcher slow = new LazyDataSourceFetcher("java:comp/env/jdbc/async", new Properties()) {
+            @Override
+            protected DataSource lookup() {
+                return ds;
+            }
+        };
+        Driver driver = new Driver() {
+            @Override
+            public LazyDataSourceFetcher getFetcher(String name, Properties info) {
+                return slow;
+            }
+        };
+        AsyncConnections async = new AsyncConnections(driver, AsyncConnections.defaultExecutor(), 2);
+        Properties info = new Properties();
+        info.setProperty(DriverOptions.LAZY, "true");
+        info.setProperty(DriverOptions.FETCH_SIZE, "42");
+        List<CompletableFuture<Connection>> futures = new ArrayList<CompletableFuture<Connection>>();
+        for (int i = 0; i < 6; i++)
+            futures.add(async.getConnection("jdbc:jndi:java:comp/env/jdbc/async", info));
+        for (CompletableFuture<Connection> future : futures) {
+            Connection conn = future.get(5, TimeUnit.SECONDS);
+            assertNotNull(conn.unwrap(JDBCConnection.class));
+            assertEquals("options kept", 42, conn.createStatement().getFetchSize());
+            conn.close();
+        }
+        assertTrue("at most 2 concurrent acquisitions: " + maxInFlight.get(), maxInFlight.get() <= 2);
+        assertEquals(0, async.getQueued(slow));
+
+        try {
+            async.getConnection("jdbc:other:x", null).get();
+            fail("invalid URL");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof SQLException);
+        }
+    }
+}
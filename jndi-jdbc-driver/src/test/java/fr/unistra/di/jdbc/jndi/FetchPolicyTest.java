@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class FetchPolicyTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.FetchPolicy#apply(Statement, String)}.
+     */
+    @Test
+    public void testFetchPolicy() throws Exception {
+        Properties info = new Properties();
+        assertNull(FetchPolicy.get(info));
+        info.setProperty(DriverOptions.FETCH_SIZE, "100");
+        info.setProperty(DriverOptions.FETCH_SIZES, "SELECT * FROM report=1000; select id=10 ;select=50");
+        info.setProperty(DriverOptions.FORWARD_ONLY, "true");
+        FetchPolicy policy = FetchPolicy.get(info);
+        assertSame(policy, FetchPolicy.get((Properties) info.clone()));
+        assertEquals(1000, policy.getFetchSize("  select * from report_2014"));
+        assertEquals(10, policy.getFetchSize("SELECT id FROM t"));
+        assertEquals("longest prefix wins", 50, policy.getFetchSize("SELECT name FROM t"));
+        assertEquals(100, policy.getFetchSize("UPDATE t SET id = 1"));
+        assertEquals(100, policy.getFetchSize(null));
+
+        Connection conn = new JNDIDecoratorProxy(new MemoryFetcher("fetchpolicy"), false, null, policy);
+        try {
+            Statement stmt = conn.createStatement();
+            assertEquals(100, stmt.getFetchSize());
+            stmt.close();
+            PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM (VALUES 1) AS t(id)");
+            assertEquals(10, pstmt.getFetchSize());
+            pstmt.setFetchSize(5);
+            assertEquals("application setting wins", 5, pstmt.getFetchSize());
+            pstmt.close();
+        } finally {
+            conn.close();
+        }
+
+        info.setProperty(DriverOptions.FETCH_SIZES, "select");
+        try {
+            FetchPolicy.get(info);
+            fail("malformed override");
+        } catch (SQLException expected) { }
+    }
+}
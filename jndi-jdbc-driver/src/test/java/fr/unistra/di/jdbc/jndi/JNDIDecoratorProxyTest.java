@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+
+import org.hsqldb.jdbc.JDBCConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class JNDIDecoratorProxyTest {
+
+    private MemoryFetcher fetcher;
+
+    @Before
+    public void setUp() {
+        fetcher = new MemoryFetcher("proxytest");
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy#close()}.
+     */
+    @Test
+    public void testLazyUnused() throws Exception {
+        Connection conn = new JNDIDecoratorProxy(fetcher, true);
+        conn.setAutoCommit(false);
+        conn.setReadOnly(true);
+        assertFalse(conn.getAutoCommit());
+        assertTrue(conn.isReadOnly());
+        conn.rollback();
+        assertFalse(conn.isClosed());
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertEquals(0, fetcher.connects.get());
+        try {
+            conn.createStatement();
+            fail("closed connection");
+        } catch (SQLException expected) { }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy#getDelegate()}.
+     */
+    @Test
+    public void testLazyReplay() throws Exception {
+        Connection conn = new JNDIDecoratorProxy(fetcher, true);
+        conn.setAutoCommit(false);
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        assertEquals(0, fetcher.connects.get());
+        conn.createStatement().close();
+        assertEquals(1, fetcher.connects.get());
+        JDBCConnection physical = conn.unwrap(JDBCConnection.class);
+        assertFalse(physical.getAutoCommit());
+        assertEquals(Connection.TRANSACTION_SERIALIZABLE, physical.getTransactionIsolation());
+        conn.close();
+        assertTrue(physical.isClosed());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy#getAutoCommit()}.
+     */
+    @Test
+    public void testLazyDefaults() throws Exception {
+        Connection first = new JNDIDecoratorProxy(fetcher, true);
+        assertNull(fetcher.getDefaults());
+        assertTrue(first.getAutoCommit());
+        assertEquals(1, fetcher.connects.get());
+        assertNotNull(fetcher.getDefaults());
+        first.close();
+
+        Connection conn = new JNDIDecoratorProxy(fetcher, true);
+        conn.setReadOnly(true);
+        assertTrue(conn.getAutoCommit());
+        assertTrue(conn.isReadOnly());
+        assertEquals(fetcher.getDefaults().getTransactionIsolation(), conn.getTransactionIsolation());
+        assertEquals(fetcher.getDefaults().getHoldability(), conn.getHoldability());
+        assertEquals(fetcher.getDefaults().getCatalog(), conn.getCatalog());
+        assertEquals(1, fetcher.connects.get());
+
+        fetcher.invalidate();
+        assertNull(fetcher.getDefaults());
+        conn.close();
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy#abort(java.util.concurrent.Executor)}.
+     */
+    @Test
+    public void testAbort() throws Exception {
+        Executor direct = new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        Connection unused = new JNDIDecoratorProxy(fetcher, true);
+        unused.abort(direct);
+        assertTrue(unused.isClosed());
+        assertEquals(0, fetcher.connects.get());
+
+        Connection conn = new JNDIDecoratorProxy(fetcher);
+        JDBCConnection physical = conn.unwrap(JDBCConnection.class);
+        conn.abort(direct);
+        assertTrue(conn.isClosed());
+        assertTrue(physical.isClosed());
+        conn.abort(direct);
+        conn.close();
+        assertEquals(1, fetcher.connects.get());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy#getDelegate()}.
+     */
+    @Test
+    public void testEager() throws Exception {
+        Connection conn = new JNDIDecoratorProxy(fetcher);
+        conn.setAutoCommit(false);
+        assertEquals(1, fetcher.connects.get());
+        conn.close();
+
+        new JNDIDecoratorProxy(fetcher).close();
+        assertEquals("unused connection not opened", 1, fetcher.connects.get());
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class LazyDataSourceFetcherTest {
+
+    /** fetcher counting (slow) lookups */
+    private static class CountingFetcher extends LazyDataSourceFetcher {
+        final AtomicInteger lookups = new AtomicInteger();
+
+        CountingFetcher() {
+            super("java:comp/env/jdbc/testDB", new Properties());
+        }
+
+        @Override
+        protected DataSource lookup() throws NamingException, SQLException {
+            lookups.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            JDBCDataSource ds = new JDBCDataSource();
+            ds.setUrl("jdbc:hsqldb:mem:fetchertest");
+            ds.setUser("sa");
+            return ds;
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher#getDataSource()}.
+     */
+    @Test
+    public void testConcurrentGetDataSource() throws Exception {
+        final CountingFetcher fetcher = new CountingFetcher();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] results = new Future<?>[8];
+            for (int i = 0; i < results.length; i++)
+                results[i] = executor.submit(new Callable<DataSource>() {
+                    public DataSource call() throws Exception {
+                        start.await();
+                        return fetcher.getDataSource();
+                    }
+                });
+            start.countDown();
+            for (Future<?> result : results)
+                assertSame(results[0].get(), result.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, fetcher.lookups.get());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher#invalidate()}.
+     */
+    @Test
+    public void testInvalidate() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher();
+        DataSource first = fetcher.getDataSource();
+        assertSame(first, fetcher.getDataSource());
+        fetcher.invalidate();
+        assertNotSame(first, fetcher.getDataSource());
+        assertEquals(2, fetcher.lookups.get());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher#invalidate()}.
+     */
+    @Test
+    public void testInvalidateInFlight() throws Exception {
+        final CountDownLatch looking = new CountDownLatch(1), invalidated = new CountDownLatch(1);
+        final CountingFetcher fetcher = new CountingFetcher() {
+            @Override
+            protected DataSource lookup() throws NamingException, SQLException {
+                looking.countDown();
+                try {
+                    invalidated.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.lookup();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<DataSource> inFlight = executor.submit(new Callable<DataSource>() {
+                public DataSource call() throws Exception {
+                    return fetcher.getDataSource();
+                }
+            });
+            looking.await();
+            fetcher.invalidate();
+            invalidated.countDown();
+            DataSource stale = inFlight.get();
+            assertNotSame("stale DataSource not published", stale, fetcher.getDataSource());
+            assertEquals(2, fetcher.lookups.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.DataSourceRegistry#getFetcher(String, Properties)}.
+     */
+    @Test
+    public void testRegistryKeys() {
+        DataSourceRegistry registry = new DataSourceRegistry();
+        Properties props = new Properties();
+        props.setProperty("user", "sa");
+        LazyDataSourceFetcher fetcher = registry.getFetcher("java:comp/env/jdbc/a", props);
+        assertSame(fetcher, registry.getFetcher("java:comp/env/jdbc/a", (Properties) props.clone()));
+        assertNotSame(fetcher, registry.getFetcher("java:comp/env/jdbc/b", props));
+        props.setProperty("user", "other");
+        assertNotSame(fetcher, registry.getFetcher("java:comp/env/jdbc/a", props));
+        assertEquals(3, registry.size());
+
+        props.setProperty(DriverOptions.WARMUP, "true");
+        assertSame("driver options are not part of the key",
+                registry.getFetcher("java:comp/env/jdbc/a", props),
+                registry.getFetcher("java:comp/env/jdbc/a", props));
+        assertEquals(3, registry.size());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.Driver#getFetcher(String)}.
+     */
+    @Test
+    public void testURLParameters() throws Exception {
+        Driver driver = new Driver();
+        LazyDataSourceFetcher fetcher = driver.getFetcher("jdbc:jndi:java:comp/env/jdbc/params?user=sa&warmup=true");
+        assertEquals("java:comp/env/jdbc/params", fetcher.getName());
+        Properties props = new Properties();
+        props.setProperty("user", "sa");
+        assertSame(fetcher, driver.getFetcher("java:comp/env/jdbc/params", props));
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.WarmUp#warmUp(LazyDataSourceFetcher)}.
+     */
+    @Test
+    public void testWarmUp() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher();
+        assertTrue(WarmUp.warmUp(fetcher).get());
+        assertSame(WarmUp.warmUp(fetcher), WarmUp.warmUp(fetcher));
+        fetcher.getDataSource();
+        assertEquals(1, fetcher.lookups.get());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.NegativeLookupCache#check(String)}.
+     */
+    @Test
+    public void testNegativeLookupCache() throws Exception {
+        NegativeLookupCache cache = new NegativeLookupCache(60000, 0.2, 2);
+        cache.check("jdbc/a");
+        assertEquals(1, cache.getMisses());
+
+        NameNotFoundException failure = new NameNotFoundException("jdbc/a");
+        cache.put("jdbc/a", failure);
+        try {
+            cache.check("jdbc/a");
+            fail("cached failure expected");
+        } catch (NameNotFoundException ex) {
+            assertNotSame(failure, ex);
+            assertSame(failure, ex.getRootCause());
+        }
+        assertEquals(1, cache.getHits());
+
+        SQLException stored = new SQLNonTransientConnectionException("down", "08001");
+        cache.put("jdbc/b", stored);
+        try {
+            cache.check("jdbc/b");
+            fail("cached failure expected");
+        } catch (SQLNonTransientConnectionException ex) {
+            assertNotSame(stored, ex);
+            assertSame(stored, ex.getCause());
+            assertEquals("08001", ex.getSQLState());
+        }
+
+        SQLException custom = new SQLException("not constructible") {
+            private static final long serialVersionUID = 1L;
+        };
+        cache.put("jdbc/b", custom);
+        try {
+            cache.check("jdbc/b");
+            fail("cached failure expected");
+        } catch (SQLException ex) {
+            assertSame("re-thrown as is", custom, ex);
+        }
+
+        cache.put("jdbc/b", new SQLException());
+        cache.put("jdbc/c", new SQLException());
+        assertEquals(2, cache.size());
+
+        cache.remove("jdbc/c");
+        cache.remove("jdbc/b");
+        cache.remove("jdbc/a");
+        cache.check("jdbc/a");
+        assertEquals(2, cache.getMisses());
+    }
+}
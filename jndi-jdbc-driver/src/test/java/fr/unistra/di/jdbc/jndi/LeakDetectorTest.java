@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.unistra.di.jdbc.jndi.metrics.Metrics;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class LeakDetectorTest {
+
+    private MemoryFetcher fetcher;
+
+    @Before
+    public void setUp() {
+        fetcher = new MemoryFetcher("leaktest");
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.LeakDetector#check()}.
+     */
+    @Test
+    public void testLeakDetector() throws Exception {
+        final List<LogRecord> records = new ArrayList<LogRecord>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                synchronized (records) {
+                    records.add(record);
+                }
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        Metrics.LOGGER.addHandler(handler);
+        try {
+            LeakDetector reporting = new LeakDetector("jdbc/leak", 3600000, 1, 0);
+            Connection held = fetcher.getDataSource().getConnection();
+            LeakDetector.Lease lease = reporting.track(held);
+            reporting.check();
+            assertEquals(1, reporting.size());
+            assertTrue(records.isEmpty());
+            lease.release();
+            assertEquals(0, reporting.size());
+            held.close();
+
+            reporting = new LeakDetector("jdbc/leak", 1, 1, 0);
+            held = fetcher.getDataSource().getConnection();
+            reporting.track(held);
+            Thread.sleep(5);
+            reporting.check();
+            assertEquals("reported leak no longer tracked", 0, reporting.size());
+            reporting.check();
+            synchronized (records) {
+                assertEquals("reported once", 1, records.size());
+                assertNotNull("sampled acquisition site", records.get(0).getThrown());
+            }
+            assertFalse(held.isClosed());
+            held.close();
+
+            LeakDetector reclaiming = new LeakDetector("jdbc/leak", 0, 1000000, 20);
+            held = fetcher.getDataSource().getConnection();
+            reclaiming.track(held);
+            for (int i = 0; i < 200 && !held.isClosed(); i++)
+                Thread.sleep(10);
+            assertTrue("force-closed", held.isClosed());
+            assertEquals(0, reclaiming.size());
+        } finally {
+            Metrics.LOGGER.removeHandler(handler);
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy#abort(java.util.concurrent.Executor)}.
+     */
+    @Test
+    public void testAbortReleases() throws Exception {
+        System.setProperty(LeakDetector.THRESHOLD_PROPERTY, "3600000");
+        try {
+            fetcher = new MemoryFetcher("leaktest");
+        } finally {
+            System.clearProperty(LeakDetector.THRESHOLD_PROPERTY);
+        }
+        Connection conn = new JNDIDecoratorProxy(fetcher);
+        conn.createStatement().close();
+        assertEquals(1, fetcher.getLeakDetector().size());
+        conn.abort(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        assertTrue(conn.isClosed());
+        assertEquals("released on abort", 0, fetcher.getLeakDetector().size());
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+
+/**
+ * Fetcher of an in-memory database, counting physical connections
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class MemoryFetcher extends LazyDataSourceFetcher {
+
+    /** physical connections opened */
+    public final AtomicInteger connects = new AtomicInteger();
+    private final JDBCDataSource dataSource;
+
+    /**
+     * @param db in-memory database name, also used as {@code java:comp/env/jdbc/} name
+     */
+    public MemoryFetcher(String db) {
+        super("java:comp/env/jdbc/" + db, new Properties());
+        this.dataSource = new JDBCDataSource() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                connects.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        dataSource.setUrl("jdbc:hsqldb:mem:" + db);
+        dataSource.setUser("sa");
+    }
+
+    /* (non-Javadoc)
+     * @see fr.unistra.di.jdbc.jndi.LazyDataSourceFetcher#lookup()
+     */
+    @Override
+    protected DataSource lookup() {
+        return dataSource;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.concurrent.Executor;
+
+import org.hsqldb.jdbc.JDBCConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ReadWriteSplitProxyTest {
+
+    private MemoryFetcher fetcher;
+
+    @Before
+    public void setUp() {
+        fetcher = new MemoryFetcher("proxytest");
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ReadWriteSplitProxy#getDelegate()}.
+     */
+    @Test
+    public void testReadWriteSplit() throws Exception {
+        MemoryFetcher replica = new MemoryFetcher("replica");
+        ReplicaSet replicas = new ReplicaSet(new LazyDataSourceFetcher[] { replica });
+        Connection conn = new ReadWriteSplitProxy(fetcher, replicas);
+        assertEquals("jdbc:hsqldb:mem:proxytest", conn.getMetaData().getURL());
+        conn.setReadOnly(true);
+        assertEquals("jdbc:hsqldb:mem:replica", conn.getMetaData().getURL());
+        assertTrue(conn.unwrap(JDBCConnection.class).isReadOnly());
+        assertEquals(1, replicas.getOutstanding(0));
+        conn.setReadOnly(false);
+        assertEquals("jdbc:hsqldb:mem:proxytest", conn.getMetaData().getURL());
+        assertEquals(1, fetcher.connects.get());
+        assertEquals(1, replica.connects.get());
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertEquals(0, replicas.getOutstanding(0));
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ReadWriteSplitProxy#setReadOnly(boolean)}.
+     */
+    @Test
+    public void testReadWriteSplitTransaction() throws Exception {
+        MemoryFetcher physicalReplica = new MemoryFetcher("replica");
+        ReplicaSet replicas = new ReplicaSet(new LazyDataSourceFetcher[] { physicalReplica });
+        Connection conn = new ReadWriteSplitProxy(new JNDIDecoratorProxy(fetcher, true), replicas, null);
+        conn.setAutoCommit(false);
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        assertEquals("lazy primary", 0, fetcher.connects.get());
+
+        conn.setReadOnly(true);
+        conn.createStatement().close();
+        JDBCConnection replica = conn.unwrap(JDBCConnection.class);
+        assertFalse("auto-commit replayed", replica.getAutoCommit());
+        assertEquals(Connection.TRANSACTION_SERIALIZABLE, replica.getTransactionIsolation());
+        assertEquals(0, fetcher.connects.get());
+        assertEquals(1, physicalReplica.connects.get());
+        try {
+            conn.setReadOnly(false);
+            fail("switch within a transaction");
+        } catch (SQLException expected) {
+            assertEquals("25001", expected.getSQLState());
+        }
+        conn.commit();
+        conn.setReadOnly(false);
+        conn.createStatement().close();
+        assertEquals("jdbc:hsqldb:mem:proxytest", conn.getMetaData().getURL());
+        assertFalse(conn.unwrap(JDBCConnection.class).getAutoCommit());
+        conn.close();
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ReadWriteSplitProxy#close()}.
+     */
+    @Test
+    public void testClosed() throws Exception {
+        MemoryFetcher replica = new MemoryFetcher("replica");
+        ReplicaSet replicas = new ReplicaSet(new LazyDataSourceFetcher[] { replica });
+        Connection conn = new ReadWriteSplitProxy(fetcher, replicas);
+        conn.setReadOnly(true);
+        conn.close();
+        try {
+            conn.createStatement();
+            fail("closed connection");
+        } catch (SQLNonTransientConnectionException expected) {
+            assertEquals("08003", expected.getSQLState());
+        }
+        assertEquals("no replica acquired once closed", 0, replica.connects.get());
+        assertEquals(0, replicas.getOutstanding(0));
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ReadWriteSplitProxy#abort(java.util.concurrent.Executor)}.
+     */
+    @Test
+    public void testAbort() throws Exception {
+        MemoryFetcher physicalReplica = new MemoryFetcher("replica");
+        ReplicaSet replicas = new ReplicaSet(new LazyDataSourceFetcher[] { physicalReplica });
+        Connection conn = new ReadWriteSplitProxy(fetcher, replicas);
+        JDBCConnection primary = conn.unwrap(JDBCConnection.class);
+        conn.setReadOnly(true);
+        JDBCConnection replica = conn.unwrap(JDBCConnection.class);
+        conn.abort(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        assertTrue(conn.isClosed());
+        assertTrue("primary aborted", primary.isClosed());
+        assertTrue("replica aborted", replica.isClosed());
+        assertEquals(0, replicas.getOutstanding(0));
+        conn.close();
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ReplicaSet#acquire()}.
+     */
+    @Test
+    public void testReplicaSetBalance() {
+        ReplicaSet replicas = new ReplicaSet(new LazyDataSourceFetcher[] {
+                new MemoryFetcher("r0"), new MemoryFetcher("r1"), new MemoryFetcher("r2") });
+        for (int i = 0; i < 300; i++)
+            replicas.acquire();
+        for (int i = 0; i < replicas.size(); i++)
+            assertTrue("balanced: " + replicas.getOutstanding(i),
+                    Math.abs(replicas.getOutstanding(i) - 100) <= 10);
+    }
+}
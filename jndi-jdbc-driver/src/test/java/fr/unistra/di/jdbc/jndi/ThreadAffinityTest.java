@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hsqldb.jdbc.JDBCConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ThreadAffinityTest {
+
+    private MemoryFetcher fetcher;
+
+    @Before
+    public void setUp() {
+        fetcher = new MemoryFetcher("affinity");
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ThreadAffinity#join(LazyDataSourceFetcher)}.
+     */
+    @Test
+    public void testThreadAffinity() throws Exception {
+        Connection outer = ThreadAffinity.open(fetcher, new JNDIDecoratorProxy(fetcher));
+        assertNull("auto-commit on", ThreadAffinity.join(fetcher));
+        outer.setAutoCommit(false);
+        assertNull("other name", ThreadAffinity.join(new MemoryFetcher("affinitytest")));
+        Connection physical = outer.unwrap(JDBCConnection.class);
+
+        Connection nested = ThreadAffinity.join(fetcher);
+        assertNotNull(nested);
+        assertSame(physical, nested.unwrap(JDBCConnection.class));
+        assertSame(nested, nested.createStatement().getConnection());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNull("other thread", executor.submit(new Callable<Connection>() {
+                public Connection call() {
+                    return ThreadAffinity.join(fetcher);
+                }
+            }).get());
+        } finally {
+            executor.shutdown();
+        }
+
+        outer.close();
+        assertTrue(outer.isClosed());
+        assertFalse("still referenced", physical.isClosed());
+        assertFalse(nested.getAutoCommit());
+        nested.close();
+        nested.close();
+        assertTrue("closed by last handle", physical.isClosed());
+        assertNull(ThreadAffinity.join(fetcher));
+        assertEquals(1, fetcher.connects.get());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ThreadAffinity#clear()}.
+     */
+    @Test
+    public void testClear() throws Exception {
+        Connection outer = ThreadAffinity.open(fetcher, new JNDIDecoratorProxy(fetcher));
+        outer.setAutoCommit(false);
+        Connection nested = ThreadAffinity.join(fetcher);
+        assertNotNull(nested);
+        ThreadAffinity.clear();
+        assertNull("no longer shared", ThreadAffinity.join(fetcher));
+        Connection physical = outer.unwrap(JDBCConnection.class);
+        outer.close();
+        assertFalse(physical.isClosed());
+        nested.close();
+        assertTrue(physical.isClosed());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ThreadAffinity#join(LazyDataSourceFetcher)}.
+     */
+    @Test
+    public void testLeaked() throws Exception {
+        System.setProperty(LeakDetector.THRESHOLD_PROPERTY, "500");
+        try {
+            fetcher = new MemoryFetcher("affinity");
+        } finally {
+            System.clearProperty(LeakDetector.THRESHOLD_PROPERTY);
+        }
+        Connection leaked = ThreadAffinity.open(fetcher, new JNDIDecoratorProxy(fetcher));
+        leaked.setAutoCommit(false);
+        Thread.sleep(600);
+        assertNull("held too long", ThreadAffinity.join(fetcher));
+        Connection next = ThreadAffinity.open(fetcher, new JNDIDecoratorProxy(fetcher));
+        next.setAutoCommit(false);
+        Connection nested = ThreadAffinity.join(fetcher);
+        assertNotNull(nested);
+        leaked.close();
+        Connection again = ThreadAffinity.join(fetcher);
+        assertNotNull("entry of the next connection kept", again);
+        ThreadAffinity.clear();
+        Connection physical = next.unwrap(JDBCConnection.class);
+        next.close();
+        nested.close();
+        again.close();
+        assertTrue(physical.isClosed());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.ThreadAffinity#join(LazyDataSourceFetcher)}.
+     */
+    @Test
+    public void testAbort() throws Exception {
+        Connection outer = ThreadAffinity.open(fetcher, new JNDIDecoratorProxy(fetcher));
+        outer.setAutoCommit(false);
+        Connection physical = outer.unwrap(JDBCConnection.class);
+        Connection nested = ThreadAffinity.join(fetcher);
+        assertNotNull(nested);
+        nested.abort(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        assertTrue(nested.isClosed());
+        try {
+            nested.getAutoCommit();
+            fail("handle closed");
+        } catch (SQLNonTransientConnectionException expected) {
+            assertEquals("08003", expected.getSQLState());
+        }
+        assertTrue("shared connection aborted", physical.isClosed());
+        assertNull("no longer shared", ThreadAffinity.join(fetcher));
+        outer.close();
+        Connection next = ThreadAffinity.open(fetcher, new JNDIDecoratorProxy(fetcher));
+        assertFalse(next.isClosed());
+        next.close();
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+import fr.unistra.di.jdbc.jndi.JNDIDecoratorProxy;
+import fr.unistra.di.jdbc.jndi.MemoryFetcher;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class BatchingPreparedStatementTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.decorator.BatchingPreparedStatement#executeUpdate()}.
+     */
+    @Test
+    public void testBatching() throws Exception {
+        Batches batches = new Batches(3, 4);
+        Connection conn = new JNDIDecoratorProxy(new MemoryFetcher("batchtest"), false, batches, null);
+        try {
+            Statement stmt = conn.createStatement();
+            stmt.execute("CREATE TABLE batched (id INT)");
+            conn.setAutoCommit(false);
+            PreparedStatement insert = conn.prepareStatement("INSERT INTO batched VALUES (?)");
+            for (int i = 0; i < 2; i++) {
+                insert.setInt(1, i);
+                assertEquals(1, insert.executeUpdate());
+            }
+            assertTrue("coalesced", batches.isPending());
+            insert.setInt(1, 2);
+            insert.executeUpdate();
+            assertFalse("batch size reached", batches.isPending());
+
+            insert.setInt(1, 3);
+            insert.executeUpdate();
+            assertEquals("flushed on read", 4, count(stmt));
+            assertFalse(batches.isPending());
+
+            insert.setInt(1, 4);
+            insert.executeUpdate();
+            conn.rollback();
+            assertFalse(batches.isPending());
+            assertEquals(0, count(stmt));
+
+            for (int i = 0; i < 10; i++) {
+                insert.setInt(1, i);
+                insert.addBatch();
+            }
+            assertEquals("counts of every chunk", 10, insert.executeBatch().length);
+            insert.setInt(1, 10);
+            insert.executeUpdate();
+            conn.commit();
+            assertFalse(batches.isPending());
+            assertEquals(11, count(stmt));
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.decorator.Batches#flush()}.
+     */
+    @Test
+    public void testStatementOrder() throws Exception {
+        Batches batches = new Batches(10, 10);
+        Connection conn = new JNDIDecoratorProxy(new MemoryFetcher("batchorder"), false, batches, null);
+        try {
+            Statement stmt = conn.createStatement();
+            stmt.execute("CREATE TABLE batched (id INT PRIMARY KEY)");
+            conn.setAutoCommit(false);
+            PreparedStatement insert = conn.prepareStatement("INSERT INTO batched VALUES (?)");
+            PreparedStatement delete = conn.prepareStatement("DELETE FROM batched WHERE id = ?");
+            insert.setInt(1, 1);
+            insert.executeUpdate();
+            insert.setInt(1, 2);
+            insert.executeUpdate();
+            delete.setInt(1, 1);
+            delete.executeUpdate();
+            insert.setInt(1, 1);
+            insert.executeUpdate();
+            assertTrue(batches.isPending());
+            conn.commit();
+            ResultSet rs = stmt.executeQuery("SELECT id FROM batched ORDER BY id");
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertFalse("insert, delete, re-insert in order", rs.next());
+            rs.close();
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.decorator.BatchingCallableStatement#executeQuery()}.
+     */
+    @Test
+    public void testCallableFlush() throws Exception {
+        Batches batches = new Batches(10, 10);
+        Connection conn = new JNDIDecoratorProxy(new MemoryFetcher("batchcall"), false, batches, null);
+        try {
+            conn.createStatement().execute("CREATE TABLE batched (id INT)");
+            conn.setAutoCommit(false);
+            PreparedStatement insert = conn.prepareStatement("INSERT INTO batched VALUES (?)");
+            CallableStatement call = conn.prepareCall("SELECT COUNT(*) FROM batched");
+            insert.setInt(1, 0);
+            insert.executeUpdate();
+            assertTrue("coalesced after prepareCall", batches.isPending());
+            ResultSet rs = call.executeQuery();
+            assertFalse("flushed on callable execute", batches.isPending());
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            rs.close();
+
+            insert.setInt(1, 1);
+            insert.executeUpdate();
+            assertTrue(batches.isPending());
+            assertTrue(call.execute());
+            assertFalse("flushed on every execute", batches.isPending());
+            rs = call.getResultSet();
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            rs.close();
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static int count(Statement stmt) throws SQLException {
+        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM batched");
+        try {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        } finally {
+            rs.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.decorator;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hsqldb.jdbc.JDBCConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ConnectionDecoratorTest {
+
+    private Connection physical;
+    private Connection decorator;
+
+    @Before
+    public void setUp() throws Exception {
+        physical = DriverManager.getConnection("jdbc:hsqldb:mem:decorator", "sa", "");
+        decorator = new ConnectionDecorator() {
+            @Override
+            protected Connection getDelegate() throws SQLException {
+                return physical;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        physical.close();
+    }
+
+    @Test
+    public void testStatements() throws Exception {
+        Statement stmt = decorator.createStatement();
+        assertThat(stmt, instanceOf(StatementDecorator.class));
+        assertSame(decorator, stmt.getConnection());
+        ResultSet rs = stmt.executeQuery("VALUES 42");
+        assertTrue(rs.next());
+        assertEquals(42, rs.getInt(1));
+        stmt.close();
+
+        PreparedStatement pstmt = decorator.prepareStatement("VALUES ?");
+        assertThat(pstmt, instanceOf(PreparedStatementDecorator.class));
+        assertSame(decorator, pstmt.getConnection());
+        pstmt.close();
+
+        CallableStatement cstmt = decorator.prepareCall("CALL ABS(-1)");
+        assertThat(cstmt, instanceOf(CallableStatementDecorator.class));
+        assertSame(decorator, cstmt.getConnection());
+        cstmt.close();
+
+        assertSame(decorator, decorator.getMetaData().getConnection());
+    }
+
+    @Test
+    public void testUnwrap() throws Exception {
+        assertSame(decorator, decorator.unwrap(Connection.class));
+        assertSame(physical, decorator.unwrap(JDBCConnection.class));
+        assertTrue(decorator.isWrapperFor(JDBCConnection.class));
+    }
+}
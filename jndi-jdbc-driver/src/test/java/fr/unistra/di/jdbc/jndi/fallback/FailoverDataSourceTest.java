@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.fallback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class FailoverDataSourceTest {
+
+    /** in-memory database, possibly down or stuck */
+    private static class Member extends JDBCDataSource {
+        private static final long serialVersionUID = 1L;
+        volatile boolean down;
+        /** SQLState of connection failures while {@link #down} */
+        volatile String state = "08001";
+        volatile long stuck;
+
+        Member(String db) {
+            setUrl("jdbc:hsqldb:mem:" + db);
+            setUser("sa");
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (stuck > 0)
+                try {
+                    Thread.sleep(stuck);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            if (down)
+                throw new SQLException("down", state);
+            return super.getConnection();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.fallback.FailoverDataSource#getConnection()}.
+     */
+    @Test
+    public void testFailover() throws SQLException {
+        Member a = new Member("failoverA"), b = new Member("failoverB");
+        FailoverDataSource failover = new FailoverDataSource(Arrays.asList(a, b), null, 0, 100);
+        try {
+            String first = url(failover), second = url(failover);
+            assertFalse("round robin", first.equals(second));
+
+            a.down = true;
+            for (int i = 0; i < 3; i++)
+                assertEquals("jdbc:hsqldb:mem:failoverB", url(failover));
+            assertFalse(failover.isHealthy(0));
+
+            b.down = true;
+            try {
+                failover.getConnection();
+                fail("every member down");
+            } catch (SQLException expected) { }
+
+            a.down = false;
+            assertEquals("unhealthy members are tried as last resort",
+                    "jdbc:hsqldb:mem:failoverA", url(failover));
+            assertTrue(failover.isHealthy(0));
+
+            b.down = false;
+            a.state = "28000";
+            a.down = true;
+            for (int i = 0; i < 3; i++)
+                assertEquals("jdbc:hsqldb:mem:failoverB", url(failover));
+            assertTrue("not a connection failure", failover.isHealthy(0));
+            a.state = null;
+            url(failover);
+            url(failover);
+            assertTrue("busy, not down", failover.isHealthy(0));
+        } finally {
+            failover.close();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.fallback.FailoverDataSource#check()}.
+     */
+    @Test
+    public void testFailoverHealthCheck() throws Exception {
+        Member a = new Member("failoverA"), b = new Member("failoverB");
+        FailoverDataSource failover = new FailoverDataSource(Arrays.asList(a, b), "VALUES 1", 0, 200);
+        try {
+            a.stuck = 5000;
+            long start = System.currentTimeMillis();
+            failover.check();
+            assertTrue("not waiting for checks", System.currentTimeMillis() - start < 200);
+            awaitHealth(failover, 0, false);
+            assertTrue("bounded detection time", System.currentTimeMillis() - start < 2000);
+            assertTrue(failover.isHealthy(1));
+            assertEquals("jdbc:hsqldb:mem:failoverB", url(failover));
+            assertEquals("jdbc:hsqldb:mem:failoverB", url(failover));
+
+            a.stuck = 0;
+            a.down = true;
+            failover.check();
+            Thread.sleep(300);
+            assertFalse(failover.isHealthy(0));
+            assertTrue(failover.isHealthy(1));
+            a.down = false;
+            failover.check();
+            awaitHealth(failover, 0, true);
+        } finally {
+            failover.close();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.fallback.FailoverDataSource#check()}.
+     */
+    @Test
+    public void testConcurrentHealthChecks() throws Exception {
+        FailoverDataSource[] instances = new FailoverDataSource[5];
+        for (int i = 0; i < instances.length; i++) {
+            Member stuck = new Member("failoverA");
+            stuck.stuck = 5000;
+            instances[i] = new FailoverDataSource(Arrays.asList(stuck, new Member("failoverB")), "VALUES 1", 0, 200);
+        }
+        try {
+            long start = System.currentTimeMillis();
+            for (FailoverDataSource failover : instances)
+                failover.check();
+            for (FailoverDataSource failover : instances)
+                awaitHealth(failover, 0, false);
+            assertTrue("checks of every instance at once", System.currentTimeMillis() - start < 800);
+        } finally {
+            for (FailoverDataSource failover : instances)
+                failover.close();
+        }
+    }
+
+    private static void awaitHealth(FailoverDataSource failover, int index, boolean healthy)
+            throws InterruptedException {
+        for (int i = 0; i < 200 && failover.isHealthy(index) != healthy; i++)
+            Thread.sleep(10);
+        assertEquals(healthy, failover.isHealthy(index));
+    }
+
+    private static String url(DataSource ds) throws SQLException {
+        Connection conn = ds.getConnection();
+        try {
+            return conn.getMetaData().getURL();
+        } finally {
+            conn.close();
+        }
+    }
+}
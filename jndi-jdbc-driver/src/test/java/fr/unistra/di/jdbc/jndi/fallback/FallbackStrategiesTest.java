@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.fallback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+import fr.unistra.di.jdbc.jndi.DriverOptions;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class FallbackStrategiesTest {
+
+    /** strategy handling a single name, counting calls */
+    private static class Counting implements PrioritizedFallbackStrategy {
+        final String handled;
+        final int priority;
+        final DataSource dataSource = new JDBCDataSource();
+        int calls;
+
+        Counting(String handled, int priority) {
+            this.handled = handled;
+            this.priority = priority;
+        }
+
+        public DataSource getDataSource(String name, Properties info) throws SQLException {
+            calls++;
+            return handled.equals(name) ? dataSource : null;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.fallback.FallbackStrategies#getStrategies()}.
+     */
+    @Test
+    public void testOrder() {
+        Counting low = new Counting("a", -1), high = new Counting("b", 10);
+        FallbackStrategy plain = new FallbackStrategy() {
+            public DataSource getDataSource(String name, Properties info) {
+                return null;
+            }
+        };
+        List<FallbackStrategy> loaded = Arrays.asList(high, plain, low);
+        assertEquals(Arrays.asList(low, plain, high),
+                new FallbackStrategies(loaded, null).getStrategies());
+        assertEquals(Arrays.asList(low, high, plain),
+                new FallbackStrategies(loaded, Counting.class.getName()).getStrategies());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.fallback.FallbackStrategies#getDataSource(java.lang.String, java.util.Properties)}.
+     */
+    @Test
+    public void testRememberedResults() throws SQLException {
+        Counting first = new Counting("a", 0), second = new Counting("b", 1);
+        FallbackStrategies chain = new FallbackStrategies(Arrays.<FallbackStrategy>asList(first, second), null);
+        for (int i = 0; i < 3; i++) {
+            assertSame(second.dataSource, chain.getDataSource("b", null));
+            assertNull(chain.getDataSource("c", null));
+        }
+        assertEquals(2, first.calls);
+        assertEquals(2, second.calls);
+
+        chain.forget("b");
+        assertSame(second.dataSource, chain.getDataSource("b", null));
+        assertEquals(3, second.calls);
+
+        Properties info = new Properties();
+        info.setProperty("user", "other");
+        assertSame(second.dataSource, chain.getDataSource("b", info));
+        assertEquals(4, second.calls);
+        info.setProperty(DriverOptions.LAZY, "true");
+        assertSame(second.dataSource, chain.getDataSource("b", info));
+        assertEquals(4, second.calls);
+
+        chain.forget("b");
+        chain.getDataSource("b", null);
+        chain.getDataSource("b", info);
+        assertEquals(6, second.calls);
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.fallback.FallbackStrategies#getDataSource(java.lang.String, java.util.Properties)}.
+     */
+    @Test
+    public void testUnhandledExpiry() throws Exception {
+        Counting strategy = new Counting("a", 0);
+        FallbackStrategies chain = new FallbackStrategies(Arrays.<FallbackStrategy>asList(strategy), null, 50, 2);
+        assertNull(chain.getDataSource("c", null));
+        assertNull(chain.getDataSource("c", null));
+        assertEquals(1, strategy.calls);
+        Thread.sleep(100);
+        assertNull(chain.getDataSource("c", null));
+        assertEquals("asked again once expired", 2, strategy.calls);
+
+        assertSame(strategy.dataSource, chain.getDataSource("a", null));
+        assertNull(chain.getDataSource("d", null));
+        assertNull(chain.getDataSource("e", null));
+        assertEquals(5, strategy.calls);
+        chain.getDataSource("a", null);
+        chain.getDataSource("c", null);
+        chain.getDataSource("d", null);
+        chain.getDataSource("e", null);
+        assertTrue("at most 2 results remembered", strategy.calls >= 7);
+
+        strategy = new Counting("a", 0);
+        chain = new FallbackStrategies(Arrays.<FallbackStrategy>asList(strategy), null, 0, 10);
+        chain.getDataSource("c", null);
+        chain.getDataSource("c", null);
+        assertEquals("not remembered without TTL", 2, strategy.calls);
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.fallback.FallbackStrategies#getInstance(java.lang.ClassLoader)}.
+     */
+    @Test
+    public void testInstancePerLoader() {
+        ClassLoader loader = getClass().getClassLoader();
+        assertSame(FallbackStrategies.getInstance(loader), FallbackStrategies.getInstance(loader));
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class JmxDriverMetricsTest {
+
+    private MBeanServer server;
+    private JmxDriverMetrics metrics;
+
+    @Before
+    public void setUp() {
+        server = MBeanServerFactory.newMBeanServer();
+        metrics = new JmxDriverMetrics(server);
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.metrics.JmxDriverMetrics#lookup(String, String, long, boolean)}.
+     */
+    @Test
+    public void testLookup() throws Exception {
+        metrics.lookup("jdbc/a", null, 1500000, true);
+        metrics.lookup("jdbc/a", null, 500, false);
+        metrics.lookup("jdbc/a", "my.Strategy", 3000, true);
+
+        LatencyHistogram whole = metrics.getLookupLatency("jdbc/a", null);
+        assertEquals(2, whole.getCount());
+        assertEquals(1, whole.getFailures());
+        assertEquals(1500, whole.getMaxMicros());
+        assertEquals(Long.valueOf(1), whole.getBuckets().get("<1us"));
+        assertEquals(Long.valueOf(1), whole.getBuckets().get("<2048us"));
+        assertEquals(1, metrics.getLookupLatency("jdbc/a", "my.Strategy").getCount());
+
+        ObjectName on = new ObjectName(JmxDriverMetrics.DOMAIN + ":type=Lookup,name="
+                + ObjectName.quote("jdbc/a") + ",strategy=" + ObjectName.quote("my.Strategy"));
+        assertEquals(Long.valueOf(1), server.getAttribute(on, "Count"));
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.metrics.JmxDriverMetrics#registerPool(String, PoolGauges)}.
+     */
+    @Test
+    public void testPool() throws Exception {
+        PoolGauges pool = new PoolGauges() {
+            public int getActive() {
+                return 3;
+            }
+
+            public int getIdle() {
+                return 2;
+            }
+        };
+        metrics.registerPool("jdbc:hsqldb:mem:x", pool);
+        ObjectName on = new ObjectName(JmxDriverMetrics.DOMAIN + ":type=Pool,name="
+                + ObjectName.quote("jdbc:hsqldb:mem:x"));
+        assertEquals(Integer.valueOf(3), server.getAttribute(on, "Active"));
+        assertEquals(Integer.valueOf(2), server.getAttribute(on, "Idle"));
+        metrics.unregisterPool("jdbc:hsqldb:mem:x", pool);
+        assertFalse(server.isRegistered(on));
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.metrics.JmxDriverMetrics#call(String)}.
+     */
+    @Test
+    public void testCounters() throws Exception {
+        metrics.call("commit");
+        metrics.call("commit");
+        metrics.cacheHit("dataSource", "jdbc/a");
+        metrics.cacheMiss("dataSource", "jdbc/a");
+        metrics.cacheMiss("dataSource", "jdbc/b");
+        Map<String, Long> calls = metrics.getCalls();
+        assertEquals(Long.valueOf(2), calls.get("commit"));
+        assertEquals(Long.valueOf(1), metrics.getCacheHits().get("dataSource"));
+        assertEquals(Long.valueOf(2), metrics.getCacheMisses().get("dataSource"));
+        assertEquals(Long.valueOf(1), metrics.getCacheMissesByName().get("dataSource:jdbc/b"));
+        assertEquals(Long.valueOf(1), metrics.getCacheHitsByName().get("dataSource:jdbc/a"));
+        assertEquals(null, metrics.getCacheHitsByName().get("dataSource:jdbc/b"));
+        assertTrue(server.isRegistered(new ObjectName(JmxDriverMetrics.DOMAIN + ":type=Driver")));
+    }
+}
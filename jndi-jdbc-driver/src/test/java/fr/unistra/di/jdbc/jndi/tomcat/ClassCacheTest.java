@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.Driver;
+
+import javax.naming.spi.ObjectFactory;
+
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ClassCacheTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ClassCache#getInstance(String, Class)}.
+     */
+    @Test
+    public void testGetInstance() throws Exception {
+        assertSame(JDBCDriver.class, ClassCache.forName(JDBCDriver.class.getName()));
+        Driver driver = ClassCache.getInstance(JDBCDriver.class.getName(), Driver.class);
+        assertSame(driver, ClassCache.getInstance(JDBCDriver.class.getName(), Driver.class));
+        assertSame(ClassCache.getInstance(DriverDataSourceFactory.class.getName(), ObjectFactory.class),
+                ClassCache.getInstance(DriverDataSourceFactory.class.getName(), ObjectFactory.class));
+        try {
+            ClassCache.getInstance(JDBCDriver.class.getName(), ObjectFactory.class);
+            fail("not an ObjectFactory");
+        } catch (ClassCastException expected) { }
+        try {
+            ClassCache.getInstance(Integer.class.getName(), Number.class);
+            fail("no default constructor");
+        } catch (NoSuchMethodException expected) { }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ClassCache#forName(String)}.
+     */
+    @Test
+    public void testMissing() throws Exception {
+        ClassNotFoundException missing = null;
+        try {
+            ClassCache.forName("org.example.Missing");
+            fail("no such class");
+        } catch (ClassNotFoundException ex) {
+            missing = ex;
+        }
+        try {
+            ClassCache.getInstance("org.example.Missing", ObjectFactory.class);
+            fail("no such class");
+        } catch (ClassNotFoundException ex) {
+            assertSame("cached failure", missing, ex);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import org.hsqldb.jdbc.JDBCConnection;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.hsqldb.jdbc.JDBCPreparedStatement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ConnectionPoolTest {
+
+    private PooledDriverDatasource dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("user", "sa");
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.maxActive = 2;
+        config.maxIdle = 1;
+        config.maxWait = 100;
+        config.validationQuery = "VALUES 1";
+        config.testOnBorrow = true;
+        dataSource = new PooledDriverDatasource(new JDBCDriver(), "jdbc:hsqldb:mem:pooltest", props, config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dataSource.close();
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ConnectionPool#borrow()}.
+     */
+    @Test
+    public void testReuse() throws Exception {
+        Connection first = dataSource.getConnection();
+        Connection physical = first.unwrap(JDBCConnection.class);
+        first.setAutoCommit(false);
+        first.close();
+        assertTrue(first.isClosed());
+        assertEquals(1, dataSource.getPool().getIdle());
+
+        Connection second = dataSource.getConnection();
+        assertNotSame(first, second);
+        assertSame(physical, second.unwrap(JDBCConnection.class));
+        assertTrue("auto-commit restored on release", second.getAutoCommit());
+        assertFalse(second.isClosed());
+        assertEquals(1, dataSource.getPool().getActive());
+        second.close();
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ConnectionPool#borrow()}.
+     */
+    @Test
+    public void testLastReleasedFirst() throws Exception {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.maxActive = 3;
+        config.maxIdle = 3;
+        config.minEvictableIdleTimeMillis = 50;
+        PooledDriverDatasource lifo = new PooledDriverDatasource(new JDBCDriver(),
+                "jdbc:hsqldb:mem:pooltest", props(), config);
+        try {
+            Connection first = lifo.getConnection();
+            Connection second = lifo.getConnection();
+            Connection older = first.unwrap(JDBCConnection.class);
+            Connection recent = second.unwrap(JDBCConnection.class);
+            first.close();
+            second.close();
+            Thread.sleep(100);
+            for (int i = 0; i < 3; i++) {
+                Connection conn = lifo.getConnection();
+                assertSame("most recently released", recent, conn.unwrap(JDBCConnection.class));
+                conn.close();
+            }
+            lifo.getPool().evict();
+            assertEquals("the other one left idle, then evicted", 1, lifo.getPool().getIdle());
+            assertTrue(older.isClosed());
+        } finally {
+            lifo.close();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ConnectionPool#borrow()}.
+     */
+    @Test
+    public void testMaxActive() throws Exception {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        try {
+            dataSource.getConnection();
+            fail("maxActive exceeded");
+        } catch (SQLTransientConnectionException expected) { }
+        first.close();
+        second.close();
+        assertEquals("maxIdle exceeded", 1, dataSource.getPool().getIdle());
+        dataSource.getConnection().close();
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ConnectionPool#release(ConnectionPool.PooledConnection)}.
+     */
+    @Test
+    public void testResetSettings() throws Exception {
+        Connection first = dataSource.getConnection();
+        int isolation = first.getTransactionIsolation();
+        first.setReadOnly(true);
+        first.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        first.setHoldability(ResultSet.CLOSE_CURSORS_AT_COMMIT);
+        first.close();
+
+        Connection second = dataSource.getConnection();
+        assertFalse("readOnly restored", second.isReadOnly());
+        assertEquals("isolation restored", isolation, second.getTransactionIsolation());
+        assertEquals(ResultSet.HOLD_CURSORS_OVER_COMMIT, second.getHoldability());
+        second.close();
+    }
+
+    /**
+     * Test method for {@link java.sql.Connection#abort(java.util.concurrent.Executor)}.
+     */
+    @Test
+    public void testAbort() throws Exception {
+        Executor direct = new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            Connection aborted = dataSource.getConnection();
+            aborted.abort(direct);
+            assertTrue(aborted.isClosed());
+            aborted.abort(direct);
+        }
+        assertEquals(0, dataSource.getPool().getActive());
+        assertEquals("aborted connections never pooled", 0, dataSource.getPool().getIdle());
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        first.close();
+        second.close();
+    }
+
+    /**
+     * Test method for {@link java.sql.Connection#close()}.
+     */
+    @Test
+    public void testStatementsClosedOnRelease() throws Exception {
+        Connection conn = dataSource.getConnection();
+        Statement stmt = conn.createStatement();
+        PreparedStatement prepared = conn.prepareStatement("VALUES 1");
+        PreparedStatement closed = conn.prepareStatement("VALUES 2");
+        closed.close();
+        conn.close();
+        assertTrue(stmt.isClosed());
+        assertTrue(prepared.isClosed());
+
+        conn = dataSource.getConnection();
+        for (int i = 0; i < 100; i++)
+            conn.createStatement().close();
+        Statement open = conn.createStatement();
+        conn.close();
+        assertTrue(open.isClosed());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.StatementCache}.
+     */
+    @Test
+    public void testStatementCache() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("user", "sa");
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.poolPreparedStatements = true;
+        config.maxOpenPreparedStatements = 1;
+        PooledDriverDatasource cached = new PooledDriverDatasource(new JDBCDriver(),
+                "jdbc:hsqldb:mem:pooltest", props, config);
+        PreparedStatement physical;
+        try {
+            Connection conn = cached.getConnection();
+            PreparedStatement first = conn.prepareStatement("VALUES ?");
+            physical = first.unwrap(JDBCPreparedStatement.class);
+            first.setInt(1, 1);
+            first.close();
+            assertTrue(first.isClosed());
+            try {
+                first.executeQuery();
+                fail("closed statement");
+            } catch (SQLException expected) { }
+            try {
+                first.setInt(1, 2);
+                fail("closed statement");
+            } catch (SQLException expected) { }
+            conn.close();
+
+            conn = cached.getConnection();
+            PreparedStatement second = conn.prepareStatement("VALUES ?");
+            assertSame(conn, second.getConnection());
+            assertSame(physical, second.unwrap(JDBCPreparedStatement.class));
+            second.setInt(1, 42);
+            ResultSet rs = second.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(42, rs.getInt(1));
+            second.setMaxRows(5);
+            second.setQueryTimeout(3);
+            second.setFetchSize(7);
+            second.setMaxFieldSize(11);
+            assertNotSame(physical, conn.prepareStatement("VALUES ?").unwrap(JDBCPreparedStatement.class));
+
+            PreparedStatement other = conn.prepareStatement("VALUES 1");
+            PreparedStatement otherPhysical = other.unwrap(JDBCPreparedStatement.class);
+            other.close();
+            second.close();
+            assertTrue("evicted beyond maxOpenPreparedStatements", otherPhysical.isClosed());
+            assertTrue("result set closed on release", rs.isClosed());
+            assertEquals(0, physical.getMaxRows());
+            assertEquals(0, physical.getQueryTimeout());
+            assertEquals(0, physical.getFetchSize());
+            assertEquals(0, physical.getMaxFieldSize());
+            conn.close();
+        } finally {
+            cached.close();
+        }
+        assertTrue("flushed on physical close", physical.isClosed());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ConnectionValidator#validate(Connection)}.
+     */
+    @Test
+    public void testValidator() throws Exception {
+        ConnectionValidator validator = new ConnectionValidator("jdbc/validated", null, 1, 100);
+        assertTrue(validator.isRecent(System.currentTimeMillis()));
+        assertFalse(validator.isRecent(System.currentTimeMillis() - 1000));
+        assertFalse("always validate", new ConnectionValidator("jdbc/validated", null, 1, 0)
+                .isRecent(System.currentTimeMillis()));
+
+        Connection physical = new JDBCDriver().connect("jdbc:hsqldb:mem:pooltest", props());
+        for (int i = 0; i < ConnectionValidator.BACKOFF_STEP; i++)
+            assertTrue(validator.validate(physical));
+        assertEquals("backed off", 200, validator.getInterval());
+        physical.close();
+        assertFalse(validator.validate(physical));
+        assertEquals(100, validator.getInterval());
+
+        Connection pooled = dataSource.getConnection();
+        pooled.close();
+        assertTrue("recently given back", dataSource.getPool().getValidator()
+                .isRecent(System.currentTimeMillis()));
+        dataSource.getConnection().close();
+    }
+
+    private static Properties props() {
+        Properties props = new Properties();
+        props.setProperty("user", "sa");
+        return props;
+    }
+}
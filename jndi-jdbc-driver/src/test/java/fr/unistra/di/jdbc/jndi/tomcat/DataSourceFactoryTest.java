@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+import javax.naming.Reference;
+import javax.naming.StringRefAddr;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class DataSourceFactoryTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.DataSourceFactory#getObjectInstance(Object, javax.naming.Name, javax.naming.Context, java.util.Hashtable)}.
+     */
+    @Test
+    public void testGetObjectInstance() throws Exception {
+        Reference ref = new Reference("javax.sql.DataSource", JDBCDataSource.class.getName(), null);
+        ref.add(new StringRefAddr("url", "jdbc:hsqldb:mem:beanDB"));
+        ref.add(new StringRefAddr("username", "sa"));
+        ref.add(new StringRefAddr("loginTimeout", " 7 "));
+        ref.add(new StringRefAddr("maxActive", "10"));
+        Object instance = new TopSPIObjectFactory().getObjectInstance(ref, null, null, null);
+        assertThat(instance, instanceOf(JDBCDataSource.class));
+        JDBCDataSource ds = (JDBCDataSource) instance;
+        assertEquals("jdbc:hsqldb:mem:beanDB", ds.getUrl());
+        assertEquals("sa", ds.getUser());
+        assertEquals(7, ds.getLoginTimeout());
+        ds.getConnection().close();
+
+        assertSame("setters looked up once", DataSourceFactory.getSetters(JDBCDataSource.class),
+                DataSourceFactory.getSetters(JDBCDataSource.class));
+
+        ref.add(new StringRefAddr("loginTimeout", "never"));
+        try {
+            new DataSourceFactory(JDBCDataSource.class).getObjectInstance(ref, null, null, null);
+            fail("invalid value");
+        } catch (NamingException expected) { }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.DataSourceFactory#getObjectInstance(Object, javax.naming.Name, javax.naming.Context, java.util.Hashtable)}.
+     */
+    @Test
+    public void testAliases() throws Exception {
+        Reference ref = new Reference("javax.sql.DataSource", PoolDataSource.class.getName(), null);
+        ref.add(new StringRefAddr("username", "sa"));
+        ref.add(new StringRefAddr("MaxActive", "10"));
+        ref.add(new StringRefAddr("minIdle", "2"));
+        ref.add(new StringRefAddr("maxWait", "3000"));
+        ref.add(new StringRefAddr("connectionProperties", "shutdown=true; ifexists = false"));
+        ref.add(new StringRefAddr("timeUnit", "SECONDS"));
+        PoolDataSource ds = (PoolDataSource) new DataSourceFactory(PoolDataSource.class)
+                .getObjectInstance(ref, null, null, null);
+        assertEquals("sa", ds.getUser());
+        assertEquals(10, ds.maximumPoolSize);
+        assertEquals(Integer.valueOf(2), ds.minimumIdle);
+        assertEquals(3000L, ds.connectionTimeout);
+        assertEquals("true", ds.dataSourceProperties.getProperty("shutdown"));
+        assertEquals("false", ds.dataSourceProperties.getProperty("ifexists"));
+        assertEquals(TimeUnit.SECONDS, ds.timeUnit);
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.DataSourceFactory#convert(String, Class)}.
+     */
+    @Test
+    public void testConvert() {
+        assertEquals(" a ", DataSourceFactory.convert(" a ", String.class));
+        assertEquals(Boolean.TRUE, DataSourceFactory.convert(" true", boolean.class));
+        assertEquals(TimeUnit.MINUTES, DataSourceFactory.convert("MINUTES ", TimeUnit.class));
+        Properties props = (Properties) DataSourceFactory.convert("a=1;;b = x=y;=ignored;c", Properties.class);
+        assertEquals("1", props.getProperty("a"));
+        assertEquals("x=y", props.getProperty("b"));
+        assertEquals(2, props.size());
+        try {
+            DataSourceFactory.convert("minutes", TimeUnit.class);
+            fail("no such constant");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            DataSourceFactory.convert("x", Object.class);
+            fail("not convertible");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    /** JavaBean DataSource named as HikariCP */
+    public static class PoolDataSource extends JDBCDataSource {
+        private static final long serialVersionUID = 1L;
+        int maximumPoolSize;
+        Integer minimumIdle;
+        long connectionTimeout;
+        Properties dataSourceProperties;
+        TimeUnit timeUnit;
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public void setMinimumIdle(Integer minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public void setConnectionTimeout(long connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public void setDataSourceProperties(Properties dataSourceProperties) {
+            this.dataSourceProperties = dataSourceProperties;
+        }
+
+        public void setTimeUnit(TimeUnit timeUnit) {
+            this.timeUnit = timeUnit;
+        }
+    }
+}
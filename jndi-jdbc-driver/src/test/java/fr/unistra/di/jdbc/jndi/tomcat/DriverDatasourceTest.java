@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLTimeoutException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class DriverDatasourceTest {
+
+    /** HSQLDB driver connecting after {@code delay} ms */
+    private static Driver slowDriver(final long delay, final CountDownLatch closed) {
+        final Driver hsqldb = new JDBCDriver();
+        return (Driver) Proxy.newProxyInstance(Driver.class.getClassLoader(), new Class<?>[] { Driver.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        try {
+                            if (!"connect".equals(method.getName()))
+                                return method.invoke(hsqldb, args);
+                            long end = System.currentTimeMillis() + delay;
+                            // ignore interruptions, as a driver blocked on the network would
+                            while (System.currentTimeMillis() < end)
+                                try {
+                                    Thread.sleep(Math.max(1, end - System.currentTimeMillis()));
+                                } catch (InterruptedException ignored) { }
+                            final Connection conn = (Connection) method.invoke(hsqldb, args);
+                            return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                    new Class<?>[] { Connection.class }, new InvocationHandler() {
+                                        public Object invoke(Object proxy, Method method, Object[] args)
+                                                throws Throwable {
+                                            if ("close".equals(method.getName()))
+                                                closed.countDown();
+                                            return method.invoke(conn, args);
+                                        }
+                                    });
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.DriverDatasource#setLoginTimeout(int)}.
+     */
+    @Test
+    public void testLoginTimeout() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("user", "sa");
+        CountDownLatch closed = new CountDownLatch(1);
+        DriverDatasource ds = new DriverDatasource(slowDriver(1500, closed), "jdbc:hsqldb:mem:slowDB", props);
+        ds.setLoginTimeout(1);
+        long start = System.currentTimeMillis();
+        try {
+            ds.getConnection();
+            fail("login timeout reached");
+        } catch (SQLTimeoutException expected) {
+            assertEquals("08001", expected.getSQLState());
+        }
+        assertTrue("given up", System.currentTimeMillis() - start < 1400);
+        assertTrue("late connection closed", closed.await(5, TimeUnit.SECONDS));
+
+        ds.setLoginTimeout(0);
+        ds.getConnection().close();
+        ds.setLoginTimeout(5);
+        ds.getConnection().close();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.naming.Reference;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ReloadableDataSourceTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ReloadableDataSource#swap(javax.sql.DataSource, java.util.List)}.
+     */
+    @Test
+    public void testDrain() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        class ClosingDataSource extends JDBCDataSource implements Closeable {
+            private static final long serialVersionUID = 1L;
+
+            public void close() {
+                closed.set(true);
+            }
+        }
+        ClosingDataSource first = new ClosingDataSource();
+        first.setUrl("jdbc:hsqldb:mem:first");
+        first.setUser("sa");
+        JDBCDataSource second = new JDBCDataSource();
+        second.setUrl("jdbc:hsqldb:mem:second");
+        second.setUser("sa");
+
+        ReloadableDataSource reloadable = new ReloadableDataSource(first, Collections.<Reference>emptyList());
+        Connection inFlight = reloadable.getConnection();
+        reloadable.swap(second, Collections.<Reference>emptyList());
+        assertFalse("in-flight connection still in use", closed.get());
+        Connection conn = reloadable.getConnection();
+        assertEquals("jdbc:hsqldb:mem:second", conn.getMetaData().getURL());
+        conn.close();
+        assertEquals("jdbc:hsqldb:mem:first", inFlight.getMetaData().getURL());
+        inFlight.close();
+        assertTrue("drained", closed.get());
+    }
+}
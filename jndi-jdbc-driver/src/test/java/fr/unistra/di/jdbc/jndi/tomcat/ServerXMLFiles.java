@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Generated server.xml files
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+final class ServerXMLFiles {
+
+    private ServerXMLFiles() { }
+
+    /**
+     * write a server.xml declaring a {@code jdbc/testDB} resource
+     * @param file server.xml
+     * @param url JDBC URL of the resource
+     */
+    static void write(File file, String url) throws IOException {
+        writeResources(file, "<Resource name=\"jdbc/testDB\" type=\"javax.sql.DataSource\" url=\"" + url + "\""
+                + " factory=\"fr.unistra.di.jdbc.jndi.tomcat.DriverDataSourceFactory\""
+                + " driverClassName=\"org.hsqldb.jdbc.JDBCDriver\" username=\"sa\"/>");
+    }
+
+    /**
+     * write a server.xml declaring these resources
+     * @param file server.xml
+     * @param resources {@code Resource} elements
+     */
+    static void writeResources(File file, String resources) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write("<Server><GlobalNamingResources>" + resources + "</GlobalNamingResources></Server>");
+        } finally {
+            out.close();
+        }
+    }
+}
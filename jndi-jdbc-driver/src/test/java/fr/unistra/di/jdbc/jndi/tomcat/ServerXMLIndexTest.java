@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.Reference;
+
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ServerXMLIndexTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ServerXMLIndex#get(java.lang.String)}.
+     */
+    @Test
+    public void testReload() throws Exception {
+        File serverXML = File.createTempFile("server", ".xml");
+        try {
+            ServerXMLFiles.write(serverXML, "jdbc:hsqldb:mem:first");
+            ServerXMLIndex index = new ServerXMLIndex(serverXML, 0);
+            assertEquals("jdbc:hsqldb:mem:first", index.get("jdbc/testDB").get("url").getContent());
+            assertSame(index.getResources(), index.getResources());
+
+            ServerXMLFiles.write(serverXML, "jdbc:hsqldb:mem:second");
+            assertEquals("jdbc:hsqldb:mem:second", index.get("jdbc/testDB").get("url").getContent());
+            try {
+                index.get("jdbc/unknown");
+                fail("resource should not be found");
+            } catch (NameNotFoundException expected) { }
+        } finally {
+            serverXML.delete();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ServerXMLIndex#getMembers(String)}.
+     */
+    @Test
+    public void testGetMembers() throws Exception {
+        File serverXML = File.createTempFile("server", ".xml");
+        try {
+            ServerXMLFiles.writeResources(serverXML,
+                    "<Resource name=\"jdbc/testDB\" url=\"jdbc:hsqldb:mem:a\"/>"
+                    + "<Resource name=\"jdbc/testDB\" url=\"jdbc:hsqldb:mem:b\"/>");
+            ServerXMLIndex index = new ServerXMLIndex(serverXML, 0);
+            assertEquals("jdbc:hsqldb:mem:a", index.get("jdbc/testDB").get("url").getContent());
+            List<Reference> members = index.getMembers("jdbc/testDB");
+            assertEquals(2, members.size());
+            assertEquals("jdbc:hsqldb:mem:b", members.get(1).get("url").getContent());
+        } finally {
+            serverXML.delete();
+        }
+    }
+}
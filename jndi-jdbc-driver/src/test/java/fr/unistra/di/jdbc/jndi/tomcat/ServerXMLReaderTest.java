@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.Reference;
+
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ServerXMLReaderTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ServerXMLReader#readAll(java.io.File)}.
+     */
+    @Test
+    public void testReadAll() throws Exception {
+        File serverXML = new File(getClass().getResource("/server.xml").getFile());
+        Map<String, Reference> resources = ServerXMLReader.readAll(serverXML);
+        assertEquals(Arrays.asList("UserDatabase", "jdbc/testDB"), new ArrayList<String>(resources.keySet()));
+        assertEquals("org.apache.catalina.users.MemoryUserDatabaseFactory",
+                resources.get("UserDatabase").getFactoryClassName());
+        assertEquals("sa", resources.get("jdbc/testDB").get("username").getContent());
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ServerXMLReader#readAllMembers(java.io.File)}.
+     */
+    @Test
+    public void testReadAllMembers() throws Exception {
+        File serverXML = File.createTempFile("server", ".xml");
+        try {
+            ServerXMLFiles.writeResources(serverXML,
+                    "<Resource name=\"jdbc/testDB\" url=\"jdbc:hsqldb:mem:a\"/>"
+                    + "<Resource name=\"jdbc/other\" url=\"jdbc:hsqldb:mem:other\"/>"
+                    + "<Resource name=\"jdbc/testDB\" url=\"jdbc:hsqldb:mem:b\"/>");
+            Map<String, List<Reference>> members = ServerXMLReader.readAllMembers(serverXML);
+            assertEquals(Arrays.asList("jdbc/testDB", "jdbc/other"), new ArrayList<String>(members.keySet()));
+            assertEquals(2, members.get("jdbc/testDB").size());
+            assertEquals("jdbc:hsqldb:mem:b", members.get("jdbc/testDB").get(1).get("url").getContent());
+            assertEquals("jdbc:hsqldb:mem:a", ServerXMLReader.readAll(serverXML).get("jdbc/testDB")
+                    .get("url").getContent());
+        } finally {
+            serverXML.delete();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2014 Université de Strasbourg (di-dip@unistra.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.unistra.di.jdbc.jndi.tomcat;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
+ *
+ */
+public class ServerXMLWatcherTest {
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.ServerXMLWatcher#watch(File, Runnable)}.
+     */
+    @Test
+    public void testWatch() throws Exception {
+        File serverXML = File.createTempFile("server", ".xml");
+        try {
+            final CountDownLatch changed = new CountDownLatch(1);
+            ServerXMLWatcher.getInstance().watch(serverXML, new Runnable() {
+                public void run() {
+                    changed.countDown();
+                }
+            });
+            ServerXMLFiles.write(serverXML, "jdbc:hsqldb:mem:watched");
+            // polling WatchService implementations only notice changes every few seconds
+            assertTrue(changed.await(30, TimeUnit.SECONDS));
+        } finally {
+            serverXML.delete();
+        }
+    }
+}
@@ -17,7 +17,9 @@ package fr.unistra.di.jdbc.jndi.tomcat;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -26,21 +28,27 @@ import java.io.FileNotFoundException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.net.URL;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 import java.util.ServiceLoader;
 
 import javax.naming.NameNotFoundException;
-import javax.naming.NamingException;
 import javax.naming.Reference;
+import javax.naming.StringRefAddr;
 import javax.naming.spi.ObjectFactory;
 import javax.sql.DataSource;
-import javax.xml.xpath.XPathExpressionException;
+import javax.xml.stream.XMLStreamException;
 
+import org.hsqldb.jdbc.JDBCDataSource;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import fr.unistra.di.jdbc.jndi.fallback.FailoverDataSource;
+
 /**
  * @author Léa Рая DÉCORNOD <decornod@unistra.fr>
  *
@@ -88,12 +96,12 @@ public class TomcatServerXMLStrategyTest {
 
     /**
      * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.TomcatServerXMLStrategy#parseServerXML(java.io.File, java.lang.String)}.
-     * @throws XPathExpressionException
+     * @throws XMLStreamException
      * @throws FileNotFoundException
      * @throws NameNotFoundException
      */
     @Test
-    public void testParseServerXML() throws FileNotFoundException, XPathExpressionException, NameNotFoundException {
+    public void testParseServerXML() throws FileNotFoundException, XMLStreamException, NameNotFoundException {
         File serverXML = new File(getClass().getResource("/server.xml").getFile());
         Reference ref = instance.parseServerXML(serverXML, "jdbc/testDB");
         assertEquals("javax.sql.DataSource", ref.getClassName());
@@ -130,4 +138,94 @@ public class TomcatServerXMLStrategyTest {
         assertThat(((DriverDatasource)dataSource).getDriver(), instanceOf(org.hsqldb.jdbc.JDBCDriver.class));
     }
 
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.DriverDataSourceFactory#getObjectInstance(Object, javax.naming.Name, javax.naming.Context, java.util.Hashtable)}.
+     */
+    @Test
+    public void testFailoverMembers() throws Exception {
+        Reference ref = new Reference("javax.sql.DataSource");
+        ref.add(new StringRefAddr("driverClassName", "org.hsqldb.jdbc.JDBCDriver"));
+        ref.add(new StringRefAddr("url", "jdbc:hsqldb:mem:a, jdbc:hsqldb:mem:b"));
+        FailoverDataSource failover = (FailoverDataSource) new DriverDataSourceFactory()
+                .getObjectInstance(ref, null, null, null);
+        try {
+            assertEquals(2, failover.getMembers().size());
+            assertEquals("jdbc:hsqldb:mem:b", ((DriverDatasource) failover.getMembers().get(1)).getUrl());
+        } finally {
+            failover.close();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.TomcatServerXMLStrategy#reload(File, String, ReloadableDataSource)}.
+     */
+    @Test
+    public void testReload() throws Exception {
+        File serverXML = File.createTempFile("server", ".xml");
+        try {
+            ServerXMLFiles.write(serverXML, "jdbc:hsqldb:mem:first");
+            List<Reference> refs = instance.getIndex(serverXML).getMembers("jdbc/testDB");
+            JDBCDataSource initial = new JDBCDataSource();
+            ReloadableDataSource reloadable = new ReloadableDataSource(initial, refs);
+
+            instance.reload(serverXML, "jdbc/testDB", reloadable);
+            assertSame("unchanged resource not rebuilt", initial, reloadable.getDataSource());
+
+            ServerXMLFiles.write(serverXML, "jdbc:hsqldb:mem:second");
+            instance.reload(serverXML, "jdbc/testDB", reloadable);
+            assertEquals("jdbc:hsqldb:mem:second", ((DriverDatasource) reloadable.getDataSource()).getUrl());
+            Connection conn = reloadable.getConnection();
+            assertEquals("jdbc:hsqldb:mem:second", conn.getMetaData().getURL());
+            conn.close();
+        } finally {
+            serverXML.delete();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.TomcatServerXMLStrategy#getBuilt(File, String, List)}.
+     */
+    @Test
+    public void testBuiltReplaced() throws Exception {
+        File serverXML = File.createTempFile("server", ".xml");
+        try {
+            ServerXMLFiles.write(serverXML, "jdbc:hsqldb:mem:a, jdbc:hsqldb:mem:b");
+            List<Reference> refs = instance.getIndex(serverXML).getMembers("jdbc/testDB");
+            FailoverDataSource failover = (FailoverDataSource) instance.getBuilt(serverXML, "jdbc/testDB", refs);
+            assertSame("unchanged resource not rebuilt", failover,
+                    instance.getBuilt(serverXML, "jdbc/testDB", instance.getIndex(serverXML).getMembers("jdbc/testDB")));
+            assertFalse(failover.isClosed());
+
+            ServerXMLFiles.write(serverXML, "jdbc:hsqldb:mem:second");
+            instance.getIndex(serverXML).reload();
+            refs = instance.getIndex(serverXML).getMembers("jdbc/testDB");
+            DataSource replacing = instance.getBuilt(serverXML, "jdbc/testDB", refs);
+            assertEquals("jdbc:hsqldb:mem:second", ((DriverDatasource) replacing).getUrl());
+            assertTrue("replaced one closed", failover.isClosed());
+        } finally {
+            serverXML.delete();
+        }
+    }
+
+    /**
+     * Test method for {@link fr.unistra.di.jdbc.jndi.tomcat.TomcatServerXMLStrategy#sameResources(List, List)}.
+     */
+    @Test
+    public void testSameResources() {
+        Reference ref = new Reference("javax.sql.DataSource", DriverDataSourceFactory.class.getName(), null);
+        ref.add(new StringRefAddr("url", "jdbc:hsqldb:mem:a"));
+        Reference copy = (Reference) ref.clone();
+        assertTrue(TomcatServerXMLStrategy.sameResources(Arrays.asList(ref), Arrays.asList(copy)));
+
+        Reference otherFactory = new Reference("javax.sql.DataSource", DataSourceFactory.class.getName(), null);
+        otherFactory.add(new StringRefAddr("url", "jdbc:hsqldb:mem:a"));
+        assertFalse("factory changed", TomcatServerXMLStrategy.sameResources(
+                Arrays.asList(ref), Arrays.asList(otherFactory)));
+        Reference noFactory = new Reference("javax.sql.DataSource");
+        noFactory.add(new StringRefAddr("url", "jdbc:hsqldb:mem:a"));
+        assertFalse(TomcatServerXMLStrategy.sameResources(Arrays.asList(noFactory), Arrays.asList(ref)));
+
+        copy.add(new StringRefAddr("username", "sa"));
+        assertFalse(TomcatServerXMLStrategy.sameResources(Arrays.asList(ref), Arrays.asList(copy)));
+    }
 }